@@ -0,0 +1,117 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.dtos;
+
+import co.edu.uniandes.csw.company.api.BatchItemResult;
+import co.edu.uniandes.csw.company.entities.BaseEntity;
+import javax.xml.bind.annotation.XmlRootElement;
+
+@XmlRootElement
+public class BatchItemResultDTO {
+
+    private int index;
+    private Long id;
+    private String error;
+
+    /**
+     *
+     */
+    public BatchItemResultDTO() {
+    }
+
+    /**
+     * Crea un objeto BatchItemResultDTO a partir del resultado de un elemento
+     * de una operación por lotes.
+     *
+     * @param result resultado del elemento.
+     *
+     */
+    public BatchItemResultDTO(BatchItemResult<? extends BaseEntity> result) {
+        this.index = result.getIndex();
+        this.error = result.getError();
+        if (result.getEntity() != null) {
+            this.id = result.getEntity().getId();
+        }
+    }
+
+    /**
+     * Obtiene el atributo index.
+     *
+     * @return posición del elemento en el lote.
+     *
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Establece el valor del atributo index.
+     *
+     * @param index nuevo valor del atributo
+     *
+     */
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    /**
+     * Obtiene el atributo id.
+     *
+     * @return id del registro creado, o null si fue rechazado.
+     *
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Establece el valor del atributo id.
+     *
+     * @param id nuevo valor del atributo
+     *
+     */
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * Obtiene el atributo error.
+     *
+     * @return motivo del rechazo, o null si el registro fue creado.
+     *
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Establece el valor del atributo error.
+     *
+     * @param error nuevo valor del atributo
+     *
+     */
+    public void setError(String error) {
+        this.error = error;
+    }
+}
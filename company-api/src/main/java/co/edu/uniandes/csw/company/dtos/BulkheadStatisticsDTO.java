@@ -0,0 +1,224 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.dtos;
+
+import co.edu.uniandes.csw.company.resources.Bulkheads;
+import javax.xml.bind.annotation.XmlRootElement;
+
+@XmlRootElement
+public class BulkheadStatisticsDTO {
+
+    private String name;
+    private int threads;
+    private int active;
+    private int queued;
+    private int queueCapacity;
+    private long submitted;
+    private long rejected;
+    private long timeouts;
+
+    /**
+     *
+     */
+    public BulkheadStatisticsDTO() {
+    }
+
+    /**
+     * Crea un objeto BulkheadStatisticsDTO a partir de los contadores de un
+     * grupo de hilos.
+     *
+     * @param statistics contadores del grupo.
+     *
+     */
+    public BulkheadStatisticsDTO(Bulkheads.Statistics statistics) {
+        this.name = statistics.getName();
+        this.threads = statistics.getThreads();
+        this.active = statistics.getActive();
+        this.queued = statistics.getQueued();
+        this.queueCapacity = statistics.getQueueCapacity();
+        this.submitted = statistics.getSubmitted();
+        this.rejected = statistics.getRejected();
+        this.timeouts = statistics.getTimeouts();
+    }
+
+    /**
+     * Obtiene el atributo name.
+     *
+     * @return nombre del grupo.
+     *
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Establece el valor del atributo name.
+     *
+     * @param name nuevo valor del atributo
+     *
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Obtiene el atributo threads.
+     *
+     * @return número máximo de hilos del grupo.
+     *
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Establece el valor del atributo threads.
+     *
+     * @param threads nuevo valor del atributo
+     *
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Obtiene el atributo active.
+     *
+     * @return hilos ejecutando un servicio.
+     *
+     */
+    public int getActive() {
+        return active;
+    }
+
+    /**
+     * Establece el valor del atributo active.
+     *
+     * @param active nuevo valor del atributo
+     *
+     */
+    public void setActive(int active) {
+        this.active = active;
+    }
+
+    /**
+     * Obtiene el atributo queued.
+     *
+     * @return servicios esperando un hilo.
+     *
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    /**
+     * Establece el valor del atributo queued.
+     *
+     * @param queued nuevo valor del atributo
+     *
+     */
+    public void setQueued(int queued) {
+        this.queued = queued;
+    }
+
+    /**
+     * Obtiene el atributo queueCapacity.
+     *
+     * @return número máximo de servicios en espera.
+     *
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Establece el valor del atributo queueCapacity.
+     *
+     * @param queueCapacity nuevo valor del atributo
+     *
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Obtiene el atributo submitted.
+     *
+     * @return servicios recibidos.
+     *
+     */
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    /**
+     * Establece el valor del atributo submitted.
+     *
+     * @param submitted nuevo valor del atributo
+     *
+     */
+    public void setSubmitted(long submitted) {
+        this.submitted = submitted;
+    }
+
+    /**
+     * Obtiene el atributo rejected.
+     *
+     * @return servicios rechazados porque la cola estaba llena.
+     *
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Establece el valor del atributo rejected.
+     *
+     * @param rejected nuevo valor del atributo
+     *
+     */
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    /**
+     * Obtiene el atributo timeouts.
+     *
+     * @return servicios que no respondieron a tiempo.
+     *
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * Establece el valor del atributo timeouts.
+     *
+     * @param timeouts nuevo valor del atributo
+     *
+     */
+    public void setTimeouts(long timeouts) {
+        this.timeouts = timeouts;
+    }
+}
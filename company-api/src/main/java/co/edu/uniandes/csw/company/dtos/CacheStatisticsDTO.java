@@ -0,0 +1,136 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.dtos;
+
+import co.edu.uniandes.csw.company.persistence.CacheStatistics;
+import javax.xml.bind.annotation.XmlRootElement;
+
+@XmlRootElement
+public class CacheStatisticsDTO {
+
+    private String entity;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     *
+     */
+    public CacheStatisticsDTO() {
+    }
+
+    /**
+     * Crea un objeto CacheStatisticsDTO a partir de los contadores de una
+     * entidad.
+     *
+     * @param entry contadores del caché de la entidad.
+     *
+     */
+    public CacheStatisticsDTO(CacheStatistics.Entry entry) {
+        this.entity = entry.getEntity();
+        this.hits = entry.getHits();
+        this.misses = entry.getMisses();
+        this.evictions = entry.getEvictions();
+    }
+
+    /**
+     * Obtiene el atributo entity.
+     *
+     * @return nombre de la entidad.
+     *
+     */
+    public String getEntity() {
+        return entity;
+    }
+
+    /**
+     * Establece el valor del atributo entity.
+     *
+     * @param entity nuevo valor del atributo
+     *
+     */
+    public void setEntity(String entity) {
+        this.entity = entity;
+    }
+
+    /**
+     * Obtiene el atributo hits.
+     *
+     * @return consultas por id resueltas desde el caché.
+     *
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Establece el valor del atributo hits.
+     *
+     * @param hits nuevo valor del atributo
+     *
+     */
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    /**
+     * Obtiene el atributo misses.
+     *
+     * @return consultas por id que fueron a la base de datos.
+     *
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Establece el valor del atributo misses.
+     *
+     * @param misses nuevo valor del atributo
+     *
+     */
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+
+    /**
+     * Obtiene el atributo evictions.
+     *
+     * @return registros expulsados del caché.
+     *
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Establece el valor del atributo evictions.
+     *
+     * @param evictions nuevo valor del atributo
+     *
+     */
+    public void setEvictions(long evictions) {
+        this.evictions = evictions;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.dtos;
+
+import co.edu.uniandes.csw.company.util.SingleFlight;
+import javax.xml.bind.annotation.XmlRootElement;
+
+@XmlRootElement
+public class CoalescingStatisticsDTO {
+
+    private String operation;
+    private long loads;
+    private long coalesced;
+    private int inFlight;
+
+    /**
+     *
+     */
+    public CoalescingStatisticsDTO() {
+    }
+
+    /**
+     * Crea un objeto CoalescingStatisticsDTO a partir de los contadores de
+     * una operación.
+     *
+     * @param entry contadores de la operación.
+     *
+     */
+    public CoalescingStatisticsDTO(SingleFlight.Entry entry) {
+        this.operation = entry.getOperation();
+        this.loads = entry.getLoads();
+        this.coalesced = entry.getCoalesced();
+        this.inFlight = entry.getInFlight();
+    }
+
+    /**
+     * Obtiene el atributo operation.
+     *
+     * @return nombre de la operación.
+     *
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Establece el valor del atributo operation.
+     *
+     * @param operation nuevo valor del atributo
+     *
+     */
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Obtiene el atributo loads.
+     *
+     * @return cargas ejecutadas.
+     *
+     */
+    public long getLoads() {
+        return loads;
+    }
+
+    /**
+     * Establece el valor del atributo loads.
+     *
+     * @param loads nuevo valor del atributo
+     *
+     */
+    public void setLoads(long loads) {
+        this.loads = loads;
+    }
+
+    /**
+     * Obtiene el atributo coalesced.
+     *
+     * @return llamadas que esperaron una carga en curso.
+     *
+     */
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * Establece el valor del atributo coalesced.
+     *
+     * @param coalesced nuevo valor del atributo
+     *
+     */
+    public void setCoalesced(long coalesced) {
+        this.coalesced = coalesced;
+    }
+
+    /**
+     * Obtiene el atributo inFlight.
+     *
+     * @return cargas en curso.
+     *
+     */
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Establece el valor del atributo inFlight.
+     *
+     * @param inFlight nuevo valor del atributo
+     *
+     */
+    public void setInFlight(int inFlight) {
+        this.inFlight = inFlight;
+    }
+}
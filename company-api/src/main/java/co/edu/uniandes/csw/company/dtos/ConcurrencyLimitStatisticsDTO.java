@@ -0,0 +1,246 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.dtos;
+
+import co.edu.uniandes.csw.company.filters.ConcurrencyLimit;
+import javax.xml.bind.annotation.XmlRootElement;
+
+@XmlRootElement
+public class ConcurrencyLimitStatisticsDTO {
+
+    private String name;
+    private int limit;
+    private int minLimit;
+    private int maxLimit;
+    private int inFlight;
+    private double rttMillis;
+    private long accepted;
+    private long rejected;
+    private long dropped;
+
+    /**
+     *
+     */
+    public ConcurrencyLimitStatisticsDTO() {
+    }
+
+    /**
+     * Crea un objeto ConcurrencyLimitStatisticsDTO a partir de los contadores
+     * del límite de un recurso.
+     *
+     * @param statistics contadores del límite.
+     *
+     */
+    public ConcurrencyLimitStatisticsDTO(ConcurrencyLimit.Statistics statistics) {
+        this.name = statistics.getName();
+        this.limit = statistics.getLimit();
+        this.minLimit = statistics.getMinLimit();
+        this.maxLimit = statistics.getMaxLimit();
+        this.inFlight = statistics.getInFlight();
+        this.rttMillis = statistics.getRttMillis();
+        this.accepted = statistics.getAccepted();
+        this.rejected = statistics.getRejected();
+        this.dropped = statistics.getDropped();
+    }
+
+    /**
+     * Obtiene el atributo name.
+     *
+     * @return nombre del recurso.
+     *
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Establece el valor del atributo name.
+     *
+     * @param name nuevo valor del atributo
+     *
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Obtiene el atributo limit.
+     *
+     * @return máximo actual de peticiones concurrentes.
+     *
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Establece el valor del atributo limit.
+     *
+     * @param limit nuevo valor del atributo
+     *
+     */
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Obtiene el atributo minLimit.
+     *
+     * @return valor mínimo del límite.
+     *
+     */
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    /**
+     * Establece el valor del atributo minLimit.
+     *
+     * @param minLimit nuevo valor del atributo
+     *
+     */
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    /**
+     * Obtiene el atributo maxLimit.
+     *
+     * @return valor máximo del límite.
+     *
+     */
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * Establece el valor del atributo maxLimit.
+     *
+     * @param maxLimit nuevo valor del atributo
+     *
+     */
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Obtiene el atributo inFlight.
+     *
+     * @return peticiones en curso.
+     *
+     */
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Establece el valor del atributo inFlight.
+     *
+     * @param inFlight nuevo valor del atributo
+     *
+     */
+    public void setInFlight(int inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    /**
+     * Obtiene el atributo rttMillis.
+     *
+     * @return latencia de largo plazo, en milisegundos.
+     *
+     */
+    public double getRttMillis() {
+        return rttMillis;
+    }
+
+    /**
+     * Establece el valor del atributo rttMillis.
+     *
+     * @param rttMillis nuevo valor del atributo
+     *
+     */
+    public void setRttMillis(double rttMillis) {
+        this.rttMillis = rttMillis;
+    }
+
+    /**
+     * Obtiene el atributo accepted.
+     *
+     * @return peticiones admitidas.
+     *
+     */
+    public long getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Establece el valor del atributo accepted.
+     *
+     * @param accepted nuevo valor del atributo
+     *
+     */
+    public void setAccepted(long accepted) {
+        this.accepted = accepted;
+    }
+
+    /**
+     * Obtiene el atributo rejected.
+     *
+     * @return peticiones rechazadas con 503 por exceder el límite.
+     *
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Establece el valor del atributo rejected.
+     *
+     * @param rejected nuevo valor del atributo
+     *
+     */
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    /**
+     * Obtiene el atributo dropped.
+     *
+     * @return peticiones cuyo cupo se liberó por tiempo.
+     *
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Establece el valor del atributo dropped.
+     *
+     * @param dropped nuevo valor del atributo
+     *
+     */
+    public void setDropped(long dropped) {
+        this.dropped = dropped;
+    }
+}
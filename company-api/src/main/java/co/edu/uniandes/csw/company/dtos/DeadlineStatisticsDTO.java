@@ -0,0 +1,137 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.dtos;
+
+import co.edu.uniandes.csw.company.util.Deadline;
+import javax.xml.bind.annotation.XmlRootElement;
+
+@XmlRootElement
+public class DeadlineStatisticsDTO {
+
+    private String endpoint;
+    private long dropped;
+    private long timedOut;
+    private long cancelled;
+
+    /**
+     *
+     */
+    public DeadlineStatisticsDTO() {
+    }
+
+    /**
+     * Crea un objeto DeadlineStatisticsDTO a partir de los contadores de un
+     * endpoint.
+     *
+     * @param entry contadores del endpoint.
+     *
+     */
+    public DeadlineStatisticsDTO(Deadline.Entry entry) {
+        this.endpoint = entry.getEndpoint();
+        this.dropped = entry.getDropped();
+        this.timedOut = entry.getTimedOut();
+        this.cancelled = entry.getCancelled();
+    }
+
+    /**
+     * Obtiene el atributo endpoint.
+     *
+     * @return nombre del endpoint.
+     *
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Establece el valor del atributo endpoint.
+     *
+     * @param endpoint nuevo valor del atributo
+     *
+     */
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Obtiene el atributo dropped.
+     *
+     * @return peticiones descartadas porque su plazo venció antes de
+     * empezar.
+     *
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Establece el valor del atributo dropped.
+     *
+     * @param dropped nuevo valor del atributo
+     *
+     */
+    public void setDropped(long dropped) {
+        this.dropped = dropped;
+    }
+
+    /**
+     * Obtiene el atributo timedOut.
+     *
+     * @return peticiones respondidas por tiempo antes de terminar.
+     *
+     */
+    public long getTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Establece el valor del atributo timedOut.
+     *
+     * @param timedOut nuevo valor del atributo
+     *
+     */
+    public void setTimedOut(long timedOut) {
+        this.timedOut = timedOut;
+    }
+
+    /**
+     * Obtiene el atributo cancelled.
+     *
+     * @return consultas canceladas por el plazo.
+     *
+     */
+    public long getCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Establece el valor del atributo cancelled.
+     *
+     * @param cancelled nuevo valor del atributo
+     *
+     */
+    public void setCancelled(long cancelled) {
+        this.cancelled = cancelled;
+    }
+}
@@ -24,6 +24,7 @@ SOFTWARE.
 package co.edu.uniandes.csw.company.dtos;
 
 import co.edu.uniandes.csw.company.entities.DepartmentEntity;
+import co.edu.uniandes.csw.company.projections.DepartmentSummary;
 import java.util.ArrayList;
 import java.util.List;
 import javax.xml.bind.annotation.XmlRootElement;
@@ -61,6 +62,24 @@ public class DepartmentDetailDTO extends DepartmentDTO {
 
     }
 
+    /**
+     * Crea un objeto DepartmentDetailDTO a partir de una proyección
+     * DepartmentSummary, sin cargar la entidad ni sus employees.
+     *
+     * @param summary datos del Department y de su Company.
+     *
+     */
+    public DepartmentDetailDTO(DepartmentSummary summary) {
+        super();
+        setId(summary.getId());
+        setName(summary.getName());
+        if (summary.getCompanyId() != null) {
+            this.company = new CompanyDTO();
+            this.company.setId(summary.getCompanyId());
+            this.company.setName(summary.getCompanyName());
+        }
+    }
+
     /**
      * Convierte un objeto DepartmentDetailDTO a DepartmentEntity incluyendo los
      * atributos de DepartmentDTO.
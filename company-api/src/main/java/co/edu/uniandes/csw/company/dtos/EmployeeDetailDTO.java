@@ -24,6 +24,7 @@ SOFTWARE.
 package co.edu.uniandes.csw.company.dtos;
 
 import co.edu.uniandes.csw.company.entities.EmployeeEntity;
+import co.edu.uniandes.csw.company.projections.EmployeeSummary;
 import javax.xml.bind.annotation.XmlRootElement;
 import uk.co.jemos.podam.common.PodamExclude;
 
@@ -56,6 +57,25 @@ public class EmployeeDetailDTO extends EmployeeDTO {
 
     }
 
+    /**
+     * Crea un objeto EmployeeDetailDTO a partir de una proyección
+     * EmployeeSummary, sin cargar la entidad.
+     *
+     * @param summary datos del Employee y de su Department.
+     *
+     */
+    public EmployeeDetailDTO(EmployeeSummary summary) {
+        super();
+        setId(summary.getId());
+        setName(summary.getName());
+        setSalary(summary.getSalary());
+        if (summary.getDepartmentId() != null) {
+            this.department = new DepartmentDTO();
+            this.department.setId(summary.getDepartmentId());
+            this.department.setName(summary.getDepartmentName());
+        }
+    }
+
     /**
      * Convierte un objeto EmployeeDetailDTO a EmployeeEntity incluyendo los
      * atributos de EmployeeDTO.
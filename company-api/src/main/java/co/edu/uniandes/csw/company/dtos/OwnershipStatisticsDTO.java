@@ -0,0 +1,247 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.dtos;
+
+import co.edu.uniandes.csw.company.persistence.OwnershipIndex;
+import javax.xml.bind.annotation.XmlRootElement;
+
+@XmlRootElement
+public class OwnershipStatisticsDTO {
+
+    private int departments;
+    private int employees;
+    private long memoryBytes;
+    private long loadedAt;
+    private long ageMillis;
+    private long changes;
+    private long hits;
+    private long misses;
+    private long repairs;
+
+    /**
+     *
+     */
+    public OwnershipStatisticsDTO() {
+    }
+
+    /**
+     * Crea un objeto OwnershipStatisticsDTO a partir de los valores del
+     * índice de pertenencia.
+     *
+     * @param statistics valores del índice.
+     *
+     */
+    public OwnershipStatisticsDTO(OwnershipIndex.Statistics statistics) {
+        this.departments = statistics.getDepartments();
+        this.employees = statistics.getEmployees();
+        this.memoryBytes = statistics.getMemoryBytes();
+        this.loadedAt = statistics.getLoadedAt();
+        this.ageMillis = statistics.getAgeMillis();
+        this.changes = statistics.getChanges();
+        this.hits = statistics.getHits();
+        this.misses = statistics.getMisses();
+        this.repairs = statistics.getRepairs();
+    }
+
+    /**
+     * Obtiene el atributo departments.
+     *
+     * @return departments en el índice.
+     *
+     */
+    public int getDepartments() {
+        return departments;
+    }
+
+    /**
+     * Establece el valor del atributo departments.
+     *
+     * @param departments nuevo valor del atributo
+     *
+     */
+    public void setDepartments(int departments) {
+        this.departments = departments;
+    }
+
+    /**
+     * Obtiene el atributo employees.
+     *
+     * @return employees en el índice.
+     *
+     */
+    public int getEmployees() {
+        return employees;
+    }
+
+    /**
+     * Establece el valor del atributo employees.
+     *
+     * @param employees nuevo valor del atributo
+     *
+     */
+    public void setEmployees(int employees) {
+        this.employees = employees;
+    }
+
+    /**
+     * Obtiene el atributo memoryBytes.
+     *
+     * @return bytes que ocupan las tablas del índice.
+     *
+     */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * Establece el valor del atributo memoryBytes.
+     *
+     * @param memoryBytes nuevo valor del atributo
+     *
+     */
+    public void setMemoryBytes(long memoryBytes) {
+        this.memoryBytes = memoryBytes;
+    }
+
+    /**
+     * Obtiene el atributo loadedAt.
+     *
+     * @return momento de la última carga completa, en milisegundos desde la
+     * época.
+     *
+     */
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * Establece el valor del atributo loadedAt.
+     *
+     * @param loadedAt nuevo valor del atributo
+     *
+     */
+    public void setLoadedAt(long loadedAt) {
+        this.loadedAt = loadedAt;
+    }
+
+    /**
+     * Obtiene el atributo ageMillis.
+     *
+     * @return milisegundos transcurridos desde la última carga completa.
+     *
+     */
+    public long getAgeMillis() {
+        return ageMillis;
+    }
+
+    /**
+     * Establece el valor del atributo ageMillis.
+     *
+     * @param ageMillis nuevo valor del atributo
+     *
+     */
+    public void setAgeMillis(long ageMillis) {
+        this.ageMillis = ageMillis;
+    }
+
+    /**
+     * Obtiene el atributo changes.
+     *
+     * @return cambios aplicados desde la última carga completa.
+     *
+     */
+    public long getChanges() {
+        return changes;
+    }
+
+    /**
+     * Establece el valor del atributo changes.
+     *
+     * @param changes nuevo valor del atributo
+     *
+     */
+    public void setChanges(long changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * Obtiene el atributo hits.
+     *
+     * @return rutas confirmadas por el índice.
+     *
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Establece el valor del atributo hits.
+     *
+     * @param hits nuevo valor del atributo
+     *
+     */
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    /**
+     * Obtiene el atributo misses.
+     *
+     * @return rutas que el índice no pudo confirmar.
+     *
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Establece el valor del atributo misses.
+     *
+     * @param misses nuevo valor del atributo
+     *
+     */
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+
+    /**
+     * Obtiene el atributo repairs.
+     *
+     * @return rutas que el índice no conocía y la base de datos confirmó.
+     *
+     */
+    public long getRepairs() {
+        return repairs;
+    }
+
+    /**
+     * Establece el valor del atributo repairs.
+     *
+     * @param repairs nuevo valor del atributo
+     *
+     */
+    public void setRepairs(long repairs) {
+        this.repairs = repairs;
+    }
+}
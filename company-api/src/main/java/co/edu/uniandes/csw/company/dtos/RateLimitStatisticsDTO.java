@@ -0,0 +1,180 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.dtos;
+
+import co.edu.uniandes.csw.company.filters.TokenBuckets;
+import javax.xml.bind.annotation.XmlRootElement;
+
+@XmlRootElement
+public class RateLimitStatisticsDTO {
+
+    private String name;
+    private int rate;
+    private int burst;
+    private int clients;
+    private long allowed;
+    private long limited;
+
+    /**
+     *
+     */
+    public RateLimitStatisticsDTO() {
+    }
+
+    /**
+     * Crea un objeto RateLimitStatisticsDTO a partir de los contadores de un
+     * grupo de rutas.
+     *
+     * @param statistics contadores del grupo.
+     *
+     */
+    public RateLimitStatisticsDTO(TokenBuckets.Statistics statistics) {
+        this.name = statistics.getName();
+        this.rate = statistics.getRate();
+        this.burst = statistics.getBurst();
+        this.clients = statistics.getClients();
+        this.allowed = statistics.getAllowed();
+        this.limited = statistics.getLimited();
+    }
+
+    /**
+     * Obtiene el atributo name.
+     *
+     * @return nombre del grupo de rutas.
+     *
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Establece el valor del atributo name.
+     *
+     * @param name nuevo valor del atributo
+     *
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Obtiene el atributo rate.
+     *
+     * @return peticiones por segundo de cada cliente.
+     *
+     */
+    public int getRate() {
+        return rate;
+    }
+
+    /**
+     * Establece el valor del atributo rate.
+     *
+     * @param rate nuevo valor del atributo
+     *
+     */
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * Obtiene el atributo burst.
+     *
+     * @return número máximo de peticiones seguidas de un cliente.
+     *
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Establece el valor del atributo burst.
+     *
+     * @param burst nuevo valor del atributo
+     *
+     */
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+
+    /**
+     * Obtiene el atributo clients.
+     *
+     * @return clientes con bucket.
+     *
+     */
+    public int getClients() {
+        return clients;
+    }
+
+    /**
+     * Establece el valor del atributo clients.
+     *
+     * @param clients nuevo valor del atributo
+     *
+     */
+    public void setClients(int clients) {
+        this.clients = clients;
+    }
+
+    /**
+     * Obtiene el atributo allowed.
+     *
+     * @return peticiones admitidas.
+     *
+     */
+    public long getAllowed() {
+        return allowed;
+    }
+
+    /**
+     * Establece el valor del atributo allowed.
+     *
+     * @param allowed nuevo valor del atributo
+     *
+     */
+    public void setAllowed(long allowed) {
+        this.allowed = allowed;
+    }
+
+    /**
+     * Obtiene el atributo limited.
+     *
+     * @return peticiones rechazadas con 429.
+     *
+     */
+    public long getLimited() {
+        return limited;
+    }
+
+    /**
+     * Establece el valor del atributo limited.
+     *
+     * @param limited nuevo valor del atributo
+     *
+     */
+    public void setLimited(long limited) {
+        this.limited = limited;
+    }
+}
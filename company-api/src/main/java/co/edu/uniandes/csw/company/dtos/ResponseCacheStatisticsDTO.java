@@ -0,0 +1,225 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.dtos;
+
+import co.edu.uniandes.csw.company.filters.ResponseCache;
+import javax.xml.bind.annotation.XmlRootElement;
+
+@XmlRootElement
+public class ResponseCacheStatisticsDTO {
+
+    private long hits;
+    private long misses;
+    private double hitRatio;
+    private long invalidations;
+    private long evictions;
+    private int entries;
+    private long bytes;
+    private long maxBytes;
+
+    /**
+     *
+     */
+    public ResponseCacheStatisticsDTO() {
+    }
+
+    /**
+     * Crea un objeto ResponseCacheStatisticsDTO a partir de los contadores
+     * del caché de respuestas.
+     *
+     * @param statistics contadores del caché.
+     *
+     */
+    public ResponseCacheStatisticsDTO(ResponseCache.Statistics statistics) {
+        this.hits = statistics.getHits();
+        this.misses = statistics.getMisses();
+        long lookups = hits + misses;
+        this.hitRatio = lookups == 0 ? 0 : (double) hits / lookups;
+        this.invalidations = statistics.getInvalidations();
+        this.evictions = statistics.getEvictions();
+        this.entries = statistics.getEntries();
+        this.bytes = statistics.getBytes();
+        this.maxBytes = statistics.getMaxBytes();
+    }
+
+    /**
+     * Obtiene el atributo hits.
+     *
+     * @return peticiones respondidas con una respuesta guardada.
+     *
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Establece el valor del atributo hits.
+     *
+     * @param hits nuevo valor del atributo
+     *
+     */
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    /**
+     * Obtiene el atributo misses.
+     *
+     * @return peticiones sin respuesta guardada vigente.
+     *
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Establece el valor del atributo misses.
+     *
+     * @param misses nuevo valor del atributo
+     *
+     */
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+
+    /**
+     * Obtiene el atributo hitRatio.
+     *
+     * @return fracción de las peticiones respondidas con una respuesta guardada.
+     *
+     */
+    public double getHitRatio() {
+        return hitRatio;
+    }
+
+    /**
+     * Establece el valor del atributo hitRatio.
+     *
+     * @param hitRatio nuevo valor del atributo
+     *
+     */
+    public void setHitRatio(double hitRatio) {
+        this.hitRatio = hitRatio;
+    }
+
+    /**
+     * Obtiene el atributo invalidations.
+     *
+     * @return respuestas descartadas porque sus datos cambiaron.
+     *
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Establece el valor del atributo invalidations.
+     *
+     * @param invalidations nuevo valor del atributo
+     *
+     */
+    public void setInvalidations(long invalidations) {
+        this.invalidations = invalidations;
+    }
+
+    /**
+     * Obtiene el atributo evictions.
+     *
+     * @return respuestas expulsadas por exceder el límite de bytes.
+     *
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Establece el valor del atributo evictions.
+     *
+     * @param evictions nuevo valor del atributo
+     *
+     */
+    public void setEvictions(long evictions) {
+        this.evictions = evictions;
+    }
+
+    /**
+     * Obtiene el atributo entries.
+     *
+     * @return respuestas guardadas.
+     *
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * Establece el valor del atributo entries.
+     *
+     * @param entries nuevo valor del atributo
+     *
+     */
+    public void setEntries(int entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Obtiene el atributo bytes.
+     *
+     * @return bytes de los cuerpos guardados.
+     *
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Establece el valor del atributo bytes.
+     *
+     * @param bytes nuevo valor del atributo
+     *
+     */
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Obtiene el atributo maxBytes.
+     *
+     * @return límite de bytes de los cuerpos guardados.
+     *
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Establece el valor del atributo maxBytes.
+     *
+     * @param maxBytes nuevo valor del atributo
+     *
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+}
@@ -0,0 +1,343 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.filters;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Límite adaptativo de peticiones concurrentes de un recurso. El límite se
+ * ajusta con el gradiente entre la latencia de largo plazo y la de cada
+ * petición: mientras la latencia se mantiene cerca de la habitual el límite
+ * crece, y cuando empieza a subir porque las peticiones esperan una conexión
+ * o un hilo, baja. Las respuestas 503 y las peticiones que nunca se
+ * liberan lo reducen un 10%.
+ *
+ * Los valores se configuran por recurso con las propiedades de sistema
+ * company.limiter.&lt;Recurso&gt;.initial, .min, .max y .tolerance, donde
+ * &lt;Recurso&gt; es el nombre simple de la clase; los recursos sin valor
+ * propio usan company.limiter.default.*.
+ */
+public final class ConcurrencyLimit {
+
+    /**
+     * Propiedad de sistema con el tiempo, en milisegundos, después del cual
+     * una petición que no pasó por el filtro de respuesta se da por perdida
+     * y se libera su cupo.
+     */
+    public static final String LEASE_PROPERTY = "company.limiter.lease-ms";
+
+    private static final long LEASE_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong(LEASE_PROPERTY, 60000L));
+
+    /**
+     * Número de muestras de la media móvil de la latencia de largo plazo.
+     */
+    private static final int LONG_WINDOW = 600;
+
+    /**
+     * Muestras que se promedian antes de usar la media móvil.
+     */
+    private static final int WARMUP = 10;
+
+    /**
+     * Peso de cada nuevo cálculo en el límite.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    private static final double BACKOFF = 0.9;
+
+    private static final ConcurrentMap<String, ConcurrencyLimit> LIMITS = new ConcurrentSkipListMap<>();
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Set<Lease> leases = ConcurrentHashMap.newKeySet();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile double limit;
+    private volatile long lastSweep = System.nanoTime();
+    private double longRtt;
+    private long samples;
+
+    private ConcurrencyLimit(String name) {
+        this.name = name;
+        this.minLimit = Math.max(1, property(name, "min", 2));
+        this.maxLimit = Math.max(minLimit, property(name, "max", 64));
+        this.limit = Math.min(maxLimit, Math.max(minLimit, property(name, "initial", 16)));
+        this.tolerance = Double.parseDouble(System.getProperty("company.limiter." + name + ".tolerance",
+                System.getProperty("company.limiter.default.tolerance", "1.5")));
+    }
+
+    /**
+     * Obtiene el límite de un recurso, creándolo la primera vez.
+     *
+     * @param name nombre del recurso.
+     * @return límite del recurso.
+     */
+    public static ConcurrencyLimit of(String name) {
+        ConcurrencyLimit limit = LIMITS.get(name);
+        if (limit == null) {
+            ConcurrencyLimit created = new ConcurrencyLimit(name);
+            limit = LIMITS.putIfAbsent(name, created);
+            if (limit == null) {
+                limit = created;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Reserva un cupo para una petición.
+     *
+     * @return el cupo, que se debe liberar con
+     * {@link #release(Lease, boolean)}, o null si el recurso ya tiene el
+     * máximo de peticiones en curso.
+     */
+    public Lease tryAcquire() {
+        long now = System.nanoTime();
+        if (now - lastSweep > TimeUnit.SECONDS.toNanos(1)) {
+            sweep(now);
+        }
+        if (inFlight.incrementAndGet() > (int) limit) {
+            inFlight.decrementAndGet();
+            rejected.increment();
+            return null;
+        }
+        Lease lease = new Lease(now);
+        leases.add(lease);
+        accepted.increment();
+        return lease;
+    }
+
+    /**
+     * Libera el cupo de una petición terminada y ajusta el límite con su
+     * latencia. Liberar dos veces el mismo cupo no tiene efecto.
+     *
+     * @param lease cupo de la petición.
+     * @param overloaded true si la petición terminó por sobrecarga, por
+     * ejemplo con 503; en ese caso el límite se reduce sin usar su latencia.
+     */
+    public void release(Lease lease, boolean overloaded) {
+        if (!lease.released.compareAndSet(false, true)) {
+            return;
+        }
+        leases.remove(lease);
+        int current = inFlight.getAndDecrement();
+        if (overloaded) {
+            backoff();
+        } else {
+            update(System.nanoTime() - lease.start, current);
+        }
+    }
+
+    private synchronized void update(long rtt, int current) {
+        rtt = Math.max(rtt, 1);
+        if (samples < WARMUP) {
+            longRtt = (longRtt * samples + rtt) / (samples + 1);
+        } else {
+            longRtt += (rtt - longRtt) / LONG_WINDOW;
+        }
+        samples++;
+        // Si la latencia bajó mucho, la de largo plazo se acerca más rápido.
+        if (longRtt / rtt > 2) {
+            longRtt *= 0.95;
+        }
+        // Con menos de la mitad del límite en uso la latencia no dice nada
+        // sobre si el límite es alto o bajo.
+        if (current < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / rtt));
+        double next = limit * gradient + Math.sqrt(limit);
+        limit = clamp(limit * (1 - SMOOTHING) + next * SMOOTHING);
+    }
+
+    private synchronized void backoff() {
+        limit = clamp(limit * BACKOFF);
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+    /**
+     * Libera los cupos de las peticiones que no terminaron en el tiempo
+     * máximo, por ejemplo porque una excepción sin mapper evitó el filtro de
+     * respuesta.
+     */
+    private void sweep(long now) {
+        lastSweep = now;
+        for (Iterator<Lease> it = leases.iterator(); it.hasNext();) {
+            Lease lease = it.next();
+            if (now - lease.start > LEASE_NANOS && lease.released.compareAndSet(false, true)) {
+                it.remove();
+                inFlight.decrementAndGet();
+                dropped.increment();
+                backoff();
+            }
+        }
+    }
+
+    /**
+     * Obtiene los contadores de todos los recursos, ordenados por nombre.
+     *
+     * @return contadores de cada recurso.
+     */
+    public static List<Statistics> snapshot() {
+        List<Statistics> list = new ArrayList<>();
+        for (Map.Entry<String, ConcurrencyLimit> entry : LIMITS.entrySet()) {
+            ConcurrencyLimit resource = entry.getValue();
+            double rtt;
+            synchronized (resource) {
+                rtt = resource.longRtt;
+            }
+            list.add(new Statistics(resource.name, (int) resource.limit, resource.minLimit, resource.maxLimit,
+                    resource.inFlight.get(), rtt / TimeUnit.MILLISECONDS.toNanos(1),
+                    resource.accepted.sum(), resource.rejected.sum(), resource.dropped.sum()));
+        }
+        return list;
+    }
+
+    private static int property(String name, String suffix, int defaultValue) {
+        return Integer.getInteger("company.limiter." + name + "." + suffix,
+                Integer.getInteger("company.limiter.default." + suffix, defaultValue));
+    }
+
+    /**
+     * Cupo de una petición en curso.
+     */
+    public static final class Lease {
+
+        private final long start;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(long start) {
+            this.start = start;
+        }
+    }
+
+    /**
+     * Contadores del límite de un recurso en un momento dado.
+     */
+    public static final class Statistics {
+
+        private final String name;
+        private final int limit;
+        private final int minLimit;
+        private final int maxLimit;
+        private final int inFlight;
+        private final double rttMillis;
+        private final long accepted;
+        private final long rejected;
+        private final long dropped;
+
+        Statistics(String name, int limit, int minLimit, int maxLimit, int inFlight, double rttMillis, long accepted, long rejected, long dropped) {
+            this.name = name;
+            this.limit = limit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.inFlight = inFlight;
+            this.rttMillis = rttMillis;
+            this.accepted = accepted;
+            this.rejected = rejected;
+            this.dropped = dropped;
+        }
+
+        /**
+         * @return nombre del recurso.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return máximo actual de peticiones concurrentes.
+         */
+        public int getLimit() {
+            return limit;
+        }
+
+        /**
+         * @return valor mínimo del límite.
+         */
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        /**
+         * @return valor máximo del límite.
+         */
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        /**
+         * @return peticiones en curso.
+         */
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        /**
+         * @return latencia de largo plazo, en milisegundos.
+         */
+        public double getRttMillis() {
+            return rttMillis;
+        }
+
+        /**
+         * @return peticiones admitidas.
+         */
+        public long getAccepted() {
+            return accepted;
+        }
+
+        /**
+         * @return peticiones rechazadas con 503 por exceder el límite.
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * @return peticiones cuyo cupo se liberó por tiempo.
+         */
+        public long getDropped() {
+            return dropped;
+        }
+    }
+}
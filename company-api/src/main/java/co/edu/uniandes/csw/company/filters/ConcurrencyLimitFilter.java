@@ -0,0 +1,102 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.filters;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Limita las peticiones concurrentes de cada clase de recurso con un
+ * {@link ConcurrencyLimit} adaptativo. Las peticiones que exceden el límite
+ * se responden de inmediato con 503 y Retry-After, en lugar de esperar
+ * hasta un minuto por una conexión del pool.
+ *
+ * Se ejecuta después de {@link ResponseCacheFilter}, así las respuestas
+ * servidas desde el caché no ocupan cupo. Con
+ * {@value #ENABLED_PROPERTY}=false no se limita ninguna petición.
+ */
+@Provider
+@Priority(Priorities.USER + 100)
+public class ConcurrencyLimitFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    /**
+     * Propiedad de sistema que activa el límite.
+     */
+    public static final String ENABLED_PROPERTY = "company.limiter.enabled";
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+
+    private static final String LIMIT_PROPERTY = ConcurrencyLimitFilter.class.getName() + ".limit";
+
+    private static final String LEASE_PROPERTY = ConcurrencyLimitFilter.class.getName() + ".lease";
+
+    /**
+     * El filtro se crea una sola vez, fuera de cualquier petición; el recurso
+     * se resuelve en cada petición. Solo se usa en el filtro de la petición:
+     * en los servicios asíncronos el de la respuesta corre en otro hilo.
+     */
+    @Inject
+    private javax.inject.Provider<ResourceInfo> resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        Class<?> resource = ENABLED ? resourceInfo.get().getResourceClass() : null;
+        if (resource == null) {
+            return;
+        }
+        ConcurrencyLimit limit = ConcurrencyLimit.of(resource.getSimpleName());
+        ConcurrencyLimit.Lease lease = limit.tryAcquire();
+        if (lease == null) {
+            request.abortWith(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, 1)
+                    .entity("El servidor está ocupado")
+                    .type(MediaType.TEXT_PLAIN)
+                    .build());
+            return;
+        }
+        request.setProperty(LIMIT_PROPERTY, limit);
+        request.setProperty(LEASE_PROPERTY, lease);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        ConcurrencyLimit limit = (ConcurrencyLimit) request.getProperty(LIMIT_PROPERTY);
+        ConcurrencyLimit.Lease lease = (ConcurrencyLimit.Lease) request.getProperty(LEASE_PROPERTY);
+        if (limit == null || lease == null) {
+            return;
+        }
+        request.removeProperty(LEASE_PROPERTY);
+        limit.release(lease, response.getStatus() == Response.Status.SERVICE_UNAVAILABLE.getStatusCode());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.filters;
+
+import co.edu.uniandes.csw.company.util.Deadline;
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Establece el plazo de la petición ({@link Deadline}) a partir del
+ * encabezado {@value #TIMEOUT_HEADER}, en milisegundos. Los servicios
+ * asíncronos lo pasan al hilo en el que se ejecutan y la persistencia lo usa
+ * como tiempo máximo de cada consulta.
+ *
+ * Las peticiones sin encabezado reciben un plazo sin vencimiento, solo para
+ * contarlas en el endpoint; el tiempo máximo lo pone entonces el grupo de
+ * hilos que las ejecuta.
+ */
+@Provider
+@Priority(Priorities.USER - 100)
+public class DeadlineFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    /**
+     * Encabezado con el tiempo máximo de la petición, en milisegundos.
+     */
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+    /**
+     * El filtro se crea una sola vez, fuera de cualquier petición; el recurso
+     * se resuelve en cada petición.
+     */
+    @Inject
+    private javax.inject.Provider<ResourceInfo> resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        ResourceInfo info = resourceInfo.get();
+        if (info.getResourceClass() == null || info.getResourceMethod() == null) {
+            return;
+        }
+        String endpoint = info.getResourceClass().getSimpleName() + "." + info.getResourceMethod().getName();
+        String header = request.getHeaderString(TIMEOUT_HEADER);
+        if (header == null) {
+            Deadline.set(Deadline.unbounded(endpoint));
+            return;
+        }
+        long millis;
+        try {
+            millis = Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            millis = -1;
+        }
+        if (millis < 0) {
+            request.abortWith(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("El encabezado " + TIMEOUT_HEADER + " debe ser un número de milisegundos")
+                    .type(MediaType.TEXT_PLAIN)
+                    .build());
+            return;
+        }
+        Deadline.set(Deadline.in(endpoint, millis));
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        // En los servicios síncronos el plazo sigue en el hilo HTTP, que se
+        // reutiliza en otras peticiones.
+        Deadline.set(null);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.filters;
+
+import co.edu.uniandes.csw.company.util.Metrics;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Mide cada petición en {@link Metrics#HTTP}, con el nombre
+ * Recurso.método del servicio que la atiende. Es el primer filtro después
+ * de resolver el servicio y el último en ver la respuesta, así la medida
+ * incluye los demás filtros, la espera en los grupos de hilos y las
+ * respuestas servidas desde el caché o rechazadas por los límites. Las
+ * respuestas 5xx se cuentan como errores.
+ */
+@Provider
+@Priority(Priorities.AUTHENTICATION)
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String TIMER_PROPERTY = MetricsFilter.class.getName() + ".timer";
+
+    private static final String STARTED_PROPERTY = MetricsFilter.class.getName() + ".started";
+
+    private static final ConcurrentMap<Method, Metrics.Timer> TIMERS = new ConcurrentHashMap<>();
+
+    /**
+     * El filtro se crea una sola vez, fuera de cualquier petición; el recurso
+     * se resuelve en cada petición.
+     */
+    @Inject
+    private javax.inject.Provider<ResourceInfo> resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        ResourceInfo info = resourceInfo.get();
+        Method method = info.getResourceMethod();
+        if (info.getResourceClass() == null || method == null) {
+            return;
+        }
+        Metrics.Timer timer = TIMERS.get(method);
+        if (timer == null) {
+            timer = Metrics.of(Metrics.HTTP).timer(info.getResourceClass().getSimpleName() + "." + method.getName());
+            TIMERS.putIfAbsent(method, timer);
+        }
+        request.setProperty(TIMER_PROPERTY, timer);
+        request.setProperty(STARTED_PROPERTY, timer.start());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        Metrics.Timer timer = (Metrics.Timer) request.getProperty(TIMER_PROPERTY);
+        Long started = (Long) request.getProperty(STARTED_PROPERTY);
+        if (timer == null || started == null) {
+            return;
+        }
+        request.removeProperty(STARTED_PROPERTY);
+        timer.stop(started, response.getStatus() >= 500);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.filters;
+
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Limita la tasa de peticiones de cada cliente por grupo de rutas:
+ * companies (/companies y /companies/{id}), departments (las rutas debajo
+ * de /companies/{id}/departments) y employees (/employees). El cliente es
+ * el header {@value #API_KEY_HEADER} o, si no se envía, la dirección
+ * remota. Las demás rutas no se limitan.
+ *
+ * Las respuestas llevan X-RateLimit-Limit, X-RateLimit-Remaining y
+ * X-RateLimit-Reset (segundos hasta que el bucket vuelva a estar lleno); las
+ * peticiones sin token se responden 429 con Retry-After. Se ejecuta antes
+ * de elegir el recurso, así una petición rechazada no llega al caché de
+ * respuestas ni al límite de concurrencia. Con
+ * {@value #ENABLED_PROPERTY}=false no se limita ninguna petición.
+ */
+@Provider
+@PreMatching
+@Priority(Priorities.AUTHENTICATION)
+public class RateLimitFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    /**
+     * Propiedad de sistema que activa el límite.
+     */
+    public static final String ENABLED_PROPERTY = "company.ratelimit.enabled";
+
+    /**
+     * Header con la llave de API del cliente.
+     */
+    public static final String API_KEY_HEADER = "X-API-Key";
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+
+    private static final String GROUP_PROPERTY = RateLimitFilter.class.getName() + ".group";
+
+    private static final String UNTIL_FULL_PROPERTY = RateLimitFilter.class.getName() + ".untilFull";
+
+    private static final TokenBuckets COMPANIES = TokenBuckets.of("companies");
+
+    private static final TokenBuckets DEPARTMENTS = TokenBuckets.of("departments");
+
+    private static final TokenBuckets EMPLOYEES = TokenBuckets.of("employees");
+
+    /**
+     * El filtro se crea una sola vez, fuera de cualquier petición; la
+     * petición del servlet se resuelve en cada una.
+     */
+    @Inject
+    private javax.inject.Provider<HttpServletRequest> servletRequest;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        TokenBuckets group = ENABLED ? group(request.getUriInfo().getPath()) : null;
+        if (group == null || !group.isLimited()) {
+            return;
+        }
+        String client = request.getHeaderString(API_KEY_HEADER);
+        if (client == null) {
+            client = servletRequest.get().getRemoteAddr();
+        }
+        long untilFull = group.tryAcquire(client, System.nanoTime());
+        if (untilFull < 0) {
+            request.abortWith(Response.status(TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, seconds(-untilFull))
+                    .header("X-RateLimit-Limit", group.getBurst())
+                    .header("X-RateLimit-Remaining", 0)
+                    .entity("Demasiadas peticiones")
+                    .type(MediaType.TEXT_PLAIN)
+                    .build());
+            return;
+        }
+        request.setProperty(GROUP_PROPERTY, group);
+        request.setProperty(UNTIL_FULL_PROPERTY, untilFull);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        TokenBuckets group = (TokenBuckets) request.getProperty(GROUP_PROPERTY);
+        if (group == null) {
+            return;
+        }
+        long untilFull = (Long) request.getProperty(UNTIL_FULL_PROPERTY);
+        MultivaluedMap<String, Object> headers = response.getHeaders();
+        headers.putSingle("X-RateLimit-Limit", group.getBurst());
+        headers.putSingle("X-RateLimit-Remaining", group.remaining(untilFull));
+        headers.putSingle("X-RateLimit-Reset", seconds(untilFull));
+    }
+
+    /**
+     * Obtiene el grupo de una ruta relativa a la aplicación, sin recorrer más
+     * que sus primeros segmentos.
+     */
+    private static TokenBuckets group(String path) {
+        int start = path.startsWith("/") ? 1 : 0;
+        if (isSegment(path, start, "employees")) {
+            return EMPLOYEES;
+        }
+        if (!isSegment(path, start, "companies")) {
+            return null;
+        }
+        int id = path.indexOf('/', start);
+        int child = id < 0 ? -1 : path.indexOf('/', id + 1);
+        return child >= 0 && isSegment(path, child + 1, "departments") ? DEPARTMENTS : COMPANIES;
+    }
+
+    /**
+     * Indica si la ruta tiene un segmento completo igual a name a partir de
+     * start, es decir, seguido de '/' o del final de la ruta.
+     */
+    private static boolean isSegment(String path, int start, String name) {
+        int end = start + name.length();
+        return path.startsWith(name, start) && (end == path.length() || path.charAt(end) == '/');
+    }
+
+    private static long seconds(long nanos) {
+        return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+}
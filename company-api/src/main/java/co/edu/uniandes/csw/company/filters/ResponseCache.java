@@ -0,0 +1,325 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.filters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Almacén de las respuestas GET serializadas que guarda
+ * {@link ResponseCacheFilter}. Es un LRU limitado por el número de bytes de
+ * los cuerpos guardados: al agregar una respuesta que excede el límite se
+ * expulsan las usadas hace más tiempo hasta bajar a
+ * 15/16 del límite.
+ *
+ * Las consultas no toman ningún bloqueo: las respuestas están en un
+ * ConcurrentHashMap y cada una guarda el instante de su último uso. Solo un
+ * hilo a la vez expulsa respuestas; los demás siguen sin esperarlo.
+ *
+ * Cada respuesta se guarda con los valores de los contadores de
+ * modificación de los que depende, tomados antes de generarla; si al
+ * consultarla los contadores cambiaron, la respuesta se descarta.
+ *
+ * El límite se configura con la propiedad de sistema
+ * {@value #MAX_BYTES_PROPERTY}; con 0 no se guardan respuestas.
+ */
+public final class ResponseCache {
+
+    /**
+     * Propiedad de sistema con el número máximo de bytes de cuerpos que se
+     * guardan.
+     */
+    public static final String MAX_BYTES_PROPERTY = "company.response-cache.max-bytes";
+
+    private static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    /**
+     * Fracción del límite que puede ocupar una sola respuesta, para que una
+     * colección grande no expulse todas las demás.
+     */
+    private static final int MAX_ENTRY_FRACTION = 16;
+
+    /**
+     * Dieciseisavos del límite hasta los que se expulsa, para no ordenar las
+     * respuestas en cada inserción.
+     */
+    private static final int LOW_WATER_FRACTION = 15;
+
+    private static final long MAX_BYTES = Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES);
+
+    private static final ConcurrentMap<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+    private static final AtomicLong BYTES = new AtomicLong();
+
+    private static final ReentrantLock EVICTION = new ReentrantLock();
+
+    private static final LongAdder HITS = new LongAdder();
+
+    private static final LongAdder MISSES = new LongAdder();
+
+    private static final LongAdder INVALIDATIONS = new LongAdder();
+
+    private static final LongAdder EVICTIONS = new LongAdder();
+
+    private static final Comparator<Candidate> LEAST_RECENTLY_USED = new Comparator<Candidate>() {
+        @Override
+        public int compare(Candidate a, Candidate b) {
+            return Long.compare(a.lastAccess - b.lastAccess, 0);
+        }
+    };
+
+    private ResponseCache() {
+    }
+
+    /**
+     * @return true si se guardan respuestas.
+     */
+    static boolean isEnabled() {
+        return MAX_BYTES > 0;
+    }
+
+    /**
+     * @return tamaño máximo en bytes del cuerpo de una respuesta guardada.
+     */
+    static long maxEntryBytes() {
+        return MAX_BYTES / MAX_ENTRY_FRACTION;
+    }
+
+    /**
+     * Busca una respuesta guardada que siga vigente.
+     *
+     * @param key llave de la petición.
+     * @param stamps valores actuales de los contadores de los que depende.
+     * @return la respuesta guardada, o null si no hay o ya no es vigente.
+     */
+    static Entry get(String key, long[] stamps) {
+        Entry entry = ENTRIES.get(key);
+        if (entry != null && !Arrays.equals(entry.stamps, stamps)) {
+            if (remove(key, entry)) {
+                INVALIDATIONS.increment();
+            }
+            entry = null;
+        }
+        if (entry == null) {
+            MISSES.increment();
+        } else {
+            entry.lastAccess = System.nanoTime();
+            HITS.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * Guarda una respuesta y expulsa las menos usadas si se excede el límite.
+     *
+     * @param key llave de la petición.
+     * @param entry respuesta a guardar.
+     */
+    static void put(String key, Entry entry) {
+        if (entry.body.length > maxEntryBytes()) {
+            return;
+        }
+        Entry previous = ENTRIES.put(key, entry);
+        BYTES.addAndGet(entry.body.length - (previous == null ? 0 : previous.body.length));
+        while (BYTES.get() > MAX_BYTES && EVICTION.tryLock()) {
+            try {
+                evict();
+            } finally {
+                EVICTION.unlock();
+            }
+        }
+    }
+
+    /**
+     * Expulsa las respuestas usadas hace más tiempo hasta bajar del límite.
+     */
+    private static void evict() {
+        List<Candidate> candidates = new ArrayList<>(ENTRIES.size());
+        for (Map.Entry<String, Entry> entry : ENTRIES.entrySet()) {
+            candidates.add(new Candidate(entry.getKey(), entry.getValue()));
+        }
+        Collections.sort(candidates, LEAST_RECENTLY_USED);
+        long target = MAX_BYTES / 16 * LOW_WATER_FRACTION;
+        for (int i = 0; i < candidates.size() && BYTES.get() > target; i++) {
+            Candidate candidate = candidates.get(i);
+            if (remove(candidate.key, candidate.entry)) {
+                EVICTIONS.increment();
+            }
+        }
+    }
+
+    /**
+     * Obtiene una copia de los contadores del almacén.
+     *
+     * @return contadores del almacén.
+     */
+    public static Statistics snapshot() {
+        return new Statistics(HITS.sum(), MISSES.sum(), INVALIDATIONS.sum(), EVICTIONS.sum(),
+                ENTRIES.size(), BYTES.get(), MAX_BYTES);
+    }
+
+    /**
+     * Quita una respuesta si sigue guardada con esa llave.
+     *
+     * @return true si se quitó.
+     */
+    private static boolean remove(String key, Entry entry) {
+        if (ENTRIES.remove(key, entry)) {
+            BYTES.addAndGet(-entry.body.length);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Respuesta que se puede expulsar, con el instante de su último uso
+     * leído una sola vez para ordenarlas.
+     */
+    private static final class Candidate {
+
+        private final String key;
+        private final Entry entry;
+        private final long lastAccess;
+
+        Candidate(String key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = entry.lastAccess;
+        }
+    }
+
+    /**
+     * Respuesta guardada: cuerpo serializado, headers que se repiten al
+     * servirla y contadores con los que se generó.
+     */
+    static final class Entry {
+
+        private final long[] stamps;
+
+        private final byte[] body;
+
+        private final Map<String, String> headers;
+
+        /**
+         * Instante ({@link System#nanoTime()}) del último uso.
+         */
+        private volatile long lastAccess = System.nanoTime();
+
+        Entry(long[] stamps, byte[] body, Map<String, String> headers) {
+            this.stamps = stamps;
+            this.body = body;
+            this.headers = Collections.unmodifiableMap(headers);
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+
+        Map<String, String> getHeaders() {
+            return headers;
+        }
+    }
+
+    /**
+     * Copia de los contadores del almacén en un momento dado.
+     */
+    public static final class Statistics {
+
+        private final long hits;
+        private final long misses;
+        private final long invalidations;
+        private final long evictions;
+        private final int entries;
+        private final long bytes;
+        private final long maxBytes;
+
+        Statistics(long hits, long misses, long invalidations, long evictions, int entries, long bytes, long maxBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.invalidations = invalidations;
+            this.evictions = evictions;
+            this.entries = entries;
+            this.bytes = bytes;
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * @return peticiones respondidas con una respuesta guardada.
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return peticiones sin respuesta guardada vigente.
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return respuestas descartadas porque sus datos cambiaron.
+         */
+        public long getInvalidations() {
+            return invalidations;
+        }
+
+        /**
+         * @return respuestas expulsadas por exceder el límite de bytes.
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * @return número de respuestas guardadas.
+         */
+        public int getEntries() {
+            return entries;
+        }
+
+        /**
+         * @return bytes de los cuerpos guardados.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return límite de bytes de los cuerpos guardados.
+         */
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.filters;
+
+import co.edu.uniandes.csw.company.persistence.ModificationStamps;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+/**
+ * Guarda el JSON serializado de las respuestas 200 de los GET sobre
+ * /companies y /employees, y lo sirve sin ejecutar el recurso mientras no
+ * cambien los datos de los que depende.
+ *
+ * La llave es la ruta, la consulta y el header Accept de la petición. Cada
+ * ruta depende de contadores de {@link ModificationStamps}: /employees de
+ * los employees, /companies y /companies/name de los companies,
+ * /companies/{id} de los departments del company y las rutas debajo de él
+ * además de los employees. Los contadores se leen antes de ejecutar el
+ * recurso, así una escritura concurrente deja la respuesta guardada con
+ * contadores ya vencidos.
+ */
+@Provider
+public class ResponseCacheFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    private static final String KEY_PROPERTY = ResponseCacheFilter.class.getName() + ".key";
+
+    private static final String STAMPS_PROPERTY = ResponseCacheFilter.class.getName() + ".stamps";
+
+    private static final String HEADERS_PROPERTY = ResponseCacheFilter.class.getName() + ".headers";
+
+    /**
+     * Headers de la respuesta que se guardan junto con el cuerpo.
+     */
+    private static final String[] CACHED_HEADERS = {
+        HttpHeaders.CONTENT_TYPE, HttpHeaders.ETAG, "Link", "X-Next-Cursor"
+    };
+
+    /**
+     * Los filtros los crea JAX-RS y no reciben inyección de EJBs: los
+     * contadores se buscan por JNDI la primera vez que se usan.
+     */
+    private volatile ModificationStamps stamps;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        if (!ResponseCache.isEnabled() || !HttpMethod.GET.equals(request.getMethod())) {
+            return;
+        }
+        long[] current = stamps(stamps(), request.getUriInfo().getPath());
+        if (current == null) {
+            return;
+        }
+        String key = key(request);
+        ResponseCache.Entry entry = ResponseCache.get(key, current);
+        if (entry == null) {
+            request.setProperty(KEY_PROPERTY, key);
+            request.setProperty(STAMPS_PROPERTY, current);
+            return;
+        }
+        String etag = entry.getHeaders().get(HttpHeaders.ETAG);
+        if (etag != null) {
+            EntityTag tag = EntityTag.valueOf(etag);
+            ResponseBuilder notModified = request.getRequest().evaluatePreconditions(tag);
+            if (notModified != null) {
+                request.abortWith(notModified.tag(tag).build());
+                return;
+            }
+        }
+        ResponseBuilder builder = Response.ok(entry.getBody());
+        for (Map.Entry<String, String> header : entry.getHeaders().entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        request.abortWith(builder.build());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        if (request.getProperty(KEY_PROPERTY) == null) {
+            return;
+        }
+        if (response.getStatus() != Response.Status.OK.getStatusCode() || !response.hasEntity()) {
+            request.removeProperty(KEY_PROPERTY);
+            return;
+        }
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String name : CACHED_HEADERS) {
+            String value = response.getHeaderString(name);
+            if (value != null) {
+                headers.put(name, value);
+            }
+        }
+        request.setProperty(HEADERS_PROPERTY, headers);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        String key = (String) context.getProperty(KEY_PROPERTY);
+        Map<String, String> headers = (Map<String, String>) context.getProperty(HEADERS_PROPERTY);
+        if (key == null || headers == null) {
+            context.proceed();
+            return;
+        }
+        CapturingOutputStream capture = new CapturingOutputStream(context.getOutputStream(), ResponseCache.maxEntryBytes());
+        context.setOutputStream(capture);
+        context.proceed();
+        byte[] body = capture.toByteArray();
+        if (body != null) {
+            ResponseCache.put(key, new ResponseCache.Entry((long[]) context.getProperty(STAMPS_PROPERTY), body, headers));
+        }
+    }
+
+    private ModificationStamps stamps() {
+        if (stamps == null) {
+            try {
+                stamps = InitialContext.doLookup("java:module/ModificationStamps");
+            } catch (NamingException e) {
+                throw new IllegalStateException("No se encontraron los contadores de modificación", e);
+            }
+        }
+        return stamps;
+    }
+
+    /**
+     * Obtiene los contadores de los que depende una ruta.
+     *
+     * @param stamps contadores de modificación.
+     * @param path ruta relativa a la aplicación.
+     * @return valores actuales de los contadores, o null si la ruta no se
+     * guarda.
+     */
+    private static long[] stamps(ModificationStamps stamps, String path) {
+        String[] segments = path.startsWith("/") ? path.substring(1).split("/") : path.split("/");
+        if ("employees".equals(segments[0])) {
+            if (segments.length > 1 && "stream".equals(segments[1])) {
+                return null;
+            }
+            return new long[]{stamps.employees()};
+        }
+        if (!"companies".equals(segments[0])) {
+            return null;
+        }
+        if (segments.length == 1 || !segments[1].matches("\\d+")) {
+            return new long[]{stamps.companies()};
+        }
+        Long companyId = Long.valueOf(segments[1]);
+        if (segments.length == 2) {
+            return new long[]{stamps.departments(companyId)};
+        }
+        return new long[]{stamps.departments(companyId), stamps.employees()};
+    }
+
+    private static String key(ContainerRequestContext request) {
+        String query = request.getUriInfo().getRequestUri().getRawQuery();
+        String accept = request.getHeaderString(HttpHeaders.ACCEPT);
+        return request.getUriInfo().getPath()
+                + (query == null ? "" : "?" + query)
+                + (accept == null ? "" : " " + accept);
+    }
+
+    /**
+     * Copia lo que se escribe en la respuesta hasta un tamaño máximo; si se
+     * excede, deja de copiar y la respuesta no se guarda.
+     */
+    private static final class CapturingOutputStream extends FilterOutputStream {
+
+        private final long maxBytes;
+
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        CapturingOutputStream(OutputStream out, long maxBytes) {
+            super(out);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (capture(1)) {
+                copy.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (capture(len)) {
+                copy.write(b, off, len);
+            }
+        }
+
+        private boolean capture(int len) {
+            if (copy != null && copy.size() + len > maxBytes) {
+                copy = null;
+            }
+            return copy != null;
+        }
+
+        byte[] toByteArray() {
+            return copy == null ? null : copy.toByteArray();
+        }
+    }
+}
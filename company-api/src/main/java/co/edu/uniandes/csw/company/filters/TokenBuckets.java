@@ -0,0 +1,262 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.filters;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token buckets de un grupo de rutas, uno por cliente. Cada bucket es un
+ * solo long con el instante teórico en que el bucket vuelve a estar lleno
+ * (GCRA), que se actualiza con compareAndSet; así admitir una petición no
+ * toma locks ni reserva memoria, salvo la primera vez que se ve un cliente.
+ *
+ * La tasa y la ráfaga de cada grupo se configuran con las propiedades de
+ * sistema company.ratelimit.&lt;grupo&gt;.rate (peticiones por segundo, 0
+ * para no limitar el grupo) y .burst; los grupos sin valor propio usan
+ * company.ratelimit.default.*. Los buckets llenos se descartan cuando hay
+ * más de {@value #MAX_CLIENTS_PROPERTY} clientes.
+ */
+public final class TokenBuckets {
+
+    /**
+     * Propiedad de sistema con el número de clientes por grupo a partir del
+     * cual se descartan los buckets llenos.
+     */
+    public static final String MAX_CLIENTS_PROPERTY = "company.ratelimit.max-clients";
+
+    private static final int MAX_CLIENTS = Integer.getInteger(MAX_CLIENTS_PROPERTY, 100000);
+
+    private static final long SWEEP_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private static final ConcurrentMap<String, TokenBuckets> GROUPS = new ConcurrentSkipListMap<>();
+
+    private final String name;
+    private final int rate;
+    private final int burst;
+    /**
+     * Tiempo entre dos tokens, en nanosegundos.
+     */
+    private final long interval;
+    /**
+     * Tiempo que tarda en llenarse el bucket vacío.
+     */
+    private final long capacity;
+    private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder limited = new LongAdder();
+    private volatile long lastSweep = System.nanoTime();
+
+    private TokenBuckets(String name) {
+        this.name = name;
+        this.rate = Math.max(0, property(name, "rate", 100));
+        this.burst = Math.max(1, property(name, "burst", 200));
+        this.interval = rate == 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / rate;
+        this.capacity = interval * burst;
+    }
+
+    /**
+     * Obtiene los buckets de un grupo de rutas, creándolos la primera vez.
+     *
+     * @param name nombre del grupo.
+     * @return buckets del grupo.
+     */
+    public static TokenBuckets of(String name) {
+        TokenBuckets group = GROUPS.get(name);
+        if (group == null) {
+            TokenBuckets created = new TokenBuckets(name);
+            group = GROUPS.putIfAbsent(name, created);
+            if (group == null) {
+                group = created;
+            }
+        }
+        return group;
+    }
+
+    /**
+     * @return true si el grupo tiene una tasa.
+     */
+    public boolean isLimited() {
+        return rate > 0;
+    }
+
+    /**
+     * @return número máximo de peticiones seguidas de un cliente.
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Toma un token del bucket de un cliente.
+     *
+     * @param client identificador del cliente.
+     * @param now instante actual, de {@link System#nanoTime()}.
+     * @return si se admite la petición, el tiempo en nanosegundos hasta que
+     * el bucket vuelva a estar lleno, que es 0 o positivo; si no, menos el
+     * tiempo hasta el siguiente token.
+     */
+    public long tryAcquire(String client, long now) {
+        AtomicLong bucket = buckets.get(client);
+        if (bucket == null) {
+            bucket = bucket(client, now);
+        }
+        while (true) {
+            long full = bucket.get();
+            long next = Math.max(full, now) + interval;
+            if (next - now > capacity) {
+                limited.increment();
+                return -Math.max(1, next - now - capacity);
+            }
+            if (bucket.compareAndSet(full, next)) {
+                allowed.increment();
+                return next - now;
+            }
+        }
+    }
+
+    /**
+     * Calcula los tokens que quedan en un bucket.
+     *
+     * @param untilFull tiempo hasta que el bucket vuelva a estar lleno, como
+     * lo retorna {@link #tryAcquire(String, long)}.
+     * @return tokens disponibles.
+     */
+    public int remaining(long untilFull) {
+        return (int) ((capacity - untilFull) / interval);
+    }
+
+    private AtomicLong bucket(String client, long now) {
+        if (buckets.size() >= MAX_CLIENTS && now - lastSweep > SWEEP_INTERVAL) {
+            sweep(now);
+        }
+        AtomicLong created = new AtomicLong(now);
+        AtomicLong bucket = buckets.putIfAbsent(client, created);
+        return bucket == null ? created : bucket;
+    }
+
+    /**
+     * Descarta los buckets que ya se llenaron: volver a crearlos da el mismo
+     * resultado.
+     */
+    private void sweep(long now) {
+        lastSweep = now;
+        for (Iterator<Map.Entry<String, AtomicLong>> it = buckets.entrySet().iterator(); it.hasNext();) {
+            if (it.next().getValue().get() - now <= 0) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Obtiene los contadores de todos los grupos, ordenados por nombre.
+     *
+     * @return contadores de cada grupo.
+     */
+    public static List<Statistics> snapshot() {
+        List<Statistics> list = new ArrayList<>();
+        for (TokenBuckets group : GROUPS.values()) {
+            list.add(new Statistics(group.name, group.rate, group.burst, group.buckets.size(),
+                    group.allowed.sum(), group.limited.sum()));
+        }
+        return list;
+    }
+
+    private static int property(String name, String suffix, int defaultValue) {
+        return Integer.getInteger("company.ratelimit." + name + "." + suffix,
+                Integer.getInteger("company.ratelimit.default." + suffix, defaultValue));
+    }
+
+    /**
+     * Contadores de un grupo de rutas en un momento dado.
+     */
+    public static final class Statistics {
+
+        private final String name;
+        private final int rate;
+        private final int burst;
+        private final int clients;
+        private final long allowed;
+        private final long limited;
+
+        Statistics(String name, int rate, int burst, int clients, long allowed, long limited) {
+            this.name = name;
+            this.rate = rate;
+            this.burst = burst;
+            this.clients = clients;
+            this.allowed = allowed;
+            this.limited = limited;
+        }
+
+        /**
+         * @return nombre del grupo.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return peticiones por segundo de cada cliente.
+         */
+        public int getRate() {
+            return rate;
+        }
+
+        /**
+         * @return número máximo de peticiones seguidas de un cliente.
+         */
+        public int getBurst() {
+            return burst;
+        }
+
+        /**
+         * @return clientes con bucket.
+         */
+        public int getClients() {
+            return clients;
+        }
+
+        /**
+         * @return peticiones admitidas.
+         */
+        public long getAllowed() {
+            return allowed;
+        }
+
+        /**
+         * @return peticiones rechazadas con 429.
+         */
+        public long getLimited() {
+            return limited;
+        }
+    }
+}
@@ -7,6 +7,7 @@ package co.edu.uniandes.csw.company.mappers;
 
 
 import co.edu.uniandes.csw.company.exceptions.BusinessLogicException;
+import co.edu.uniandes.csw.company.util.Metrics;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ExceptionMapper;
 import javax.ws.rs.ext.Provider;
@@ -25,6 +26,7 @@ public class BusinessLogicExceptionMapper implements ExceptionMapper<BusinessLog
 	 */
 	@Override
 	public Response toResponse(BusinessLogicException ex) {
+		Metrics.of(Metrics.EXCEPTION_MAPPERS).increment("BusinessLogicExceptionMapper");
 		// retorna una respuesta
 		return Response
 				.status(Response.Status.NOT_FOUND)	// estado HTTP 404
@@ -1,5 +1,8 @@
 package co.edu.uniandes.csw.company.mappers;
 
+import co.edu.uniandes.csw.company.persistence.QueryTimeouts;
+import co.edu.uniandes.csw.company.util.Deadline;
+import co.edu.uniandes.csw.company.util.Metrics;
 import javax.ejb.EJBException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -9,8 +12,35 @@ import javax.ws.rs.ext.Provider;
 @Provider
 public class EJBExceptionMapper implements ExceptionMapper<EJBException> {
 
+    /**
+     * Las fallas de bloqueo optimista (JPA o EclipseLink) indican que la
+     * entidad cambió después de la versión que envió el cliente y se
+     * responden con 412.
+     */
+    private static final String OPTIMISTIC_LOCK_EXCEPTION = "OptimisticLockException";
+
     @Override
     public Response toResponse(EJBException exception) {
+        Metrics.of(Metrics.EXCEPTION_MAPPERS).increment("EJBExceptionMapper");
+        if (QueryTimeouts.isTimeout(exception)) {
+            // Consulta cancelada por el plazo de la petición (ver Deadline).
+            Deadline deadline = Deadline.current();
+            if (deadline != null) {
+                deadline.cancelled();
+            }
+            return Response.status(Response.Status.GATEWAY_TIMEOUT)
+                    .entity("Se venció el plazo de la petición")
+                    .type(MediaType.TEXT_PLAIN_TYPE)
+                    .build();
+        }
+        for (Throwable cause = exception; cause != null && cause != cause.getCause(); cause = cause.getCause()) {
+            if (OPTIMISTIC_LOCK_EXCEPTION.equals(cause.getClass().getSimpleName())) {
+                return Response.status(Response.Status.PRECONDITION_FAILED)
+                        .entity("El recurso cambió después de la versión enviada")
+                        .type(MediaType.TEXT_PLAIN_TYPE)
+                        .build();
+            }
+        }
         return Response.serverError()
                 .entity(getInitCause(exception).getLocalizedMessage())
                 .type(MediaType.TEXT_PLAIN_TYPE)
@@ -18,16 +48,16 @@ public class EJBExceptionMapper implements ExceptionMapper<EJBException> {
     }
 
     /**
-     * Recursively retrieves the root cause of an exception.
+     * Retrieves the root cause of an exception.
      *
      * @param e Thrown exception
      * @return Root cause
      */
     private Throwable getInitCause(Throwable e) {
-        if (e.getCause() != null) {
-            return getInitCause(e.getCause());
-        } else {
-            return e;
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
         }
+        return cause;
     }
 }
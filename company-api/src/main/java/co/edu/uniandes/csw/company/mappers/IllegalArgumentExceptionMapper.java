@@ -1,5 +1,6 @@
 package co.edu.uniandes.csw.company.mappers;
 
+import co.edu.uniandes.csw.company.util.Metrics;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ExceptionMapper;
@@ -10,6 +11,7 @@ public class IllegalArgumentExceptionMapper implements ExceptionMapper<IllegalAr
 
     @Override
     public Response toResponse(IllegalArgumentException exception) {
+        Metrics.of(Metrics.EXCEPTION_MAPPERS).increment("IllegalArgumentExceptionMapper");
         return Response.status(Response.Status.NOT_FOUND)
                 .entity(getInitCause(exception).getLocalizedMessage())
                 .type(MediaType.TEXT_PLAIN_TYPE)
@@ -17,16 +19,16 @@ public class IllegalArgumentExceptionMapper implements ExceptionMapper<IllegalAr
     }
 
     /**
-     * Recursively retrieves the root cause of an exception.
+     * Retrieves the root cause of an exception.
      *
      * @param e Thrown exception
      * @return Root cause
      */
     private Throwable getInitCause(Throwable e) {
-        if (e.getCause() != null) {
-            return getInitCause(e.getCause());
-        } else {
-            return e;
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
         }
+        return cause;
     }
 }
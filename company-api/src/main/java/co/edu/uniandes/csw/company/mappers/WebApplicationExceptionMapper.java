@@ -1,5 +1,6 @@
 package co.edu.uniandes.csw.company.mappers;
 
+import co.edu.uniandes.csw.company.util.Metrics;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ExceptionMapper;
@@ -19,7 +20,9 @@ public class WebApplicationExceptionMapper implements ExceptionMapper<WebApplica
      */
     @Override
     public Response toResponse(WebApplicationException ex) {
-        return Response.status(ex.getResponse().getStatus())
+        Metrics.of(Metrics.EXCEPTION_MAPPERS).increment("WebApplicationExceptionMapper");
+        // conserva los headers de la respuesta original, como Retry-After o Allow
+        return Response.fromResponse(ex.getResponse())
                 .entity(ex.getMessage()) // mensaje adicional
                 .type("text/plain")
                 .build();
@@ -0,0 +1,364 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.resources;
+
+import co.edu.uniandes.csw.company.persistence.QueryTimeouts;
+import co.edu.uniandes.csw.company.util.Deadline;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Response;
+
+/**
+ * Grupos de hilos separados (bulkheads) en los que se ejecutan los servicios
+ * asíncronos: uno para las consultas puntuales, que son baratas, otro para
+ * las listas y reportes y otro para las escrituras. Así unas pocas listas
+ * lentas no ocupan los hilos HTTP del contenedor ni retrasan las consultas
+ * puntuales.
+ *
+ * Cada grupo tiene un número fijo de hilos, una cola limitada y un tiempo
+ * máximo de respuesta. Si la cola está llena se responde 503 de inmediato
+ * con Retry-After. Si se vence el tiempo de una tarea que aún no había
+ * empezado, ya no se ejecuta y también se responde 503 con Retry-After. Una
+ * tarea que ya empezó termina aunque se haya vencido su tiempo, por eso no
+ * se invita a repetirla: una consulta se responde 503 sin Retry-After y una
+ * escritura, que pudo hacer commit, 504.
+ *
+ * Si el cliente envió un plazo más corto ({@link Deadline}), ese es el
+ * tiempo máximo: al vencerse se responde 504, las tareas que aún no habían
+ * empezado se descartan y las consultas en curso se cancelan. Se responde
+ * 504 y no 503 para no reducir el límite de concurrencia por plazos que
+ * escoge el cliente.
+ *
+ * Los tamaños y tiempos se configuran con las propiedades de sistema
+ * company.bulkhead.&lt;grupo&gt;.threads, .queue y .timeout-ms. Con
+ * {@value #ASYNC_PROPERTY}=false los servicios se ejecutan en el hilo HTTP,
+ * como antes.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class Bulkheads {
+
+    /**
+     * Propiedad de sistema que activa la ejecución asíncrona.
+     */
+    public static final String ASYNC_PROPERTY = "company.async.enabled";
+
+    private static final Logger LOGGER = Logger.getLogger(Bulkheads.class.getName());
+
+    /**
+     * Grupos de hilos, con sus valores por defecto.
+     */
+    public enum Kind {
+        /**
+         * Consultas de un solo registro.
+         */
+        POINT_READS("point-reads", 16, 256, 5000),
+        /**
+         * Consultas de colecciones, resúmenes y exportaciones.
+         */
+        LIST_READS("list-reads", 4, 32, 30000),
+        /**
+         * Creaciones, actualizaciones y borrados.
+         */
+        WRITES("writes", 8, 128, 15000);
+
+        private final String name;
+        private final int threads;
+        private final int queue;
+        private final long timeoutMillis;
+
+        private Kind(String name, int threads, int queue, long timeoutMillis) {
+            this.name = name;
+            this.threads = threads;
+            this.queue = queue;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        /**
+         * @return nombre del grupo en las propiedades y las estadísticas.
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    @Resource(lookup = "java:comp/DefaultManagedThreadFactory")
+    private ManagedThreadFactory threadFactory;
+
+    private final boolean async = Boolean.parseBoolean(System.getProperty(ASYNC_PROPERTY, "true"));
+
+    private final Map<Kind, Pool> pools = new EnumMap<>(Kind.class);
+
+    @PostConstruct
+    public void init() {
+        for (Kind kind : Kind.values()) {
+            pools.put(kind, new Pool(kind, threadFactory));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Pool pool : pools.values()) {
+            pool.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Ejecuta un servicio en un grupo de hilos y completa la respuesta con
+     * su resultado, o con la excepción que lance.
+     *
+     * @param kind grupo en el que se ejecuta.
+     * @param response respuesta asíncrona de la petición.
+     * @param work servicio a ejecutar; su resultado es la entidad, o la
+     * Response, de la respuesta. Si es null se responde 204, como en los
+     * servicios síncronos sin retorno.
+     */
+    public void submit(Kind kind, final AsyncResponse response, final Callable<?> work) {
+        if (!async) {
+            run(response, work);
+            return;
+        }
+        final Pool pool = pools.get(kind);
+        pool.submitted.increment();
+        // El plazo del cliente queda en el hilo HTTP; se pasa al del grupo.
+        Deadline requested = Deadline.set(null);
+        final long timeout = property(kind, "timeout-ms", kind.timeoutMillis);
+        final Deadline deadline = requested == null ? Deadline.in(kind.name, timeout) : requested.atMost(timeout);
+        final boolean clientDeadline = requested != null && deadline == requested;
+        final boolean write = kind == Kind.WRITES;
+        // Lo marca el hilo del grupo al empezar la tarea, o el manejador del
+        // tiempo para que ya no empiece.
+        final AtomicBoolean claimed = new AtomicBoolean();
+        response.setTimeout(Math.max(1, deadline.remainingMillis()), TimeUnit.MILLISECONDS);
+        response.setTimeoutHandler(new TimeoutHandler() {
+            @Override
+            public void handleTimeout(AsyncResponse timedOut) {
+                deadline.timedOut();
+                boolean started = !claimed.compareAndSet(false, true);
+                if (clientDeadline) {
+                    timedOut.resume(new WebApplicationException("Se venció el plazo de la petición", Response.Status.GATEWAY_TIMEOUT));
+                    return;
+                }
+                pool.timeouts.increment();
+                if (!started) {
+                    timedOut.resume(new ServiceUnavailableException("El servidor no respondió a tiempo", 1L));
+                } else if (write) {
+                    timedOut.resume(new WebApplicationException("La escritura no terminó a tiempo; puede haberse completado",
+                            Response.Status.GATEWAY_TIMEOUT));
+                } else {
+                    timedOut.resume(new ServiceUnavailableException("El servidor no respondió a tiempo"));
+                }
+            }
+        });
+        try {
+            pool.executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!claimed.compareAndSet(false, true) || response.isDone()) {
+                        return;
+                    }
+                    if (deadline.isExpired()) {
+                        deadline.dropped();
+                        response.resume(new WebApplicationException("Se venció el plazo de la petición", Response.Status.GATEWAY_TIMEOUT));
+                        return;
+                    }
+                    Deadline previous = Deadline.set(deadline);
+                    try {
+                        Bulkheads.run(response, work);
+                    } finally {
+                        Deadline.set(previous);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pool.rejected.increment();
+            response.resume(new ServiceUnavailableException("El servidor está ocupado", 1L));
+        }
+    }
+
+    /**
+     * Obtiene los contadores de cada grupo de hilos.
+     *
+     * @return contadores de cada grupo.
+     */
+    public List<Statistics> statistics() {
+        List<Statistics> list = new ArrayList<>();
+        for (Pool pool : pools.values()) {
+            ThreadPoolExecutor executor = pool.executor;
+            list.add(new Statistics(pool.kind.name, executor.getMaximumPoolSize(), executor.getActiveCount(),
+                    executor.getQueue().size(), pool.capacity, pool.submitted.sum(),
+                    pool.rejected.sum(), pool.timeouts.sum()));
+        }
+        return list;
+    }
+
+    private static void run(AsyncResponse response, Callable<?> work) {
+        try {
+            Object result = work.call();
+            response.resume(result == null ? Response.noContent().build() : result);
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Error en servicio asíncrono", e);
+            Deadline deadline = Deadline.current();
+            if (deadline != null && QueryTimeouts.isTimeout(e)) {
+                deadline.cancelled();
+                response.resume(new WebApplicationException("Se venció el plazo de la petición", Response.Status.GATEWAY_TIMEOUT));
+            } else {
+                response.resume(e);
+            }
+        }
+    }
+
+    private static int property(Kind kind, String suffix, long defaultValue) {
+        return Integer.getInteger("company.bulkhead." + kind.name + "." + suffix, (int) defaultValue);
+    }
+
+    /**
+     * Grupo de hilos con sus contadores.
+     */
+    private static final class Pool {
+
+        private final Kind kind;
+        private final int capacity;
+        private final ThreadPoolExecutor executor;
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+
+        Pool(Kind kind, ManagedThreadFactory threadFactory) {
+            this.kind = kind;
+            this.capacity = property(kind, "queue", kind.queue);
+            int threads = property(kind, "threads", kind.threads);
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(capacity), threadFactory);
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    /**
+     * Contadores de un grupo de hilos en un momento dado.
+     */
+    public static final class Statistics {
+
+        private final String name;
+        private final int threads;
+        private final int active;
+        private final int queued;
+        private final int queueCapacity;
+        private final long submitted;
+        private final long rejected;
+        private final long timeouts;
+
+        Statistics(String name, int threads, int active, int queued, int queueCapacity, long submitted, long rejected, long timeouts) {
+            this.name = name;
+            this.threads = threads;
+            this.active = active;
+            this.queued = queued;
+            this.queueCapacity = queueCapacity;
+            this.submitted = submitted;
+            this.rejected = rejected;
+            this.timeouts = timeouts;
+        }
+
+        /**
+         * @return nombre del grupo.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return número máximo de hilos del grupo.
+         */
+        public int getThreads() {
+            return threads;
+        }
+
+        /**
+         * @return hilos ejecutando un servicio.
+         */
+        public int getActive() {
+            return active;
+        }
+
+        /**
+         * @return servicios esperando un hilo.
+         */
+        public int getQueued() {
+            return queued;
+        }
+
+        /**
+         * @return número máximo de servicios en espera.
+         */
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        /**
+         * @return servicios recibidos.
+         */
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        /**
+         * @return servicios rechazados porque la cola estaba llena.
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * @return servicios que no respondieron a tiempo.
+         */
+        public long getTimeouts() {
+            return timeouts;
+        }
+    }
+}
@@ -23,11 +23,13 @@ SOFTWARE.
  */
 package co.edu.uniandes.csw.company.resources;
 
+import java.net.URI;
 import java.util.List;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
@@ -38,10 +40,20 @@ import co.edu.uniandes.csw.company.api.ICompanyLogic;
 import co.edu.uniandes.csw.company.dtos.CompanyDetailDTO;
 import co.edu.uniandes.csw.company.entities.CompanyEntity;
 import co.edu.uniandes.csw.company.exceptions.BusinessLogicException;
+import co.edu.uniandes.csw.company.persistence.ModificationStamps;
 import java.util.ArrayList;
 import javax.inject.Inject;
+import java.util.concurrent.Callable;
 import javax.ws.rs.QueryParam;
-import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.UriInfo;
 
 @Path("/companies")
 @Consumes(MediaType.APPLICATION_JSON)
@@ -51,6 +63,12 @@ public class CompanyResource {
     @Inject
     private ICompanyLogic companyLogic;
 
+    @Inject
+    private ModificationStamps stamps;
+
+    @Inject
+    private Bulkheads bulkheads;
+
     /**
      * Convierte una lista de CompanyEntity a una lista de CompanyDetailDTO.
      *
@@ -67,93 +85,193 @@ public class CompanyResource {
     }
 
     /**
-     * Obtiene la lista de los registros de Company
+     * Obtiene la lista de los registros de Company. Si se envía after o limit
+     * la respuesta se pagina por id y el cursor de la siguiente página se
+     * retorna en los headers X-Next-Cursor y Link.
+     * La respuesta lleva un ETag de la colección; si el cliente envía
+     * If-None-Match con el ETag vigente se responde 304 sin consultarla.
      *
-     * @return Colección de objetos de CompanyDetailDTO
+     * @param after cursor opaco de la página anterior
+     * @param limit tamaño de la página
+     * @param ifNoneMatch header If-None-Match de la petición
+     * @param uriInfo información de la URI de la petición
+     * @param response respuesta asíncrona, con la colección de objetos de
+     * CompanyDetailDTO
      *
      */
     @GET
-    public List<CompanyDetailDTO> getCompanys() {
-
-        return listEntity2DTO(companyLogic.getCompanys());
+    public void getCompanys(@QueryParam("after") final String after, @QueryParam("limit") final Integer limit,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) final String ifNoneMatch,
+            @Context UriInfo uriInfo, @Suspended AsyncResponse response) {
+        final URI requestUri = uriInfo.getRequestUri();
+        bulkheads.submit(Bulkheads.Kind.LIST_READS, response, new Callable<Response>() {
+            @Override
+            public Response call() {
+                EntityTag tag = ETags.of(stamps.getEpoch(), stamps.companies());
+                ResponseBuilder notModified = ETags.notModified(ifNoneMatch, tag);
+                if (notModified != null) {
+                    return notModified.build();
+                }
+                if (!Pagination.isRequested(after, limit)) {
+                    return Response.ok(new GenericEntity<List<CompanyDetailDTO>>(listEntity2DTO(companyLogic.getCompanys())) {
+                    }).tag(tag).build();
+                }
+                int size = Pagination.limit(limit);
+                List<CompanyEntity> rows = companyLogic.getCompanys(Pagination.decodeCursor(after), size + 1);
+                List<CompanyDetailDTO> page = listEntity2DTO(Pagination.trim(rows, size));
+                return Pagination.addNextPage(Response.ok(new GenericEntity<List<CompanyDetailDTO>>(page) {
+                }), requestUri, rows, size).tag(tag).build();
+            }
+        });
     }
 
     /**
-     * Obtiene los datos de una instancia de Company a partir de su ID
+     * Obtiene los datos de una instancia de Company a partir de su ID. La
+     * respuesta lleva un ETag; si el cliente envía If-None-Match con el ETag
+     * actual se responde 304 consultando solo la versión del Company.
      *
      * @param id Identificador de la instancia a consultar
-     * @return Instancia de CompanyDetailDTO con los datos del Company
-     * consultado
+     * @param ifNoneMatch header If-None-Match de la petición
+     * @param response respuesta asíncrona, con la instancia de
+     * CompanyDetailDTO con los datos del Company consultado
      *
      */
     @GET
     @Path("{id: \\d+}")
-    public CompanyDetailDTO getCompany(@PathParam("id") Long id) {
-        return new CompanyDetailDTO(companyLogic.getCompany(id));
+    public void getCompany(@PathParam("id") final Long id,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) final String ifNoneMatch, @Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.POINT_READS, response, new Callable<Response>() {
+            @Override
+            public Response call() {
+                Long version = companyLogic.getCompanyVersion(id);
+                if (version == null) {
+                    throw new ResourceNotFoundException("La compañía no existe");
+                }
+                ResponseBuilder notModified = ETags.notModified(ifNoneMatch, ETags.of(version));
+                if (notModified != null) {
+                    return notModified.build();
+                }
+                CompanyEntity entity = companyLogic.getCompany(id);
+                if (entity == null) {
+                    throw new ResourceNotFoundException("La compañía no existe");
+                }
+                return Response.ok(new CompanyDetailDTO(entity)).tag(ETags.of(entity.getVersion())).build();
+            }
+        });
     }
 
     /**
      * Obtiene los datos de una instancia de Company a partir de su ID
      *
      * @param id Identificador de la instancia a consultar
-     * @return Instancia de CompanyDetailDTO con los datos del Company
-     * consultado
+     * @param response respuesta asíncrona, con la instancia de
+     * CompanyDetailDTO con los datos del Company consultado
      *
      */
     @GET
     @Path("name")
-    public CompanyDetailDTO getCompanyByName(@QueryParam("name") String name) {
-        CompanyEntity companyE = companyLogic.getCompanyByName(name);
-        if (companyE == null) {
-            throw new WebApplicationException("La compañía no existe", 404);
-        } else {
-            return new CompanyDetailDTO(companyE);
-        }
+    public void getCompanyByName(@QueryParam("name") final String name, @Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.POINT_READS, response, new Callable<CompanyDetailDTO>() {
+            @Override
+            public CompanyDetailDTO call() {
+                CompanyEntity companyE = companyLogic.getCompanyByName(name);
+                if (companyE == null) {
+                    throw new ResourceNotFoundException("La compañía no existe");
+                } else {
+                    return new CompanyDetailDTO(companyE);
+                }
+            }
+        });
     }
 
     /**
      * Se encarga de crear un Company en la base de datos
      *
      * @param dto Objeto de CompanyDetailDTO con los datos nuevos
-     * @return Objeto de CompanyDetailDTOcon los datos nuevos y su ID
+     * @param response respuesta asíncrona, con el objeto de
+     * CompanyDetailDTOcon los datos nuevos y su ID
      *
      */
     @POST
-    public CompanyDetailDTO createCompany(CompanyDetailDTO dto) throws BusinessLogicException {
-        return new CompanyDetailDTO(companyLogic.createCompany(dto.toEntity()));
+    public void createCompany(final CompanyDetailDTO dto, @Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.WRITES, response, new Callable<CompanyDetailDTO>() {
+            @Override
+            public CompanyDetailDTO call() throws BusinessLogicException {
+                return new CompanyDetailDTO(companyLogic.createCompany(dto.toEntity()));
+            }
+        });
     }
 
     /**
-     * Actualiza la información de una instancia de Company
+     * Actualiza la información de una instancia de Company. Si el cliente
+     * envía If-Match y el Company cambió después de ese ETag se responde 412.
      *
      * @param id Identificador de la instancia de Company a modificar
      * @param dto Instancia de CompanyDetailDTO con los nuevos datos
-     * @return Instancia de CompanyDetailDTO con los datos actualizados
+     * @param ifMatch header If-Match de la petición
+     * @param response respuesta asíncrona, con la instancia de
+     * CompanyDetailDTO con los datos actualizados
      *
      */
     @PUT
     @Path("{id: \\d+}")
-    public CompanyDetailDTO updateCompany(@PathParam("id") Long id, CompanyDetailDTO dto) {
-        CompanyEntity entity = dto.toEntity();
-        entity.setId(id);
-        return new CompanyDetailDTO(companyLogic.updateCompany(entity));
+    public void updateCompany(@PathParam("id") final Long id, final CompanyDetailDTO dto,
+            @HeaderParam(HttpHeaders.IF_MATCH) final String ifMatch, @Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.WRITES, response, new Callable<Response>() {
+            @Override
+            public Response call() {
+                Long version = companyLogic.getCompanyVersion(id);
+                if (!ETags.matches(ifMatch, version == null ? null : ETags.of(version))) {
+                    return Response.status(Response.Status.PRECONDITION_FAILED).build();
+                }
+                CompanyEntity entity = dto.toEntity();
+                entity.setId(id);
+                if (ifMatch != null) {
+                    entity.setVersion(version);
+                }
+                CompanyEntity updated = companyLogic.updateCompany(entity);
+                return Response.ok(new CompanyDetailDTO(updated)).tag(ETags.of(updated.getVersion())).build();
+            }
+        });
     }
 
     /**
      * Elimina una instancia de Company de la base de datos
      *
      * @param id Identificador de la instancia a eliminar
+     * @param response respuesta asíncrona, sin contenido
      *
      */
     @DELETE
     @Path("{id: \\d+}")
-    public void deleteCompany(@PathParam("id") Long id) {
-        companyLogic.deleteCompany(id);
+    public void deleteCompany(@PathParam("id") final Long id, @Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.WRITES, response, new Callable<Void>() {
+            @Override
+            public Void call() {
+                companyLogic.deleteCompany(id);
+                return null;
+            }
+        });
     }
 
+    /**
+     * Obtiene el número de employees de un Company
+     *
+     * @param id Identificador del Company
+     * @param response respuesta asíncrona, con el número de employees de
+     * todos los departments del Company, como texto plano, o 404 si el
+     * Company no existe
+     *
+     */
     @GET
     @Path("{id: \\d+}/numberofemployees")
-    public Integer getNumberOfEmployeesCompany(@PathParam("id") Long id) {
-        return companyLogic.getNumberOfEmployeesCompany(id);
+    @Produces(MediaType.TEXT_PLAIN)
+    public void getNumberOfEmployeesCompany(@PathParam("id") final Long id, @Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.POINT_READS, response, new Callable<Integer>() {
+            @Override
+            public Integer call() throws BusinessLogicException {
+                return companyLogic.getNumberOfEmployeesCompany(id);
+            }
+        });
     }
 }
@@ -23,7 +23,6 @@ SOFTWARE.
  */
 package co.edu.uniandes.csw.company.resources;
 
-import co.edu.uniandes.csw.company.api.ICompanyLogic;
 import java.util.List;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
@@ -35,14 +34,15 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
-import co.edu.uniandes.csw.company.api.IDepartmentLogic;
-import co.edu.uniandes.csw.company.api.IEmployeeLogic;
-import co.edu.uniandes.csw.company.dtos.CompanyDetailDTO;
-import co.edu.uniandes.csw.company.dtos.DepartmentDetailDTO;
+import co.edu.uniandes.csw.company.api.IDepartmentEmployeeFacade;
 import co.edu.uniandes.csw.company.dtos.EmployeeDetailDTO;
 import co.edu.uniandes.csw.company.entities.EmployeeEntity;
+import co.edu.uniandes.csw.company.exceptions.BusinessLogicException;
 import java.util.ArrayList;
-import javax.ws.rs.WebApplicationException;
+import java.util.concurrent.Callable;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.GenericEntity;
 
 @Path("/companies/{companyId: \\d+}/departments/{departmentId: \\d+}/employees")
 @Consumes(MediaType.APPLICATION_JSON)
@@ -55,13 +55,10 @@ public class DepartmentEmployeeResource {
     private Long departmentId;
 
     @Inject
-    private IDepartmentLogic departmentLogic;
+    private IDepartmentEmployeeFacade facade;
 
     @Inject
-    private ICompanyLogic companyLogic;
-
-    @Inject
-    private IEmployeeLogic employeeLogic;
+    private Bulkheads bulkheads;
 
     /**
      * Convierte una lista de EmployeeEntity a una lista de EmployeeDetailDTO.
@@ -93,34 +90,25 @@ public class DepartmentEmployeeResource {
         return list;
     }
 
-    public void existsCompany(Long companyId) {
-        CompanyDetailDTO company = new CompanyDetailDTO(companyLogic.getCompany(companyId));
-        if (company == null) {
-            throw new WebApplicationException(404);
-        }
-    }
-
-    public void existsDepartment(Long departmentId) {
-        DepartmentDetailDTO dept = new DepartmentDetailDTO(departmentLogic.getDepartment(departmentId));
-        if (dept == null) {
-            throw new WebApplicationException(404);
-        }
-    }
-
     /**
      * Obtiene una colección de instancias de EmployeeDetailDTO asociadas a una
      * instancia de Department
      *
      * @Param departmentId Identificador de la instancia de Department
-     * @return Colección de instancias de EmployeeDetailDTO asociadas a la
-     * instancia de Department
+     * @param response respuesta asíncrona, con la colección de instancias
+     * de EmployeeDetailDTO asociadas a la instancia de Department, o el
+     * error si el Company o el Department no existen
      *
      */
     @GET
-    public List<EmployeeDetailDTO> listEmployees() {
-        existsCompany(companyId);
-        existsDepartment(departmentId);
-        return employeesListEntity2DTO(departmentLogic.listEmployees(departmentId));
+    public void listEmployees(@Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.LIST_READS, response, new Callable<GenericEntity<List<EmployeeDetailDTO>>>() {
+            @Override
+            public GenericEntity<List<EmployeeDetailDTO>> call() throws BusinessLogicException {
+                return new GenericEntity<List<EmployeeDetailDTO>>(employeesListEntity2DTO(facade.listEmployees(companyId, departmentId))) {
+                };
+            }
+        });
     }
 
     /**
@@ -128,15 +116,20 @@ public class DepartmentEmployeeResource {
      *
      * @param departmentId Identificador de la instancia de Department
      * @param employeeId Identificador de la instancia de Employee
-     * @return la instancia de EmployeeDetailDTO
+     * @param response respuesta asíncrona, con la instancia de
+     * EmployeeDetailDTO, o el error si el Employee no pertenece al
+     * Department
      *
      */
     @GET
     @Path("{employeeId: \\d+}")
-    public EmployeeDetailDTO getEmployees(@PathParam("employeeId") Long employeeId) {
-        existsCompany(companyId);
-        existsDepartment(departmentId);
-        return new EmployeeDetailDTO(departmentLogic.getEmployee(departmentId, employeeId));
+    public void getEmployees(@PathParam("employeeId") final Long employeeId, @Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.POINT_READS, response, new Callable<EmployeeDetailDTO>() {
+            @Override
+            public EmployeeDetailDTO call() throws BusinessLogicException {
+                return new EmployeeDetailDTO(facade.getEmployee(companyId, departmentId, employeeId));
+            }
+        });
     }
 
     /**
@@ -144,19 +137,19 @@ public class DepartmentEmployeeResource {
      *
      * @param departmentId Identificador de la instancia de Department
      * @param employee instancia de Employee
-     * @return Instancia de EmployeeDetailDTO que fue asociada a Department
+     * @param response respuesta asíncrona, con la instancia de
+     * EmployeeDetailDTO que fue asociada a Department, o el error si el
+     * Employee no existe
      *
      */
     @POST
-    public EmployeeDetailDTO addEmployee(EmployeeDetailDTO employee) {
-        existsCompany(companyId);
-        existsDepartment(departmentId);
-        EmployeeEntity emp = employeeLogic.getEmployee(employee.getId());
-        if (emp != null) {
-            return new EmployeeDetailDTO(departmentLogic.addEmployee(departmentId, emp.getId()));
-        } else {
-            throw new WebApplicationException(404);
-        }
+    public void addEmployee(final EmployeeDetailDTO employee, @Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.WRITES, response, new Callable<EmployeeDetailDTO>() {
+            @Override
+            public EmployeeDetailDTO call() throws BusinessLogicException {
+                return new EmployeeDetailDTO(facade.addEmployee(companyId, departmentId, employee.getId()));
+            }
+        });
     }
 
     /**
@@ -166,15 +159,20 @@ public class DepartmentEmployeeResource {
      * @param departmentId Identificador de la instancia de Department
      * @param employees Colección de instancias de EmployeeDTO a asociar a
      * instancia de Department
-     * @return Nueva colección de EmployeeDTO asociada a la instancia de
-     * Department
+     * @param response respuesta asíncrona, con la nueva colección de
+     * EmployeeDTO asociada a la instancia de Department, o el error si algún
+     * Employee de la colección no existe
      *
      */
     @PUT
-    public List<EmployeeDetailDTO> replaceEmployees(List<EmployeeDetailDTO> employees) {
-        existsCompany(companyId);
-        existsDepartment(departmentId);
-        return employeesListEntity2DTO(departmentLogic.replaceEmployees(departmentId, employeesListDTO2Entity(employees)));
+    public void replaceEmployees(final List<EmployeeDetailDTO> employees, @Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.WRITES, response, new Callable<GenericEntity<List<EmployeeDetailDTO>>>() {
+            @Override
+            public GenericEntity<List<EmployeeDetailDTO>> call() throws BusinessLogicException {
+                return new GenericEntity<List<EmployeeDetailDTO>>(employeesListEntity2DTO(facade.replaceEmployees(companyId, departmentId, employeesListDTO2Entity(employees)))) {
+                };
+            }
+        });
     }
 
     /**
@@ -182,19 +180,19 @@ public class DepartmentEmployeeResource {
      *
      * @param departmentId Identificador de la instancia de Department
      * @param employeeId Identificador de la instancia de Employee
+     * @param response respuesta asíncrona, sin contenido, o el error si el
+     * Employee no existe
      *
      */
     @DELETE
     @Path("{employeeId: \\d+}")
-    public void removeEmployee(@PathParam("employeeId") Long employeeId) {
-        existsCompany(companyId);
-        existsDepartment(departmentId);
-        EmployeeEntity emp = employeeLogic.getEmployee(employeeId);
-        if (emp != null) {
-            departmentLogic.removeEmployee(departmentId, employeeId);
-        } else {
-            throw new WebApplicationException(404);
-        }
-
+    public void removeEmployee(@PathParam("employeeId") final Long employeeId, @Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.WRITES, response, new Callable<Void>() {
+            @Override
+            public Void call() throws BusinessLogicException {
+                facade.removeEmployee(companyId, departmentId, employeeId);
+                return null;
+            }
+        });
     }
 }
@@ -23,13 +23,14 @@ SOFTWARE.
  */
 package co.edu.uniandes.csw.company.resources;
 
-import co.edu.uniandes.csw.company.api.ICompanyLogic;
+import java.net.URI;
 import java.util.List;
 import javax.inject.Inject;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
@@ -37,15 +38,27 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import co.edu.uniandes.csw.company.api.IDepartmentLogic;
-import co.edu.uniandes.csw.company.dtos.CompanyDetailDTO;
 import co.edu.uniandes.csw.company.dtos.DepartmentDetailDTO;
 import co.edu.uniandes.csw.company.entities.DepartmentEntity;
 import co.edu.uniandes.csw.company.exceptions.BusinessLogicException;
 import co.edu.uniandes.csw.company.persistence.CompanyPersistence;
+import co.edu.uniandes.csw.company.persistence.ModificationStamps;
+import co.edu.uniandes.csw.company.projections.DepartmentSummary;
+import co.edu.uniandes.csw.company.projections.DepartmentVersion;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.UriInfo;
 
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
@@ -58,7 +71,10 @@ public class DepartmentResource {
     private IDepartmentLogic departmentLogic;
 
     @Inject
-    private ICompanyLogic companyLogic;
+    private ModificationStamps stamps;
+
+    @Inject
+    private Bulkheads bulkheads;
 
     @PathParam("companyId")
     private Long companyId;
@@ -79,108 +95,245 @@ public class DepartmentResource {
         return list;
     }
 
-    public void existsCompany(Long companyId) {
-        CompanyDetailDTO company = new CompanyDetailDTO(companyLogic.getCompany(companyId));
-        if (company == null) {
-            throw new WebApplicationException("La compañía no existe", 404);
-        }
+    public void existsCompany(Long companyId) throws BusinessLogicException {
+        departmentLogic.resolvePath(companyId, null);
     }
 
-    public void existsDepartment(Long departmentId) {
-        DepartmentDetailDTO department = new DepartmentDetailDTO(departmentLogic.getDepartment(departmentId));
-        if (department == null) {
-            throw new WebApplicationException("El Departamento no existe", 404);
-        }
+    public void existsDepartment(Long departmentId) throws BusinessLogicException {
+        departmentLogic.resolvePath(companyId, departmentId);
     }
 
     /**
      * Obtiene los datos de los Departments de una compañía a partir del ID de
-     * la Company
+     * la Company. Si se envía after o limit la respuesta se pagina por id y el
+     * cursor de la siguiente página se retorna en los headers X-Next-Cursor y
+     * Link.
+     * La respuesta lleva un ETag de la colección; si el cliente envía
+     * If-None-Match con el ETag vigente se responde 304 sin consultarla.
      *
+     * @param after cursor opaco de la página anterior
+     * @param limit tamaño de la página
+     * @param ifNoneMatch header If-None-Match de la petición
+     * @param uriInfo información de la URI de la petición
+     * @param response respuesta asíncrona, con la lista de
+     * DepartmentDetailDTO con los datos del Department consultado
+     *
+     */
+    @GET
+    public void getDepartments(@QueryParam("after") final String after, @QueryParam("limit") final Integer limit,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) final String ifNoneMatch,
+            @Context UriInfo uriInfo, @Suspended AsyncResponse response) {
+        final URI requestUri = uriInfo.getRequestUri();
+        bulkheads.submit(Bulkheads.Kind.LIST_READS, response, new Callable<Response>() {
+            @Override
+            public Response call() throws BusinessLogicException {
+                existsCompany(companyId);
+                EntityTag tag = ETags.of(stamps.getEpoch(), stamps.departments(companyId));
+                ResponseBuilder notModified = ETags.notModified(ifNoneMatch, tag);
+                if (notModified != null) {
+                    return notModified.build();
+                }
+                if (!Pagination.isRequested(after, limit)) {
+                    List<DepartmentEntity> departments = departmentLogic.getDepartments(companyId);
+                    return Response.ok(new GenericEntity<List<DepartmentDetailDTO>>(listEntity2DTO(departments)) {
+                    }).tag(tag).build();
+                }
+                int size = Pagination.limit(limit);
+                List<DepartmentEntity> rows = departmentLogic.getDepartments(companyId, Pagination.decodeCursor(after), size + 1);
+                List<DepartmentDetailDTO> page = listEntity2DTO(Pagination.trim(rows, size));
+                return Pagination.addNextPage(Response.ok(new GenericEntity<List<DepartmentDetailDTO>>(page) {
+                }), requestUri, rows, size).tag(tag).build();
+            }
+        });
+    }
+
+    /**
+     * Obtiene el resumen (id, name y company) de los Departments de una
+     * compañía con una consulta de proyección de solo lectura, sin cargar las
+     * entidades ni sus employees. Se pagina igual que la colección completa.
+     * La respuesta lleva un ETag de la colección; si el cliente envía
+     * If-None-Match con el ETag vigente se responde 304 sin consultarla.
      *
-     * @return Lista de DepartmentDetailDTO con los datos del Department
-     * consultado
+     * @param after cursor opaco de la página anterior
+     * @param limit tamaño de la página
+     * @param ifNoneMatch header If-None-Match de la petición
+     * @param uriInfo información de la URI de la petición
+     * @param response respuesta asíncrona, con la lista de
+     * DepartmentDetailDTO con el resumen de los Departments
      *
      */
     @GET
-    public List<DepartmentDetailDTO> getDepartments() {
-        existsCompany(companyId);
+    @Path("summary")
+    public void getDepartmentSummaries(@QueryParam("after") final String after, @QueryParam("limit") final Integer limit,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) final String ifNoneMatch,
+            @Context UriInfo uriInfo, @Suspended AsyncResponse response) {
+        final URI requestUri = uriInfo.getRequestUri();
+        bulkheads.submit(Bulkheads.Kind.LIST_READS, response, new Callable<Response>() {
+            @Override
+            public Response call() throws BusinessLogicException {
+                existsCompany(companyId);
+                EntityTag tag = ETags.of(stamps.getEpoch(), stamps.departments(companyId));
+                ResponseBuilder notModified = ETags.notModified(ifNoneMatch, tag);
+                if (notModified != null) {
+                    return notModified.build();
+                }
+                if (!Pagination.isRequested(after, limit)) {
+                    return Response.ok(new GenericEntity<List<DepartmentDetailDTO>>(summaries2DTO(departmentLogic.getDepartmentSummaries(companyId, null, null))) {
+                    }).tag(tag).build();
+                }
+                int size = Pagination.limit(limit);
+                List<DepartmentSummary> rows = departmentLogic.getDepartmentSummaries(companyId, Pagination.decodeCursor(after), size + 1);
+                List<DepartmentDetailDTO> page = summaries2DTO(Pagination.trim(rows, size));
+                Long lastId = rows.size() > size ? rows.get(size - 1).getId() : null;
+                return Pagination.addNextPage(Response.ok(new GenericEntity<List<DepartmentDetailDTO>>(page) {
+                }), requestUri, lastId, size).tag(tag).build();
+            }
+        });
+    }
 
-        List<DepartmentEntity> departments = departmentLogic.getDepartments(companyId);
+    /**
+     * Convierte una lista de DepartmentSummary a una lista de
+     * DepartmentDetailDTO
+     *
+     * @param summaries Lista de DepartmentSummary a convertir
+     * @return Lista de DepartmentDetailDTO convertida
+     *
+     */
+    private static List<DepartmentDetailDTO> summaries2DTO(List<DepartmentSummary> summaries) {
+        List<DepartmentDetailDTO> list = new ArrayList<>(summaries.size());
+        for (DepartmentSummary summary : summaries) {
+            list.add(new DepartmentDetailDTO(summary));
+        }
+        return list;
+    }
 
-        return listEntity2DTO(departments);
+    /**
+     * Obtiene el ETag actual de un Department, que depende también de su
+     * Company.
+     *
+     * @param departmentId Identificador del Department
+     * @return ETag del Department
+     * @throws BusinessLogicException si el Department no existe en el Company
+     */
+    private EntityTag departmentTag(Long departmentId) throws BusinessLogicException {
+        DepartmentVersion version = departmentLogic.getDepartmentVersion(companyId, departmentId);
+        if (version == null) {
+            existsDepartment(departmentId);
+            throw new ResourceNotFoundException("El Department no existe en la compañía");
+        }
+        return ETags.of(version.getVersion(), version.getCompanyVersion());
     }
 
     /**
      * Obtiene los datos de una instancia de Department a partir de su ID
-     * asociado a un Company
+     * asociado a un Company. La respuesta lleva un ETag; si el cliente envía
+     * If-None-Match con el ETag actual se responde 304 consultando solo las
+     * versiones.
      *
      * @param departmentId Identificador de la instancia a consultar
-     * @return Instancia de DepartmentDetailDTO con los datos del Department
-     * consultado
+     * @param ifNoneMatch header If-None-Match de la petición
+     * @param response respuesta asíncrona, con la instancia de
+     * DepartmentDetailDTO con los datos del Department consultado
      *
      */
     @GET
     @Path("{departmentId: \\d+}")
-    public DepartmentDetailDTO getDepartment(@PathParam("departmentId") Long departmentId) {
-        existsCompany(companyId);
+    public void getDepartment(@PathParam("departmentId") final Long departmentId,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) final String ifNoneMatch, @Suspended AsyncResponse response) {
         LOGGER.log(Level.INFO, "Consultando company con companyId = {0}", companyId);
-        DepartmentEntity entity = departmentLogic.getDepartment(departmentId);
-        LOGGER.log(Level.INFO, "Consultando company con id = {0}", entity.getCompany().getId());
-        if (entity.getCompany() != null && !companyId.equals(entity.getCompany().getId())) {
-            throw new WebApplicationException(404);
-        }
-
-        return new DepartmentDetailDTO(entity);
+        bulkheads.submit(Bulkheads.Kind.POINT_READS, response, new Callable<Response>() {
+            @Override
+            public Response call() throws BusinessLogicException {
+                ResponseBuilder notModified = ETags.notModified(ifNoneMatch, departmentTag(departmentId));
+                if (notModified != null) {
+                    return notModified.build();
+                }
+                DepartmentEntity entity = departmentLogic.getDepartment(departmentId);
+                return Response.ok(new DepartmentDetailDTO(entity))
+                        .tag(ETags.of(entity.getVersion(), entity.getCompany().getVersion()))
+                        .build();
+            }
+        });
     }
 
     /**
      * Asocia un Department existente a un Company
      *
      * @param dto Objeto de DepartmentDetailDTO con los datos nuevos
-     * @return Objeto de DepartmentDetailDTOcon los datos nuevos y su ID.
+     * @param response respuesta asíncrona, con el objeto de
+     * DepartmentDetailDTOcon los datos nuevos y su ID.
      *
      */
     @POST
-    public DepartmentDetailDTO createDepartment(DepartmentDetailDTO dto) throws BusinessLogicException {
-        existsCompany(companyId);
-        return new DepartmentDetailDTO(departmentLogic.createDepartment(companyId, dto.toEntity()));
+    public void createDepartment(final DepartmentDetailDTO dto, @Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.WRITES, response, new Callable<DepartmentDetailDTO>() {
+            @Override
+            public DepartmentDetailDTO call() throws BusinessLogicException {
+                existsCompany(companyId);
+                return new DepartmentDetailDTO(departmentLogic.createDepartment(companyId, dto.toEntity()));
+            }
+        });
     }
 
     /**
-     * Actualiza la información de una instancia de Department.
+     * Actualiza la información de una instancia de Department. Si el cliente
+     * envía If-Match y el Department cambió después de ese ETag se responde
+     * 412.
      *
      * @param departmentId Identificador de la instancia de Department a
      * modificar
      * @param dto Instancia de DepartmentDetailDTO con los nuevos datos.
-     * @return Instancia de DepartmentDetailDTO con los datos actualizados.
+     * @param ifMatch header If-Match de la petición
+     * @param response respuesta asíncrona, con la instancia de
+     * DepartmentDetailDTO con los datos actualizados.
      *
      */
     @PUT
     @Path("{departmentId: \\d+}")
-    public DepartmentDetailDTO updateDepartment(@PathParam("departmentId") Long departmentId, DepartmentDetailDTO dto) {
-        existsCompany(companyId);
-        existsDepartment(departmentId);
-        DepartmentEntity entity = dto.toEntity();
-        entity.setId(departmentId);
-        DepartmentEntity oldEntity = departmentLogic.getDepartment(departmentId);
-        entity.setEmployees(oldEntity.getEmployees());
-        return new DepartmentDetailDTO(departmentLogic.updateDepartment(companyId, entity));
+    public void updateDepartment(@PathParam("departmentId") final Long departmentId, final DepartmentDetailDTO dto,
+            @HeaderParam(HttpHeaders.IF_MATCH) final String ifMatch, @Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.WRITES, response, new Callable<Response>() {
+            @Override
+            public Response call() throws BusinessLogicException {
+                DepartmentVersion version = departmentLogic.getDepartmentVersion(companyId, departmentId);
+                if (version == null) {
+                    existsDepartment(departmentId);
+                    throw new ResourceNotFoundException("El Department no existe en la compañía");
+                }
+                if (!ETags.matches(ifMatch, ETags.of(version.getVersion(), version.getCompanyVersion()))) {
+                    return Response.status(Response.Status.PRECONDITION_FAILED).build();
+                }
+                DepartmentEntity entity = dto.toEntity();
+                entity.setId(departmentId);
+                if (ifMatch != null) {
+                    entity.setVersion(version.getVersion());
+                }
+                DepartmentEntity oldEntity = departmentLogic.getDepartment(departmentId);
+                entity.setEmployees(oldEntity.getEmployees());
+                DepartmentDetailDTO updated = new DepartmentDetailDTO(departmentLogic.updateDepartment(companyId, entity));
+                return Response.ok(updated).tag(departmentTag(departmentId)).build();
+            }
+        });
     }
 
     /**
      * Elimina una instancia de Department de la base de datos.
      *
      * @param departmentId Identificador de la instancia a eliminar.
+     * @param response respuesta asíncrona, sin contenido
      *
      */
     @DELETE
     @Path("{departmentId: \\d+}")
-    public void deleteDepartment(@PathParam("departmentId") Long departmentId) {
-
-        existsCompany(companyId);
-        existsDepartment(departmentId);
-        departmentLogic.deleteDepartment(departmentId);
+    public void deleteDepartment(@PathParam("departmentId") final Long departmentId, @Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.WRITES, response, new Callable<Void>() {
+            @Override
+            public Void call() throws BusinessLogicException {
+                existsDepartment(departmentId);
+                departmentLogic.deleteDepartment(departmentId);
+                return null;
+            }
+        });
     }
 
 }
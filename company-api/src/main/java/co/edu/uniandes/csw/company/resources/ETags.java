@@ -0,0 +1,118 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.resources;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+/**
+ * ETags fuertes de los recursos, derivados de las versiones de las entidades
+ * que forman su representación. Si cambia cualquiera de ellas cambia el ETag.
+ *
+ * Los servicios asíncronos no pueden usar {@code Request} por fuera del hilo
+ * de la petición; por eso reciben los headers If-None-Match e If-Match como
+ * texto y los evalúan con {@link #notModified(String, EntityTag)} y
+ * {@link #matches(String, EntityTag)}.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * Construye el ETag de una representación.
+     *
+     * @param versions versiones de las entidades de la representación, en un
+     * orden fijo para cada recurso.
+     * @return ETag fuerte.
+     */
+    static EntityTag of(Long... versions) {
+        StringBuilder value = new StringBuilder();
+        for (Long version : versions) {
+            if (value.length() > 0) {
+                value.append('-');
+            }
+            value.append(version);
+        }
+        return new EntityTag(value.toString());
+    }
+
+    /**
+     * Evalúa el header If-None-Match de una consulta, con comparación débil.
+     *
+     * @param ifNoneMatch valor del header, puede ser null.
+     * @param tag ETag actual de la representación.
+     * @return respuesta 304 con el ETag si la representación no cambió, o
+     * null si se debe responder normalmente.
+     */
+    static ResponseBuilder notModified(String ifNoneMatch, EntityTag tag) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        for (String value : ifNoneMatch.split(",")) {
+            value = value.trim();
+            if ("*".equals(value) || tag.getValue().equals(parse(value).getValue())) {
+                return Response.notModified(tag);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Evalúa el header If-Match de una actualización, con comparación fuerte.
+     *
+     * @param ifMatch valor del header, puede ser null.
+     * @param tag ETag actual del recurso, o null si no existe.
+     * @return true si se puede continuar con la actualización; false si se
+     * debe responder 412.
+     */
+    static boolean matches(String ifMatch, EntityTag tag) {
+        if (ifMatch == null) {
+            return true;
+        }
+        if (tag == null) {
+            return false;
+        }
+        for (String value : ifMatch.split(",")) {
+            value = value.trim();
+            if ("*".equals(value)) {
+                return true;
+            }
+            EntityTag other = parse(value);
+            if (!other.isWeak() && !tag.isWeak() && tag.getValue().equals(other.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static EntityTag parse(String value) {
+        try {
+            return EntityTag.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            return new EntityTag(value);
+        }
+    }
+}
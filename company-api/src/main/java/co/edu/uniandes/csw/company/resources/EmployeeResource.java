@@ -23,31 +23,65 @@ SOFTWARE.
  */
 package co.edu.uniandes.csw.company.resources;
 
+import java.net.URI;
 import java.util.List;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import co.edu.uniandes.csw.company.api.BatchItemResult;
 import co.edu.uniandes.csw.company.api.IEmployeeLogic;
+import co.edu.uniandes.csw.company.dtos.BatchItemResultDTO;
 import co.edu.uniandes.csw.company.dtos.EmployeeDetailDTO;
 import co.edu.uniandes.csw.company.entities.EmployeeEntity;
+import co.edu.uniandes.csw.company.persistence.ModificationStamps;
+import co.edu.uniandes.csw.company.projections.EmployeeSummary;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
 
 @Path("/employees")
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
 public class EmployeeResource {
 
+    /**
+     * Número máximo de employees que se pueden crear en una sola llamada a
+     * POST /employees/batch.
+     */
+    static final int MAX_BATCH_SIZE = 1000;
+
     @Inject
     private IEmployeeLogic employeeLogic;
 
+    @Inject
+    private ModificationStamps stamps;
+
+    @Inject
+    private Bulkheads bulkheads;
+
     /**
      * Convierte una lista de EmployeeEntity a una lista de EmployeeDetailDTO.
      *
@@ -64,51 +98,267 @@ public class EmployeeResource {
     }
 
     /**
-     * Obtiene todos los Employees 
-     * @return la lista de employees 
+     * Obtiene todos los Employees. Si se envía after o limit la respuesta se
+     * pagina por id y el cursor de la siguiente página se retorna en los
+     * headers X-Next-Cursor y Link.
+     * La respuesta lleva un ETag de la colección; si el cliente envía
+     * If-None-Match con el ETag vigente se responde 304 sin consultarla.
+     *
+     * @param after cursor opaco de la página anterior
+     * @param limit tamaño de la página
+     * @param ifNoneMatch header If-None-Match de la petición
+     * @param uriInfo información de la URI de la petición
+     * @param response respuesta asíncrona, con la lista de employees
+     *
+     */
+    @GET
+    public void getEmployees(@QueryParam("after") final String after, @QueryParam("limit") final Integer limit,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) final String ifNoneMatch,
+            @Context UriInfo uriInfo, @Suspended AsyncResponse response) {
+        final URI requestUri = uriInfo.getRequestUri();
+        bulkheads.submit(Bulkheads.Kind.LIST_READS, response, new Callable<Response>() {
+            @Override
+            public Response call() {
+                EntityTag tag = ETags.of(stamps.getEpoch(), stamps.employees());
+                ResponseBuilder notModified = ETags.notModified(ifNoneMatch, tag);
+                if (notModified != null) {
+                    return notModified.build();
+                }
+                if (!Pagination.isRequested(after, limit)) {
+                    return Response.ok(new GenericEntity<List<EmployeeDetailDTO>>(listEntity2DTO(employeeLogic.getEmployees())) {
+                    }).tag(tag).build();
+                }
+                int size = Pagination.limit(limit);
+                List<EmployeeEntity> rows = employeeLogic.getEmployees(Pagination.decodeCursor(after), size + 1);
+                List<EmployeeDetailDTO> page = listEntity2DTO(Pagination.trim(rows, size));
+                return Pagination.addNextPage(Response.ok(new GenericEntity<List<EmployeeDetailDTO>>(page) {
+                }), requestUri, rows, size).tag(tag).build();
+            }
+        });
+    }
+
+    /**
+     * Obtiene el resumen (id, name, salary y department) de los Employees con
+     * una consulta de proyección de solo lectura, sin cargar las entidades.
+     * Se pagina igual que GET /employees.
+     * La respuesta lleva un ETag de la colección; si el cliente envía
+     * If-None-Match con el ETag vigente se responde 304 sin consultarla.
+     *
+     * @param after cursor opaco de la página anterior
+     * @param limit tamaño de la página
+     * @param ifNoneMatch header If-None-Match de la petición
+     * @param uriInfo información de la URI de la petición
+     * @param response respuesta asíncrona, con la lista de employees
      *
      */
     @GET
-    public List<EmployeeDetailDTO> getEmployees() {
-        return listEntity2DTO(employeeLogic.getEmployees());
+    @Path("summary")
+    public void getEmployeeSummaries(@QueryParam("after") final String after, @QueryParam("limit") final Integer limit,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) final String ifNoneMatch,
+            @Context UriInfo uriInfo, @Suspended AsyncResponse response) {
+        final URI requestUri = uriInfo.getRequestUri();
+        bulkheads.submit(Bulkheads.Kind.LIST_READS, response, new Callable<Response>() {
+            @Override
+            public Response call() {
+                EntityTag tag = ETags.of(stamps.getEpoch(), stamps.employees());
+                ResponseBuilder notModified = ETags.notModified(ifNoneMatch, tag);
+                if (notModified != null) {
+                    return notModified.build();
+                }
+                if (!Pagination.isRequested(after, limit)) {
+                    return Response.ok(new GenericEntity<List<EmployeeDetailDTO>>(summaries2DTO(employeeLogic.getEmployeeSummaries(null, null))) {
+                    }).tag(tag).build();
+                }
+                int size = Pagination.limit(limit);
+                List<EmployeeSummary> rows = employeeLogic.getEmployeeSummaries(Pagination.decodeCursor(after), size + 1);
+                List<EmployeeDetailDTO> page = summaries2DTO(Pagination.trim(rows, size));
+                Long lastId = rows.size() > size ? rows.get(size - 1).getId() : null;
+                return Pagination.addNextPage(Response.ok(new GenericEntity<List<EmployeeDetailDTO>>(page) {
+                }), requestUri, lastId, size).tag(tag).build();
+            }
+        });
+    }
+
+    /**
+     * Convierte una lista de EmployeeSummary a una lista de EmployeeDetailDTO.
+     *
+     * @param summaries Lista de EmployeeSummary a convertir.
+     * @return Lista de EmployeeDetailDTO convertida.
+     *
+     */
+    private static List<EmployeeDetailDTO> summaries2DTO(List<EmployeeSummary> summaries) {
+        List<EmployeeDetailDTO> list = new ArrayList<>(summaries.size());
+        for (EmployeeSummary summary : summaries) {
+            list.add(new EmployeeDetailDTO(summary));
+        }
+        return list;
+    }
+
+    /**
+     * Obtiene todos los Employees escribiendo cada uno en la respuesta en
+     * cuanto se lee de la base de datos, sin construir la lista completa en
+     * memoria.
+     *
+     * La respuesta se escribe en el hilo del grupo de listas, que queda
+     * ocupado hasta terminarla.
+     *
+     * @param response respuesta asíncrona, con la lista de employees como un
+     * arreglo JSON
+     *
+     */
+    @GET
+    @Path("stream")
+    public void streamEmployees(@Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.LIST_READS, response, new Callable<StreamingOutput>() {
+            @Override
+            public StreamingOutput call() {
+                return new StreamingOutput() {
+                    @Override
+                    public void write(OutputStream output) {
+                        final JsonGenerator generator = Json.createGenerator(output);
+                        generator.writeStartArray();
+                        employeeLogic.streamEmployees(new Consumer<EmployeeEntity>() {
+                            @Override
+                            public void accept(EmployeeEntity entity) {
+                                writeEmployee(generator, new EmployeeDetailDTO(entity));
+                            }
+                        });
+                        generator.writeEnd();
+                        generator.flush();
+                    }
+                };
+            }
+        });
+    }
+
+    /**
+     * Escribe un EmployeeDetailDTO como un objeto JSON con la misma forma que
+     * el resto de servicios, omitiendo los atributos nulos.
+     *
+     * @param generator generador JSON de la respuesta
+     * @param dto employee a escribir
+     */
+    private static void writeEmployee(JsonGenerator generator, EmployeeDetailDTO dto) {
+        generator.writeStartObject();
+        if (dto.getId() != null) {
+            generator.write("id", dto.getId());
+        }
+        if (dto.getName() != null) {
+            generator.write("name", dto.getName());
+        }
+        if (dto.getSalary() != null) {
+            generator.write("salary", dto.getSalary());
+        }
+        if (dto.getDepartment() != null) {
+            generator.writeStartObject("department");
+            if (dto.getDepartment().getId() != null) {
+                generator.write("id", dto.getDepartment().getId());
+            }
+            if (dto.getDepartment().getName() != null) {
+                generator.write("name", dto.getDepartment().getName());
+            }
+            generator.writeEnd();
+        }
+        generator.writeEnd();
     }
 
     /**
      * Obtiene los datos de una instancia de Employee a partir de su ID
      *
      * @param id Identificador de la instancia a consultar
-     * @return Instancia de EmployeeDetailDTO con los datos del Employee
-     * consultado
+     * @param response respuesta asíncrona, con la instancia de
+     * EmployeeDetailDTO con los datos del Employee consultado
      *
      */
     @GET
     @Path("{id: \\d+}")
-    public EmployeeDetailDTO getEmployee(@PathParam("id") Long id) {
-        return new EmployeeDetailDTO(employeeLogic.getEmployee(id));
+    public void getEmployee(@PathParam("id") final Long id, @Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.POINT_READS, response, new Callable<EmployeeDetailDTO>() {
+            @Override
+            public EmployeeDetailDTO call() {
+                EmployeeEntity entity = employeeLogic.getEmployee(id);
+                if (entity == null) {
+                    throw new ResourceNotFoundException("El empleado no existe");
+                }
+                return new EmployeeDetailDTO(entity);
+            }
+        });
     }
 
       /**
      * Obtiene los datos de una instancia de Employee a partir de su name.
      *
      * @param name nombre del empleado de la instancia a consultar
-     * @return el primer empleado con ese nombre .
+     * @param response respuesta asíncrona, con el primer empleado con ese
+     * nombre .
      * 
      */
     @GET
     @Path("/byName")
-    public EmployeeDetailDTO getEmployeebByName(@QueryParam("name") String name) {
-        return new EmployeeDetailDTO(employeeLogic.getEmployeeByName(name));
+    public void getEmployeebByName(@QueryParam("name") final String name, @Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.POINT_READS, response, new Callable<EmployeeDetailDTO>() {
+            @Override
+            public EmployeeDetailDTO call() {
+                EmployeeEntity entity = employeeLogic.getEmployeeByName(name);
+                if (entity == null) {
+                    throw new ResourceNotFoundException("El empleado no existe");
+                }
+                return new EmployeeDetailDTO(entity);
+            }
+        });
     }
     /**
      * Se encarga de crear un Employee en la base de datos
      *
      * @param dto Objeto de EmployeeDetailDTO con los datos nuevos
-     * @return Objeto de EmployeeDetailDTOcon los datos nuevos y su ID
+     * @param response respuesta asíncrona, con el objeto de
+     * EmployeeDetailDTOcon los datos nuevos y su ID
+     *
+     */
+    @POST
+    public void createEmployee(final EmployeeDetailDTO dto, @Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.WRITES, response, new Callable<EmployeeDetailDTO>() {
+            @Override
+            public EmployeeDetailDTO call() {
+                return new EmployeeDetailDTO(employeeLogic.createEmployee(dto.toEntity()));
+            }
+        });
+    }
+
+    /**
+     * Crea una colección de Employees en una sola operación. Los Employees
+     * cuyo Department no existe se rechazan sin afectar a los demás.
+     *
+     * @param dtos Colección de EmployeeDetailDTO con los datos nuevos
+     * @param response respuesta asíncrona, con el resultado de cada
+     * Employee, en el mismo orden de la colección recibida, con el ID
+     * asignado o el motivo del rechazo
      *
      */
     @POST
-    public EmployeeDetailDTO createEmployee(EmployeeDetailDTO dto) {
-        return new EmployeeDetailDTO(employeeLogic.createEmployee(dto.toEntity()));
+    @Path("batch")
+    public void createEmployees(final List<EmployeeDetailDTO> dtos, @Suspended AsyncResponse response) {
+        if (dtos == null || dtos.isEmpty()) {
+            throw new WebApplicationException("La colección de employees está vacía", 400);
+        }
+        if (dtos.size() > MAX_BATCH_SIZE) {
+            throw new WebApplicationException("La colección de employees no puede tener más de " + MAX_BATCH_SIZE + " elementos", 400);
+        }
+        bulkheads.submit(Bulkheads.Kind.WRITES, response, new Callable<GenericEntity<List<BatchItemResultDTO>>>() {
+            @Override
+            public GenericEntity<List<BatchItemResultDTO>> call() {
+                List<EmployeeEntity> entities = new ArrayList<>(dtos.size());
+                for (EmployeeDetailDTO dto : dtos) {
+                    entities.add(dto == null ? null : dto.toEntity());
+                }
+                List<BatchItemResultDTO> results = new ArrayList<>(dtos.size());
+                for (BatchItemResult<EmployeeEntity> result : employeeLogic.createEmployees(entities)) {
+                    results.add(new BatchItemResultDTO(result));
+                }
+                return new GenericEntity<List<BatchItemResultDTO>>(results) {
+                };
+            }
+        });
     }
 
     /**
@@ -116,28 +366,41 @@ public class EmployeeResource {
      *
      * @param id Identificador de la instancia de Employee a modificar
      * @param dto Instancia de EmployeeDetailDTO con los nuevos datos
-     * @return Instancia de EmployeeDetailDTO con los datos actualizados
+     * @param response respuesta asíncrona, con la instancia de
+     * EmployeeDetailDTO con los datos actualizados
      *
      */
     @PUT
     @Path("{id: \\d+}")
-    public EmployeeDetailDTO updateEmployee(@PathParam("id") Long id, EmployeeDetailDTO dto) {
-        EmployeeEntity entity = dto.toEntity();
-        entity.setId(id);
-        
-        return new EmployeeDetailDTO(employeeLogic.updateEmployee(entity));
+    public void updateEmployee(@PathParam("id") final Long id, final EmployeeDetailDTO dto, @Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.WRITES, response, new Callable<EmployeeDetailDTO>() {
+            @Override
+            public EmployeeDetailDTO call() {
+                EmployeeEntity entity = dto.toEntity();
+                entity.setId(id);
+
+                return new EmployeeDetailDTO(employeeLogic.updateEmployee(entity));
+            }
+        });
     }
 
     /**
      * Elimina una instancia de Employee de la base de datos
      *
      * @param id Identificador de la instancia a eliminar
+     * @param response respuesta asíncrona, sin contenido
      *
      */
     @DELETE
     @Path("{id: \\d+}")
-    public void deleteEmployee(@PathParam("id") Long id) {
-        employeeLogic.deleteEmployee(id);
+    public void deleteEmployee(@PathParam("id") final Long id, @Suspended AsyncResponse response) {
+        bulkheads.submit(Bulkheads.Kind.WRITES, response, new Callable<Void>() {
+            @Override
+            public Void call() {
+                employeeLogic.deleteEmployee(id);
+                return null;
+            }
+        });
     }
 
 }
@@ -0,0 +1,114 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.resources;
+
+import co.edu.uniandes.csw.company.util.Metrics;
+import java.util.List;
+import java.util.Map;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+/**
+ * Expone las métricas de la aplicación en el formato de texto de
+ * Prometheus: llamadas, llamadas en curso, errores y percentiles de latencia
+ * recientes de cada método de los recursos REST y de la persistencia, y las respuestas
+ * de cada convertidor de excepciones.
+ */
+@Path("/metrics")
+public class MetricsResource {
+
+    /**
+     * Tipo de contenido del formato de texto de Prometheus.
+     */
+    public static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    /**
+     * Obtiene las métricas de la aplicación.
+     *
+     * @return métricas en el formato de texto de Prometheus
+     *
+     */
+    @GET
+    @Produces(PROMETHEUS_TEXT)
+    public String getMetrics() {
+        StringBuilder out = new StringBuilder(8192);
+        writeTimers(out, "company_http_requests", "peticiones REST", Metrics.of(Metrics.HTTP).timers());
+        writeTimers(out, "company_persistence_calls", "llamadas a la persistencia", Metrics.of(Metrics.PERSISTENCE).timers());
+
+        String name = "company_exception_mapper_hits_total";
+        header(out, name, "counter", "Respuestas generadas por cada convertidor de excepciones.");
+        for (Map.Entry<String, Long> counter : Metrics.of(Metrics.EXCEPTION_MAPPERS).counters().entrySet()) {
+            sample(out, name, "mapper", counter.getKey(), null, counter.getValue());
+        }
+        return out.toString();
+    }
+
+    private static void writeTimers(StringBuilder out, String prefix, String description, List<Metrics.Timer> timers) {
+        String total = prefix + "_total";
+        header(out, total, "counter", "Número de " + description + " terminadas.");
+        for (Metrics.Timer timer : timers) {
+            sample(out, total, "method", timer.getName(), null, timer.getCalls());
+        }
+        String inFlight = prefix + "_in_flight";
+        header(out, inFlight, "gauge", "Número de " + description + " en curso.");
+        for (Metrics.Timer timer : timers) {
+            sample(out, inFlight, "method", timer.getName(), null, timer.getInFlight());
+        }
+        String errors = prefix + "_errors_total";
+        header(out, errors, "counter", "Número de " + description + " terminadas en error.");
+        for (Metrics.Timer timer : timers) {
+            sample(out, errors, "method", timer.getName(), null, timer.getErrors());
+        }
+        String duration = prefix + "_duration_seconds";
+        header(out, duration, "summary", "Latencia de las " + description + ", en segundos.");
+        for (Metrics.Timer timer : timers) {
+            long[] micros = timer.quantileMicros(QUANTILES);
+            for (int i = 0; i < QUANTILES.length; i++) {
+                sample(out, duration, "method", timer.getName(), String.valueOf(QUANTILES[i]), micros[i] / 1e6);
+            }
+            sample(out, duration + "_sum", "method", timer.getName(), null, timer.getTotalNanos() / 1e9);
+            sample(out, duration + "_count", "method", timer.getName(), null, timer.getCalls());
+        }
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String label, String value, String quantile, Object sample) {
+        out.append(name).append('{').append(label).append("=\"").append(escape(value)).append('"');
+        if (quantile != null) {
+            out.append(",quantile=\"").append(quantile).append('"');
+        }
+        out.append("} ").append(sample).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
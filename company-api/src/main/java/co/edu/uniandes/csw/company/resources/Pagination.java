@@ -0,0 +1,173 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.resources;
+
+import co.edu.uniandes.csw.company.entities.BaseEntity;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
+
+/**
+ * Utilidades para la paginación por llave (keyset) de los servicios que
+ * retornan colecciones.
+ *
+ * El cliente envía los parámetros {@code after} y {@code limit}. El valor de
+ * {@code after} es un cursor opaco que se obtiene del header
+ * {@code X-Next-Cursor} (o del header {@code Link} con rel="next") de la
+ * página anterior.
+ */
+final class Pagination {
+
+    /**
+     * Tamaño de página cuando el cliente no envía limit.
+     */
+    static final int DEFAULT_LIMIT = 50;
+
+    /**
+     * Tamaño máximo de página permitido.
+     */
+    static final int MAX_LIMIT = 500;
+
+    /**
+     * Header en el que se retorna el cursor de la siguiente página.
+     */
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final String CURSOR_PREFIX = "id:";
+
+    private Pagination() {
+    }
+
+    /**
+     * Indica si el cliente pidió una respuesta paginada.
+     *
+     * @param after cursor recibido
+     * @param limit tamaño de página recibido
+     * @return true si se recibió alguno de los dos parámetros
+     */
+    static boolean isRequested(String after, Integer limit) {
+        return after != null || limit != null;
+    }
+
+    /**
+     * Valida el tamaño de página solicitado.
+     *
+     * @param limit tamaño de página recibido, puede ser null
+     * @return tamaño de página a usar
+     */
+    static int limit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1) {
+            throw new WebApplicationException("El parámetro limit debe ser mayor a cero", 400);
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    /**
+     * Convierte un cursor opaco en el id a partir del cual se consulta.
+     *
+     * @param cursor cursor recibido, puede ser null
+     * @return id del último registro de la página anterior o null
+     */
+    static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(CURSOR_PREFIX)) {
+                throw new IllegalArgumentException(value);
+            }
+            return Long.valueOf(value.substring(CURSOR_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException("El cursor no es válido", 400);
+        }
+    }
+
+    /**
+     * Convierte un id en un cursor opaco.
+     *
+     * @param id id del último registro de la página
+     * @return cursor para pedir la siguiente página
+     */
+    static String encodeCursor(Long id) {
+        byte[] value = (CURSOR_PREFIX + id).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value);
+    }
+
+    /**
+     * Recorta una página que se consultó con un registro adicional (limit + 1)
+     * para saber si hay una página siguiente.
+     *
+     * @param rows registros consultados
+     * @param limit tamaño de página
+     * @return los primeros limit registros
+     */
+    static <T> List<T> trim(List<T> rows, int limit) {
+        return rows.size() > limit ? rows.subList(0, limit) : rows;
+    }
+
+    /**
+     * Agrega a la respuesta el cursor y el link de la siguiente página, si
+     * existe.
+     *
+     * @param builder respuesta en construcción
+     * @param requestUri URI de la petición
+     * @param rows registros consultados con limit + 1
+     * @param limit tamaño de página
+     * @return la misma respuesta en construcción
+     */
+    static Response.ResponseBuilder addNextPage(Response.ResponseBuilder builder, URI requestUri, List<? extends BaseEntity> rows, int limit) {
+        return addNextPage(builder, requestUri, rows.size() > limit ? rows.get(limit - 1).getId() : null, limit);
+    }
+
+    /**
+     * Agrega a la respuesta el cursor y el link de la siguiente página, si
+     * existe.
+     *
+     * @param builder respuesta en construcción
+     * @param requestUri URI de la petición
+     * @param lastId id del último registro de la página, o null si no hay
+     * página siguiente
+     * @param limit tamaño de página
+     * @return la misma respuesta en construcción
+     */
+    static Response.ResponseBuilder addNextPage(Response.ResponseBuilder builder, URI requestUri, Long lastId, int limit) {
+        if (lastId != null) {
+            String cursor = encodeCursor(lastId);
+            builder.header(NEXT_CURSOR_HEADER, cursor)
+                    .link(UriBuilder.fromUri(requestUri)
+                            .replaceQueryParam("after", cursor)
+                            .replaceQueryParam("limit", limit)
+                            .build(), "next");
+        }
+        return builder;
+    }
+}
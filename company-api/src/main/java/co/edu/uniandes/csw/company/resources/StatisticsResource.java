@@ -0,0 +1,182 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.resources;
+
+import co.edu.uniandes.csw.company.api.IStatisticsLogic;
+import co.edu.uniandes.csw.company.dtos.BulkheadStatisticsDTO;
+import co.edu.uniandes.csw.company.dtos.CacheStatisticsDTO;
+import co.edu.uniandes.csw.company.dtos.CoalescingStatisticsDTO;
+import co.edu.uniandes.csw.company.dtos.ConcurrencyLimitStatisticsDTO;
+import co.edu.uniandes.csw.company.dtos.DeadlineStatisticsDTO;
+import co.edu.uniandes.csw.company.dtos.OwnershipStatisticsDTO;
+import co.edu.uniandes.csw.company.dtos.RateLimitStatisticsDTO;
+import co.edu.uniandes.csw.company.dtos.ResponseCacheStatisticsDTO;
+import co.edu.uniandes.csw.company.filters.ConcurrencyLimit;
+import co.edu.uniandes.csw.company.filters.ResponseCache;
+import co.edu.uniandes.csw.company.filters.TokenBuckets;
+import co.edu.uniandes.csw.company.persistence.CacheStatistics;
+import co.edu.uniandes.csw.company.util.Deadline;
+import co.edu.uniandes.csw.company.util.SingleFlight;
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+@Path("/stats")
+@Produces(MediaType.APPLICATION_JSON)
+public class StatisticsResource {
+
+    @Inject
+    private IStatisticsLogic statisticsLogic;
+
+    @Inject
+    private Bulkheads bulkheads;
+
+    /**
+     * Obtiene los contadores del caché compartido de cada entidad.
+     *
+     * @return Colección de CacheStatisticsDTO, una por entidad
+     *
+     */
+    @GET
+    @Path("cache")
+    public List<CacheStatisticsDTO> getCacheStatistics() {
+        List<CacheStatisticsDTO> list = new ArrayList<>();
+        for (CacheStatistics.Entry entry : statisticsLogic.getCacheStatistics()) {
+            list.add(new CacheStatisticsDTO(entry));
+        }
+        return list;
+    }
+
+    /**
+     * Obtiene el tamaño, la memoria y la antigüedad del índice en memoria con
+     * el que se validan las rutas anidadas.
+     *
+     * @return OwnershipStatisticsDTO con los valores del índice
+     *
+     */
+    @GET
+    @Path("ownership")
+    public OwnershipStatisticsDTO getOwnershipStatistics() {
+        return new OwnershipStatisticsDTO(statisticsLogic.getOwnershipStatistics());
+    }
+
+    /**
+     * Obtiene los contadores del caché de respuestas serializadas de los GET.
+     *
+     * @return ResponseCacheStatisticsDTO con los contadores del caché
+     *
+     */
+    @GET
+    @Path("responses")
+    public ResponseCacheStatisticsDTO getResponseCacheStatistics() {
+        return new ResponseCacheStatisticsDTO(ResponseCache.snapshot());
+    }
+
+    /**
+     * Obtiene los contadores de las consultas concurrentes agrupadas de cada
+     * operación.
+     *
+     * @return Colección de CoalescingStatisticsDTO, una por operación
+     *
+     */
+    @GET
+    @Path("coalescing")
+    public List<CoalescingStatisticsDTO> getCoalescingStatistics() {
+        List<CoalescingStatisticsDTO> list = new ArrayList<>();
+        for (SingleFlight.Entry entry : statisticsLogic.getCoalescingStatistics()) {
+            list.add(new CoalescingStatisticsDTO(entry));
+        }
+        return list;
+    }
+
+    /**
+     * Obtiene el tamaño de la cola y los contadores de cada grupo de hilos de
+     * los servicios asíncronos.
+     *
+     * @return Colección de BulkheadStatisticsDTO, una por grupo
+     *
+     */
+    @GET
+    @Path("bulkheads")
+    public List<BulkheadStatisticsDTO> getBulkheadStatistics() {
+        List<BulkheadStatisticsDTO> list = new ArrayList<>();
+        for (Bulkheads.Statistics statistics : bulkheads.statistics()) {
+            list.add(new BulkheadStatisticsDTO(statistics));
+        }
+        return list;
+    }
+
+    /**
+     * Obtiene el límite adaptativo de peticiones concurrentes de cada clase
+     * de recurso, con sus contadores.
+     *
+     * @return Colección de ConcurrencyLimitStatisticsDTO, una por recurso
+     *
+     */
+    @GET
+    @Path("limits")
+    public List<ConcurrencyLimitStatisticsDTO> getConcurrencyLimitStatistics() {
+        List<ConcurrencyLimitStatisticsDTO> list = new ArrayList<>();
+        for (ConcurrencyLimit.Statistics statistics : ConcurrencyLimit.snapshot()) {
+            list.add(new ConcurrencyLimitStatisticsDTO(statistics));
+        }
+        return list;
+    }
+
+    /**
+     * Obtiene la tasa por cliente de cada grupo de rutas, con sus contadores.
+     *
+     * @return Colección de RateLimitStatisticsDTO, una por grupo
+     *
+     */
+    @GET
+    @Path("ratelimits")
+    public List<RateLimitStatisticsDTO> getRateLimitStatistics() {
+        List<RateLimitStatisticsDTO> list = new ArrayList<>();
+        for (TokenBuckets.Statistics statistics : TokenBuckets.snapshot()) {
+            list.add(new RateLimitStatisticsDTO(statistics));
+        }
+        return list;
+    }
+
+    /**
+     * Obtiene los contadores del plazo de las peticiones de cada endpoint.
+     *
+     * @return Colección de DeadlineStatisticsDTO, una por endpoint
+     *
+     */
+    @GET
+    @Path("deadlines")
+    public List<DeadlineStatisticsDTO> getDeadlineStatistics() {
+        List<DeadlineStatisticsDTO> list = new ArrayList<>();
+        for (Deadline.Entry entry : statisticsLogic.getDeadlineStatistics()) {
+            list.add(new DeadlineStatisticsDTO(entry));
+        }
+        return list;
+    }
+}
@@ -27,21 +27,34 @@ package co.edu.uniandes.csw.company.tests;
 import co.edu.uniandes.csw.company.entities.CompanyEntity;
 import co.edu.uniandes.csw.company.dtos.CompanyDTO;
 import co.edu.uniandes.csw.company.dtos.CompanyDetailDTO;
+import co.edu.uniandes.csw.company.filters.ConcurrencyLimit;
+import co.edu.uniandes.csw.company.filters.DeadlineFilter;
+import co.edu.uniandes.csw.company.filters.RateLimitFilter;
+import co.edu.uniandes.csw.company.filters.ResponseCacheFilter;
+import co.edu.uniandes.csw.company.filters.TokenBuckets;
+import co.edu.uniandes.csw.company.mappers.BusinessLogicExceptionMapper;
+import co.edu.uniandes.csw.company.mappers.WebApplicationExceptionMapper;
+import co.edu.uniandes.csw.company.persistence.StatementCounter;
 import co.edu.uniandes.csw.company.resources.CompanyResource;
+import co.edu.uniandes.csw.company.resources.MetricsResource;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.inject.Inject;
 import javax.transaction.UserTransaction;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.ws.rs.ServiceUnavailableException;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
@@ -86,6 +99,10 @@ public class CompanyTest {
                         .withTransitivity().asFile())
                 // Se agregan los compilados de los paquetes de servicios
                 .addPackage(CompanyResource.class.getPackage())
+                // Los mappers convierten las excepciones de la lógica en respuestas HTTP
+                .addPackage(BusinessLogicExceptionMapper.class.getPackage())
+                // El caché de respuestas de los GET
+                .addPackage(ResponseCacheFilter.class.getPackage())
                 // El archivo que contiene la configuracion a la base de datos.
                 .addAsResource("META-INF/persistence.xml", "META-INF/persistence.xml")
                 // El archivo beans.xml es necesario para injeccion de dependencias.
@@ -207,6 +224,171 @@ public class CompanyTest {
         Assert.assertEquals(3, listCompanyTest.size());
     }
 
+    /**
+     * Prueba que el listado de Companys carga sus departments con un número
+     * acotado de sentencias SQL, sin importar cuántos Companys haya.
+     *
+     * 
+     */
+    @Test
+    public void listCompanyStatementsTest() throws IOException {
+       
+        long before = StatementCounter.count();
+        Response response = target
+                .request().get();
+        response.readEntity(String.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        long statements = StatementCounter.count() - before;
+        Assert.assertTrue(statements >= 1 && statements <= 2);
+
+        before = StatementCounter.count();
+        response = target.queryParam("limit", 2)
+                .request().get();
+        response.readEntity(String.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        statements = StatementCounter.count() - before;
+        Assert.assertTrue(statements >= 1 && statements <= 2);
+    }
+
+    /**
+     * Prueba para consultar un Company que no existe: la segunda consulta del
+     * mismo id se responde sin ir a la base de datos.
+     *
+     *
+     */
+    @Test
+    public void getMissingCompanyTest() {
+        String missing = String.valueOf(Long.MAX_VALUE - 1);
+        Response response = target.path(missing)
+                .request().get();
+        Assert.assertEquals(404, response.getStatus());
+
+        long before = StatementCounter.count();
+        response = target.path(missing)
+                .request().get();
+        Assert.assertEquals(404, response.getStatus());
+        Assert.assertEquals(0, StatementCounter.count() - before);
+    }
+
+    /**
+     * Prueba de las consultas y actualizaciones condicionales de un Company
+     * con su ETag.
+     *
+     *
+     */
+    @Test
+    public void conditionalCompanyTest() {
+        WebTarget company = target.path(companyList.get(0).getId().toString());
+        Response response = company.request().get();
+        response.readEntity(String.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+        Assert.assertNotNull(etag);
+
+        long before = StatementCounter.count();
+        response = company.request().header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        Assert.assertEquals(304, response.getStatus());
+        Assert.assertEquals(etag, response.getHeaderString(HttpHeaders.ETAG));
+        Assert.assertTrue(StatementCounter.count() - before <= 1);
+
+        CompanyDetailDTO dto = new CompanyDetailDTO(companyList.get(0));
+        dto.setName(dto.getName() + "-2");
+        response = company.request().header(HttpHeaders.IF_MATCH, "\"0\"")
+                .put(Entity.entity(dto, MediaType.APPLICATION_JSON));
+        Assert.assertEquals(412, response.getStatus());
+
+        response = company.request().header(HttpHeaders.IF_MATCH, etag)
+                .put(Entity.entity(dto, MediaType.APPLICATION_JSON));
+        response.readEntity(String.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        String updated = response.getHeaderString(HttpHeaders.ETAG);
+        Assert.assertNotEquals(etag, updated);
+
+        response = company.request().header(HttpHeaders.IF_MATCH, etag)
+                .put(Entity.entity(dto, MediaType.APPLICATION_JSON));
+        Assert.assertEquals(412, response.getStatus());
+
+        response = company.request().header(HttpHeaders.IF_NONE_MATCH, updated).get();
+        Assert.assertEquals(304, response.getStatus());
+    }
+
+    /**
+     * Prueba de la consulta condicional de la colección de Companies: se
+     * responde 304 sin consultar la base de datos hasta que se crea un
+     * Company.
+     *
+     *
+     */
+    @Test
+    public void conditionalListCompanyTest() {
+        Response response = target.request().get();
+        response.readEntity(String.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+        Assert.assertNotNull(etag);
+
+        long before = StatementCounter.count();
+        response = target.queryParam("limit", 2).request().header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        Assert.assertEquals(304, response.getStatus());
+        response = target.request().header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        Assert.assertEquals(304, response.getStatus());
+        Assert.assertEquals(0, StatementCounter.count() - before);
+
+        CompanyDetailDTO company = new PodamFactoryImpl().manufacturePojo(CompanyDetailDTO.class);
+        response = target.request().post(Entity.entity(company, MediaType.APPLICATION_JSON));
+        response.readEntity(String.class);
+        Assert.assertEquals(Created, response.getStatus());
+
+        response = target.request().header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        response.readEntity(String.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        Assert.assertNotEquals(etag, response.getHeaderString(HttpHeaders.ETAG));
+    }
+
+    /**
+     * Prueba del caché de respuestas: la segunda consulta de un Company se
+     * responde sin consultar la base de datos, y una actualización invalida
+     * la respuesta guardada.
+     *
+     *
+     */
+    @Test
+    public void responseCacheTest() throws IOException {
+        WebTarget company = target.path(companyList.get(0).getId().toString());
+        Response response = company.request().get();
+        String body = response.readEntity(String.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+
+        long before = StatementCounter.count();
+        response = company.request().get();
+        Assert.assertEquals(Ok, response.getStatus());
+        Assert.assertEquals(body, response.readEntity(String.class));
+        Assert.assertEquals(etag, response.getHeaderString(HttpHeaders.ETAG));
+        Assert.assertEquals(MediaType.APPLICATION_JSON_TYPE, response.getMediaType());
+        response = company.request().header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        Assert.assertEquals(304, response.getStatus());
+        Assert.assertEquals(0, StatementCounter.count() - before);
+
+        CompanyDetailDTO dto = new CompanyDetailDTO(companyList.get(0));
+        dto.setName(dto.getName() + "-2");
+        response = company.request().put(Entity.entity(dto, MediaType.APPLICATION_JSON));
+        response.readEntity(String.class);
+        Assert.assertEquals(Ok, response.getStatus());
+
+        response = company.request().get();
+        CompanyDetailDTO updated = response.readEntity(CompanyDetailDTO.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        Assert.assertEquals(dto.getName(), updated.getName());
+
+        response = createWebTarget().path("stats").path("responses").request().get();
+        Map<String, Object> stats = new ObjectMapper().readValue(response.readEntity(String.class), Map.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        Assert.assertTrue(((Number) stats.get("hits")).longValue() >= 2);
+        Assert.assertTrue(((Number) stats.get("invalidations")).longValue() >= 1);
+        Assert.assertTrue(((Number) stats.get("bytes")).longValue() > 0);
+    }
+
     /**
      * Prueba para actualizar un Company
      *
@@ -229,6 +411,286 @@ public class CompanyTest {
         Assert.assertEquals(company.getName(), companyTest.getName());
     }
     
+    /**
+     * Prueba para consultar las estadísticas del caché compartido
+     *
+     *
+     */
+    @Test
+    public void getCacheStatisticsTest() throws IOException {
+        target.path(companyList.get(0).getId().toString()).request().get();
+        Response response = createWebTarget().path("stats").path("cache")
+                .request().get();
+
+        List<Map<String, Object>> stats = new ObjectMapper().readValue(response.readEntity(String.class), List.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        Assert.assertEquals(3, stats.size());
+        Assert.assertEquals("CompanyEntity", stats.get(0).get("entity"));
+        long lookups = ((Number) stats.get(0).get("hits")).longValue() + ((Number) stats.get(0).get("misses")).longValue();
+        Assert.assertTrue(lookups > 0);
+    }
+
+    /**
+     * Prueba para consultar los contadores de los grupos de hilos de los
+     * servicios asíncronos
+     *
+     *
+     */
+    @Test
+    public void getBulkheadStatisticsTest() throws IOException {
+        long before = bulkhead("writes").get("submitted").longValue();
+        PodamFactory factory = new PodamFactoryImpl();
+        CompanyDetailDTO company = factory.manufacturePojo(CompanyDetailDTO.class);
+        Response response = target.request().post(Entity.entity(company, MediaType.APPLICATION_JSON));
+        Assert.assertEquals(Created, response.getStatus());
+
+        Map<String, Number> writes = bulkhead("writes");
+        Assert.assertEquals(before + 1, writes.get("submitted").longValue());
+        Assert.assertEquals(0L, writes.get("rejected").longValue());
+        Assert.assertTrue(writes.get("queueCapacity").intValue() > 0);
+        Assert.assertNotNull(bulkhead("point-reads"));
+        Assert.assertNotNull(bulkhead("list-reads"));
+    }
+
+    /**
+     * Prueba que el 503 de un grupo de hilos lleno conserve el header
+     * Retry-After al pasar por WebApplicationExceptionMapper
+     *
+     *
+     */
+    @Test
+    public void bulkheadRetryAfterTest() {
+        Response response = new WebApplicationExceptionMapper()
+                .toResponse(new ServiceUnavailableException("El servidor está ocupado", 1L));
+        Assert.assertEquals(Status.SERVICE_UNAVAILABLE.getStatusCode(), response.getStatus());
+        Assert.assertEquals("1", response.getHeaderString(HttpHeaders.RETRY_AFTER));
+        Assert.assertEquals("El servidor está ocupado", response.getEntity());
+    }
+
+    private Map<String, Number> bulkhead(String name) throws IOException {
+        Response response = createWebTarget().path("stats").path("bulkheads")
+                .request().get();
+        Assert.assertEquals(Ok, response.getStatus());
+        List<Map<String, Object>> stats = new ObjectMapper().readValue(response.readEntity(String.class), List.class);
+        Assert.assertEquals(3, stats.size());
+        for (Map<String, Object> entry : stats) {
+            if (name.equals(entry.get("name"))) {
+                Map<String, Number> counters = new HashMap<>();
+                for (Map.Entry<String, Object> field : entry.entrySet()) {
+                    if (field.getValue() instanceof Number) {
+                        counters.put(field.getKey(), (Number) field.getValue());
+                    }
+                }
+                return counters;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Prueba del límite de peticiones concurrentes: con el límite completo
+     * se rechaza la siguiente petición hasta que se libere un cupo
+     *
+     *
+     */
+    @Test
+    public void concurrencyLimitTest() throws IOException {
+        ConcurrencyLimit limit = ConcurrencyLimit.of("CompanyTest");
+        List<ConcurrencyLimit.Lease> leases = new ArrayList<>();
+        ConcurrencyLimit.Lease lease;
+        while ((lease = limit.tryAcquire()) != null) {
+            leases.add(lease);
+        }
+        Assert.assertEquals(16, leases.size());
+        Assert.assertNull(limit.tryAcquire());
+        limit.release(leases.remove(0), false);
+        Assert.assertNotNull(limit.tryAcquire());
+
+        target.request().get().close();
+        Response response = createWebTarget().path("stats").path("limits")
+                .request().get();
+        Assert.assertEquals(Ok, response.getStatus());
+        List<Map<String, Object>> stats = new ObjectMapper().readValue(response.readEntity(String.class), List.class);
+        Map<String, Object> companies = null;
+        Map<String, Object> test = null;
+        for (Map<String, Object> entry : stats) {
+            if ("CompanyResource".equals(entry.get("name"))) {
+                companies = entry;
+            } else if ("CompanyTest".equals(entry.get("name"))) {
+                test = entry;
+            }
+        }
+        Assert.assertNotNull(companies);
+        Assert.assertTrue(((Number) companies.get("accepted")).longValue() > 0);
+        Assert.assertEquals(0, ((Number) companies.get("inFlight")).intValue());
+        Assert.assertNotNull(test);
+        Assert.assertEquals(2L, ((Number) test.get("rejected")).longValue());
+        Assert.assertEquals(16, ((Number) test.get("inFlight")).intValue());
+    }
+
+    /**
+     * Prueba de la tasa por cliente: se admiten tantas peticiones seguidas
+     * como la ráfaga y luego hay que esperar el siguiente token
+     *
+     *
+     */
+    @Test
+    public void rateLimitTest() throws IOException {
+        System.setProperty("company.ratelimit.CompanyTest.rate", "1");
+        System.setProperty("company.ratelimit.CompanyTest.burst", "3");
+        TokenBuckets buckets = TokenBuckets.of("CompanyTest");
+        long now = System.nanoTime();
+        Assert.assertEquals(2, buckets.remaining(buckets.tryAcquire("client", now)));
+        Assert.assertEquals(1, buckets.remaining(buckets.tryAcquire("client", now)));
+        Assert.assertEquals(0, buckets.remaining(buckets.tryAcquire("client", now)));
+        long wait = buckets.tryAcquire("client", now);
+        Assert.assertTrue(wait < 0 && -wait <= 1000000000L);
+        Assert.assertEquals(2, buckets.remaining(buckets.tryAcquire("other", now)));
+        Assert.assertEquals(0, buckets.remaining(buckets.tryAcquire("client", now - wait)));
+
+        Response response = target.request().header(RateLimitFilter.API_KEY_HEADER, "rateLimitTest").get();
+        Assert.assertEquals(Ok, response.getStatus());
+        int limit = Integer.parseInt(response.getHeaderString("X-RateLimit-Limit"));
+        Assert.assertEquals(limit - 1, Integer.parseInt(response.getHeaderString("X-RateLimit-Remaining")));
+        Assert.assertNotNull(response.getHeaderString("X-RateLimit-Reset"));
+        response.close();
+
+        response = createWebTarget().path("employeesummary").request().header(RateLimitFilter.API_KEY_HEADER, "rateLimitTest").get();
+        Assert.assertEquals(404, response.getStatus());
+        Assert.assertNull(response.getHeaderString("X-RateLimit-Limit"));
+        response.close();
+
+        response = createWebTarget().path("stats").path("ratelimits").request().get();
+        Assert.assertEquals(Ok, response.getStatus());
+        List<Map<String, Object>> stats = new ObjectMapper().readValue(response.readEntity(String.class), List.class);
+        for (Map<String, Object> entry : stats) {
+            if ("CompanyTest".equals(entry.get("name"))) {
+                Assert.assertEquals(5L, ((Number) entry.get("allowed")).longValue());
+                Assert.assertEquals(1L, ((Number) entry.get("limited")).longValue());
+                Assert.assertEquals(2, ((Number) entry.get("clients")).intValue());
+            } else if ("companies".equals(entry.get("name"))) {
+                Assert.assertTrue(((Number) entry.get("allowed")).longValue() > 0);
+            }
+        }
+        Assert.assertEquals(4, stats.size());
+    }
+
+    /**
+     * Prueba del plazo de la petición: una petición cuyo plazo ya venció no
+     * se ejecuta y se responde 504
+     *
+     *
+     */
+    @Test
+    public void deadlineTest() throws IOException {
+        Response response = target.path(companyList.get(0).getId().toString())
+                .request().header(DeadlineFilter.TIMEOUT_HEADER, "60000").get();
+        Assert.assertEquals(Ok, response.getStatus());
+        response.close();
+
+        response = target.request().header(DeadlineFilter.TIMEOUT_HEADER, "-1").get();
+        Assert.assertEquals(Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+        response.close();
+
+        PodamFactory factory = new PodamFactoryImpl();
+        CompanyDetailDTO company = factory.manufacturePojo(CompanyDetailDTO.class);
+        response = target.request().header(DeadlineFilter.TIMEOUT_HEADER, "0")
+                .post(Entity.entity(company, MediaType.APPLICATION_JSON));
+        Assert.assertEquals(Status.GATEWAY_TIMEOUT.getStatusCode(), response.getStatus());
+        response.close();
+        Assert.assertEquals(Ok, target.request().get().getStatus());
+
+        response = createWebTarget().path("stats").path("deadlines").request().get();
+        Assert.assertEquals(Ok, response.getStatus());
+        List<Map<String, Object>> stats = new ObjectMapper().readValue(response.readEntity(String.class), List.class);
+        Map<String, Object> create = null;
+        for (Map<String, Object> entry : stats) {
+            if ("CompanyResource.createCompany".equals(entry.get("endpoint"))) {
+                create = entry;
+            }
+        }
+        Assert.assertNotNull(create);
+        // Según qué llegue primero, el tiempo máximo de la respuesta o el hilo
+        // del grupo, la petición se cuenta como respondida por tiempo o descartada.
+        Assert.assertTrue(((Number) create.get("dropped")).longValue()
+                + ((Number) create.get("timedOut")).longValue() >= 1);
+    }
+
+    /**
+     * Prueba que una escritura que ya empezó y no termina en el tiempo del
+     * grupo de hilos se responda 504 sin Retry-After, para que el cliente no
+     * la repita. El registro se bloquea con una actualización sin commit.
+     *
+     *
+     */
+    @Test
+    public void startedWriteTimeoutTest() throws Exception {
+        CompanyEntity entity = companyList.get(0);
+        CompanyDetailDTO dto = new CompanyDetailDTO(entity);
+        dto.setName(entity.getName() + " actualizada");
+        utx.begin();
+        try {
+            em.createQuery("update CompanyEntity c set c.name = c.name where c.id = :id")
+                    .setParameter("id", entity.getId()).executeUpdate();
+            Response response = target.path(entity.getId().toString()).request()
+                    .put(Entity.entity(dto, MediaType.APPLICATION_JSON));
+            Assert.assertEquals(Status.GATEWAY_TIMEOUT.getStatusCode(), response.getStatus());
+            Assert.assertNull(response.getHeaderString(HttpHeaders.RETRY_AFTER));
+            response.close();
+        } finally {
+            utx.rollback();
+        }
+    }
+
+    /**
+     * Prueba de las métricas en formato Prometheus: cada servicio, cada
+     * método de persistencia y cada convertidor de excepciones que se usó
+     * aparece con sus contadores y percentiles
+     *
+     *
+     */
+    @Test
+    public void metricsTest() {
+        PodamFactory factory = new PodamFactoryImpl();
+        CompanyDetailDTO company = factory.manufacturePojo(CompanyDetailDTO.class);
+        Response response = target.request().post(Entity.entity(company, MediaType.APPLICATION_JSON));
+        Assert.assertEquals(Created, response.getStatus());
+        response.close();
+        response = target.path(String.valueOf(Long.MAX_VALUE - 1)).request().get();
+        Assert.assertEquals(404, response.getStatus());
+        response.close();
+
+        response = createWebTarget().path("metrics").request().get();
+        Assert.assertEquals(Ok, response.getStatus());
+        Assert.assertEquals(MediaType.valueOf(MetricsResource.PROMETHEUS_TEXT), response.getMediaType());
+        String metrics = response.readEntity(String.class);
+        Assert.assertTrue(metrics.contains("# TYPE company_http_requests_duration_seconds summary\n"));
+        Assert.assertTrue(metrics.contains("company_http_requests_total{method=\"CompanyResource.createCompany\"} "));
+        Assert.assertTrue(metrics.contains("company_http_requests_in_flight{method=\"CompanyResource.createCompany\"} 0\n"));
+        Assert.assertTrue(metrics.contains("company_http_requests_duration_seconds{method=\"CompanyResource.createCompany\",quantile=\"0.999\"} "));
+        Assert.assertTrue(metrics.contains("company_persistence_calls_total{method=\"CompanyPersistence.create\"} "));
+        Assert.assertTrue(metrics.contains("company_persistence_calls_duration_seconds_count{method=\"CompanyPersistence.create\"} "));
+        Assert.assertTrue(metrics.contains("company_exception_mapper_hits_total{mapper=\""));
+    }
+
+    /**
+     * Prueba para consultar el número de employees de un Company
+     *
+     * 
+     */
+    @Test
+    public void getNumberOfEmployeesTest() {
+        Response response = target.path(companyList.get(0).getId().toString()).path("numberofemployees")
+                .request().get();
+
+        Assert.assertEquals(Ok, response.getStatus());
+        Assert.assertEquals(Integer.valueOf(0), response.readEntity(Integer.class));
+
+        response = target.path(String.valueOf(Long.MAX_VALUE)).path("numberofemployees")
+                .request().get();
+        Assert.assertEquals(404, response.getStatus());
+    }
+
     /**
      * Prueba para eliminar un Company
      *
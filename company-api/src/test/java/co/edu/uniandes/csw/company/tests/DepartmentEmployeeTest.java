@@ -26,9 +26,12 @@ package co.edu.uniandes.csw.company.tests;
 import co.edu.uniandes.csw.company.entities.CompanyEntity;
 
 import co.edu.uniandes.csw.company.entities.DepartmentEntity;
+import co.edu.uniandes.csw.company.dtos.DepartmentDTO;
 import co.edu.uniandes.csw.company.dtos.EmployeeDTO;
 import co.edu.uniandes.csw.company.dtos.EmployeeDetailDTO;
 import co.edu.uniandes.csw.company.entities.EmployeeEntity;
+import co.edu.uniandes.csw.company.mappers.BusinessLogicExceptionMapper;
+import co.edu.uniandes.csw.company.persistence.StatementCounter;
 import co.edu.uniandes.csw.company.resources.DepartmentResource;
 import java.io.File;
 import java.io.IOException;
@@ -43,6 +46,7 @@ import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
@@ -93,6 +97,7 @@ public class DepartmentEmployeeTest {
                         .withTransitivity().asFile())
                 // Se agregan los compilados de los paquetes de servicios
                 .addPackage(DepartmentResource.class.getPackage())
+                .addPackage(BusinessLogicExceptionMapper.class.getPackage())
                 // El archivo que contiene la configuracion a la base de datos.
                 .addAsResource("META-INF/persistence.xml", "META-INF/persistence.xml")
                 // El archivo beans.xml es necesario para injeccion de dependencias.
@@ -189,6 +194,60 @@ public class DepartmentEmployeeTest {
         Assert.assertEquals(employee.getId(), employeesTest.getId());
     }
 
+    /**
+     * Prueba que crear un Employee en un Department, o asociarle uno
+     * existente, actualice los contadores de employees sin cambiar la
+     * versión ni el ETag del Company ni del Department
+     *
+     *
+     */
+    @Test
+    public void employeeCountKeepsVersionTest() {
+        WebTarget company = createWebTarget().path(companyPath).path(fatherCompanyEntity.getId().toString());
+        WebTarget department = company.path(departmentPath).path(fatherDepartmentEntity.getId().toString());
+        String companyTag = etag(company);
+        String departmentTag = etag(department);
+        Long companyVersion = version("CompanyEntity", fatherCompanyEntity.getId());
+        Long departmentVersion = version("DepartmentEntity", fatherDepartmentEntity.getId());
+        int count = employeeCount(fatherDepartmentEntity.getId());
+
+        EmployeeDetailDTO created = new EmployeeDetailDTO(factory.manufacturePojo(EmployeeEntity.class));
+        created.setId(null);
+        created.setDepartment(new DepartmentDTO(fatherDepartmentEntity));
+        Response response = createWebTarget().path(employeesPath).request()
+                .post(Entity.entity(created, MediaType.APPLICATION_JSON));
+        Assert.assertEquals(Ok, response.getStatus());
+        response.close();
+        response = target.request().post(Entity.entity(new EmployeeDetailDTO(employeeList.get(2)), MediaType.APPLICATION_JSON));
+        Assert.assertEquals(Ok, response.getStatus());
+        response.close();
+
+        Assert.assertEquals(count + 2, employeeCount(fatherDepartmentEntity.getId()));
+        Assert.assertEquals(companyVersion, version("CompanyEntity", fatherCompanyEntity.getId()));
+        Assert.assertEquals(departmentVersion, version("DepartmentEntity", fatherDepartmentEntity.getId()));
+        Assert.assertEquals(companyTag, etag(company));
+        Assert.assertEquals(departmentTag, etag(department));
+    }
+
+    private String etag(WebTarget resource) {
+        Response response = resource.request().get();
+        Assert.assertEquals(Ok, response.getStatus());
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+        response.close();
+        Assert.assertNotNull(etag);
+        return etag;
+    }
+
+    private Long version(String entity, Long id) {
+        return em.createQuery("select e.version from " + entity + " e where e.id = :id", Long.class)
+                .setParameter("id", id).getSingleResult();
+    }
+
+    private int employeeCount(Long departmentId) {
+        return em.createQuery("select d.employeeCount from DepartmentEntity d where d.id = :id", Integer.class)
+                .setParameter("id", departmentId).getSingleResult();
+    }
+
     /**
      * Prueba para obtener una colección de instancias de Employees asociadas a
      * una instancia Department
@@ -228,6 +287,65 @@ public class DepartmentEmployeeTest {
         Assert.assertEquals(employees.getId(), employeesTest.getId());
     }
 
+    /**
+     * Prueba que obtener un Employee de un Department valida la ruta y hace la
+     * consulta en una sola transacción, con un número acotado de sentencias.
+     *
+     *
+     */
+    @Test
+    public void getEmployeesSingleTransactionTest() {
+
+        EmployeeDTO employees = new EmployeeDTO(employeeList.get(0));
+
+        long statements = StatementCounter.count();
+        long unitsOfWork = StatementCounter.unitsOfWork();
+        Response response = target
+                .path(employees.getId().toString())
+                .request().get();
+        response.readEntity(String.class);
+
+        Assert.assertEquals(Ok, response.getStatus());
+        Assert.assertEquals(1, StatementCounter.unitsOfWork() - unitsOfWork);
+        Assert.assertTrue(StatementCounter.count() - statements <= 2);
+    }
+
+    /**
+     * Prueba que un Employee que no pertenece al Department no se encuentra.
+     *
+     *
+     */
+    @Test
+    public void getEmployeesNotInDepartmentTest() {
+
+        EmployeeDTO employees = new EmployeeDTO(employeeList.get(2));
+
+        Response response = target
+                .path(employees.getId().toString())
+                .request().get();
+
+        Assert.assertEquals(404, response.getStatus());
+    }
+
+    /**
+     * Prueba que una ruta con un Department de otra compañía se rechaza.
+     *
+     *
+     */
+    @Test
+    public void listEmployeesWrongCompanyTest() {
+
+        Response response = createWebTarget()
+                .path(companyPath)
+                .path(String.valueOf(fatherCompanyEntity.getId() + 1000))
+                .path(departmentPath)
+                .path(fatherDepartmentEntity.getId().toString())
+                .path(employeesPath)
+                .request().get();
+
+        Assert.assertEquals(404, response.getStatus());
+    }
+
     /**
      * Prueba para desasociar un Employees existente de un Department existente
      *
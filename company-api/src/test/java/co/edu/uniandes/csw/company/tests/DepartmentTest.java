@@ -42,6 +42,7 @@ import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
@@ -202,6 +203,62 @@ public class DepartmentTest {
         Assert.assertEquals(departmentTest.getName(), departmentList.get(0).getName());
     }
 
+    /**
+     * Prueba de las consultas condicionales de un Department: su ETag cambia
+     * también cuando cambia su Company.
+     */
+    @Test
+    public void conditionalGetDepartmentTest() {
+        WebTarget department = target.path(departmentList.get(0).getId().toString());
+        Response response = department.request().get();
+        response.readEntity(String.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+        Assert.assertNotNull(etag);
+
+        response = department.request().header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        Assert.assertEquals(304, response.getStatus());
+
+        DepartmentDetailDTO dto = new DepartmentDetailDTO(departmentList.get(1));
+        dto.setName(dto.getName() + "-2");
+        response = target.path(dto.getId().toString()).request()
+                .put(Entity.entity(dto, MediaType.APPLICATION_JSON));
+        response.readEntity(String.class);
+        Assert.assertEquals(Ok, response.getStatus());
+
+        response = department.request().header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        response.readEntity(String.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        Assert.assertNotEquals(etag, response.getHeaderString(HttpHeaders.ETAG));
+
+        response = department.request().header(HttpHeaders.IF_MATCH, etag)
+                .put(Entity.entity(new DepartmentDetailDTO(departmentList.get(0)), MediaType.APPLICATION_JSON));
+        Assert.assertEquals(412, response.getStatus());
+    }
+
+    /**
+     * Prueba de la consulta condicional de la colección de Departments de un
+     * Company.
+     */
+    @Test
+    public void conditionalListDepartmentTest() {
+        Response response = target.request().get();
+        response.readEntity(String.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+
+        response = target.request().header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        Assert.assertEquals(304, response.getStatus());
+
+        response = target.path(departmentList.get(0).getId().toString()).request().delete();
+        Assert.assertEquals(OkWithoutContent, response.getStatus());
+
+        response = target.request().header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        response.readEntity(String.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        Assert.assertNotEquals(etag, response.getHeaderString(HttpHeaders.ETAG));
+    }
+
     /**
      * Prueba para consultar la lista de Departments
      *
@@ -25,7 +25,9 @@ package co.edu.uniandes.csw.company.tests;
 
 
 import co.edu.uniandes.csw.company.entities.EmployeeEntity;
+import co.edu.uniandes.csw.company.dtos.DepartmentDTO;
 import co.edu.uniandes.csw.company.dtos.EmployeeDTO;
+import co.edu.uniandes.csw.company.dtos.EmployeeDetailDTO;
 import co.edu.uniandes.csw.company.resources.EmployeeResource;
 import org.codehaus.jackson.map.ObjectMapper;
 import java.io.File;
@@ -33,6 +35,7 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import javax.inject.Inject;
 import javax.transaction.UserTransaction;
 import javax.persistence.EntityManager;
@@ -173,6 +176,39 @@ public class EmployeeTest {
         Assert.assertNotNull(entity);
     }
 
+    /**
+     * Prueba para crear una colección de Employees, con un Employee cuyo
+     * Department no existe.
+     *
+     * 
+     */
+    @Test
+    public void createEmployeesBatchTest() throws IOException {
+        PodamFactory factory = new PodamFactoryImpl();
+        List<EmployeeDetailDTO> employees = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            employees.add(factory.manufacturePojo(EmployeeDetailDTO.class));
+        }
+        DepartmentDTO unknown = new DepartmentDTO();
+        unknown.setId(Long.MAX_VALUE);
+        employees.get(1).setDepartment(unknown);
+
+        Response response = target.path(employeePath).path("batch")
+            .request()
+            .post(Entity.entity(new ObjectMapper().writeValueAsString(employees), MediaType.APPLICATION_JSON));
+
+        List<Map<String, Object>> results = new ObjectMapper().readValue(response.readEntity(String.class), List.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        Assert.assertEquals(3, results.size());
+        Assert.assertNotNull(results.get(0).get("id"));
+        Assert.assertNull(results.get(0).get("error"));
+        Assert.assertNull(results.get(1).get("id"));
+        Assert.assertNotNull(results.get(1).get("error"));
+        Assert.assertEquals(2, results.get(2).get("index"));
+        EmployeeEntity entity = em.find(EmployeeEntity.class, ((Number) results.get(2).get("id")).longValue());
+        Assert.assertEquals(employees.get(2).getName(), entity.getName());
+    }
+
     /**
      * Prueba para consultar un Employee
      *
@@ -190,6 +226,25 @@ public class EmployeeTest {
         Assert.assertEquals(employeeTest.getId(), oraculo.get(0).getId());
     }
 
+    /**
+     * Prueba para consultar un Employee que no existe
+     *
+     * 
+     */
+    @Test
+    public void getMissingEmployeeTest() {
+        for (int i = 0; i < 2; i++) {
+            Response response = target.path(employeePath)
+                    .path(String.valueOf(Long.MAX_VALUE - 1))
+                    .request().get();
+            Assert.assertEquals(404, response.getStatus());
+        }
+        Response response = target.path(employeePath).path("byName")
+                .queryParam("name", "no-existe")
+                .request().get();
+        Assert.assertEquals(404, response.getStatus());
+    }
+
     /**
      * Prueba para consultar la lista de Employees
      *
@@ -207,6 +262,82 @@ public class EmployeeTest {
         Assert.assertEquals(3, listEmployeeTest.size());
     }
 
+    /**
+     * Prueba para consultar la lista de Employees por páginas
+     *
+     * 
+     */
+    @Test
+    public void listEmployeePageTest() throws IOException {
+    
+        Response response = target.path(employeePath)
+                .queryParam("limit", 2)
+                .request().get();
+        
+        List<EmployeeDTO> firstPage = new ObjectMapper().readValue(response.readEntity(String.class), List.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        Assert.assertEquals(2, firstPage.size());
+        String cursor = response.getHeaderString("X-Next-Cursor");
+        Assert.assertNotNull(cursor);
+        Assert.assertTrue(response.getHeaderString("Link").contains("rel=\"next\""));
+
+        response = target.path(employeePath)
+                .queryParam("after", cursor)
+                .queryParam("limit", 2)
+                .request().get();
+        
+        List<EmployeeDTO> secondPage = new ObjectMapper().readValue(response.readEntity(String.class), List.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        Assert.assertEquals(1, secondPage.size());
+        Assert.assertNull(response.getHeaderString("X-Next-Cursor"));
+    }
+
+    /**
+     * Prueba para consultar el resumen de los Employees por páginas
+     *
+     * 
+     */
+    @Test
+    public void listEmployeeSummaryTest() throws IOException {
+    
+        Response response = target.path(employeePath).path("summary")
+                .queryParam("limit", 2)
+                .request().get();
+        
+        List<Map<String, Object>> firstPage = new ObjectMapper().readValue(response.readEntity(String.class), List.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        Assert.assertEquals(2, firstPage.size());
+        Assert.assertNotNull(firstPage.get(0).get("name"));
+        String cursor = response.getHeaderString("X-Next-Cursor");
+        Assert.assertNotNull(cursor);
+
+        response = target.path(employeePath).path("summary")
+                .queryParam("after", cursor)
+                .queryParam("limit", 2)
+                .request().get();
+        
+        List<Map<String, Object>> secondPage = new ObjectMapper().readValue(response.readEntity(String.class), List.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        Assert.assertEquals(1, secondPage.size());
+        Assert.assertNull(response.getHeaderString("X-Next-Cursor"));
+    }
+
+    /**
+     * Prueba para consultar la lista de Employees como un flujo
+     *
+     * 
+     */
+    @Test
+    public void streamEmployeeTest() throws IOException {
+    
+        Response response = target.path(employeePath).path("stream")
+                .request().get();
+        
+        List<EmployeeDTO> listEmployeeTest = new ObjectMapper().readValue(response.readEntity(String.class), List.class);
+        Assert.assertEquals(Ok, response.getStatus());
+        Assert.assertEquals(3, listEmployeeTest.size());
+    }
+
     /**
      * Prueba para actualizar un Employee
      *
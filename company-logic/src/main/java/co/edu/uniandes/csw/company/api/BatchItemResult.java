@@ -0,0 +1,101 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.api;
+
+/**
+ * Resultado de procesar un elemento de una operación por lotes. Contiene la
+ * entidad creada o el motivo por el que el elemento fue rechazado.
+ *
+ * @param <T> tipo de la entidad procesada
+ */
+public class BatchItemResult<T> {
+
+    private final int index;
+    private final T entity;
+    private final String error;
+
+    private BatchItemResult(int index, T entity, String error) {
+        this.index = index;
+        this.entity = entity;
+        this.error = error;
+    }
+
+    /**
+     * Crea el resultado de un elemento procesado correctamente.
+     *
+     * @param index posición del elemento en el lote
+     * @param entity entidad creada
+     * @return resultado exitoso
+     */
+    public static <T> BatchItemResult<T> success(int index, T entity) {
+        return new BatchItemResult<>(index, entity, null);
+    }
+
+    /**
+     * Crea el resultado de un elemento rechazado.
+     *
+     * @param index posición del elemento en el lote
+     * @param error motivo del rechazo
+     * @return resultado fallido
+     */
+    public static <T> BatchItemResult<T> failure(int index, String error) {
+        return new BatchItemResult<>(index, null, error);
+    }
+
+    /**
+     * Obtiene la posición del elemento en el lote.
+     *
+     * @return posición del elemento, empezando en cero.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Obtiene la entidad creada.
+     *
+     * @return entidad creada, o null si el elemento fue rechazado.
+     */
+    public T getEntity() {
+        return entity;
+    }
+
+    /**
+     * Obtiene el motivo por el que el elemento fue rechazado.
+     *
+     * @return motivo del rechazo, o null si el elemento fue creado.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Indica si el elemento fue creado.
+     *
+     * @return true si el elemento no fue rechazado.
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
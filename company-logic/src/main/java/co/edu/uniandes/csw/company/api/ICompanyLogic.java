@@ -31,15 +31,19 @@ public interface ICompanyLogic {
 
     public List<CompanyEntity> getCompanys();
 
+    public List<CompanyEntity> getCompanys(Long afterId, int limit);
+
     public CompanyEntity getCompany(Long id);
 
     public CompanyEntity getCompanyByName(String name);
 
+    public Long getCompanyVersion(Long id);
+
     public CompanyEntity createCompany(CompanyEntity entity) throws BusinessLogicException;
 
     public CompanyEntity updateCompany(CompanyEntity entity);
 
     public void deleteCompany(Long id);
 
-    public Integer getNumberOfEmployeesCompany(Long id);
+    public Integer getNumberOfEmployeesCompany(Long id) throws BusinessLogicException;
 }
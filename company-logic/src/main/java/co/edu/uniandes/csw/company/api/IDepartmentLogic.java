@@ -26,12 +26,19 @@ package co.edu.uniandes.csw.company.api;
 import co.edu.uniandes.csw.company.entities.DepartmentEntity;
 import co.edu.uniandes.csw.company.entities.EmployeeEntity;
 import co.edu.uniandes.csw.company.exceptions.BusinessLogicException;
+import co.edu.uniandes.csw.company.projections.DepartmentSummary;
+import co.edu.uniandes.csw.company.projections.DepartmentVersion;
 import java.util.List;
 
 public interface IDepartmentLogic {
   
     public List<DepartmentEntity> getDepartments(Long companyId);
+    public List<DepartmentEntity> getDepartments(Long companyId, Long afterId, int limit);
+    public List<DepartmentSummary> getDepartmentSummaries(Long companyId, Long afterId, Integer limit);
     public DepartmentEntity getDepartment(Long departmentid);
+    public DepartmentVersion getDepartmentVersion(Long companyId, Long departmentId);
+    public void resolvePath(Long companyId, Long departmentId) throws BusinessLogicException;
+    public void resolvePath(Long companyId, Long departmentId, Long employeeId) throws BusinessLogicException;
     public DepartmentEntity getDepartmentByName(Long companyId, String departmentName);
     public DepartmentEntity createDepartment(Long companyid, DepartmentEntity entity) throws BusinessLogicException ;
     public DepartmentEntity updateDepartment(Long companyid, DepartmentEntity entity);
@@ -39,7 +46,7 @@ public interface IDepartmentLogic {
     public List<EmployeeEntity> listEmployees(Long departmentId);
     public EmployeeEntity getEmployee(Long departmentId, Long employeesId);
     public EmployeeEntity addEmployee(Long departmentId, Long employeesId);
-    public List<EmployeeEntity> replaceEmployees(Long departmentId, List<EmployeeEntity> list);
+    public List<EmployeeEntity> replaceEmployees(Long departmentId, List<EmployeeEntity> list) throws BusinessLogicException;
     public void removeEmployee(Long departmentId, Long employeesId);
 
 }
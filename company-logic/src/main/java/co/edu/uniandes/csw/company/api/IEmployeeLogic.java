@@ -24,14 +24,20 @@ SOFTWARE.
 package co.edu.uniandes.csw.company.api;
 
 import co.edu.uniandes.csw.company.entities.EmployeeEntity;
+import co.edu.uniandes.csw.company.projections.EmployeeSummary;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface IEmployeeLogic {
     
     public List<EmployeeEntity> getEmployees();
+    public List<EmployeeEntity> getEmployees(Long afterId, int limit);
+    public List<EmployeeSummary> getEmployeeSummaries(Long afterId, Integer limit);
+    public int streamEmployees(Consumer<EmployeeEntity> consumer);
     public EmployeeEntity getEmployee(Long id);
     public EmployeeEntity getEmployeeByName(String name);
     public EmployeeEntity createEmployee(EmployeeEntity entity); 
+    public List<BatchItemResult<EmployeeEntity>> createEmployees(List<EmployeeEntity> entities);
     public EmployeeEntity updateEmployee(EmployeeEntity entity);
     public void deleteEmployee(Long id);
 }
@@ -0,0 +1,42 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.api;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Carga entidades por id dentro de una transacción. Los ids que se registran
+ * con {@link #prime(Class, Long)} se consultan juntos, con un solo WHERE id
+ * IN por tipo de entidad, la primera vez que se pide alguno de ellos; el
+ * resultado queda memorizado hasta que termina la transacción.
+ */
+public interface IEntityLoader {
+
+    public void prime(Class<?> type, Long id);
+
+    public <T> T load(Class<T> type, Long id);
+
+    public <T> List<T> loadAll(Class<T> type, Collection<Long> ids);
+}
@@ -3,17 +3,47 @@ package co.edu.uniandes.csw.company.ejbs;
 import co.edu.uniandes.csw.company.api.ICompanyLogic;
 import co.edu.uniandes.csw.company.entities.CompanyEntity;
 import co.edu.uniandes.csw.company.persistence.CompanyPersistence;
+import co.edu.uniandes.csw.company.persistence.EmployeePersistence;
+import co.edu.uniandes.csw.company.persistence.ExistenceFilter;
+import co.edu.uniandes.csw.company.persistence.ModificationStamps;
+import co.edu.uniandes.csw.company.persistence.OwnershipIndex;
 import co.edu.uniandes.csw.company.exceptions.BusinessLogicException;
+import co.edu.uniandes.csw.company.util.SingleFlight;
 import java.util.List;
+import java.util.concurrent.Callable;
+import javax.annotation.Resource;
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
+import javax.transaction.TransactionSynchronizationRegistry;
 
 @Stateless
 public class CompanyLogic implements ICompanyLogic {
 
+    private static final SingleFlight<Long, CompanyEntity> GET_COMPANY = SingleFlight.of("CompanyLogic.getCompany");
+
+    private static final BusinessLogicException COMPANY_NOT_FOUND
+            = BusinessLogicException.stackless("La compañía no existe");
+
     @Inject
     private CompanyPersistence persistence;
 
+    @Inject
+    private OwnershipIndex ownershipIndex;
+
+    @Inject
+    private ModificationStamps modificationStamps;
+
+    @Inject
+    private ExistenceFilter existenceFilter;
+
+    @Inject
+    private EmployeePersistence employeePersistence;
+
+    @Resource
+    private TransactionSynchronizationRegistry registry;
+
     /**
      * Obtiene la lista de los registros de Company.
      *
@@ -25,15 +55,79 @@ public class CompanyLogic implements ICompanyLogic {
         return persistence.findAll();
     }
 
+    /**
+     * Obtiene una página de los registros de Company ordenados por id.
+     *
+     * @param afterId id de la última Company de la página anterior, o null
+     * para la primera página.
+     * @param limit número máximo de registros a retornar.
+     * @return Colección de objetos de CompanyEntity con id mayor a afterId.
+     *
+     */
+    @Override
+    public List<CompanyEntity> getCompanys(Long afterId, int limit) {
+        return persistence.findPage(afterId, limit);
+    }
+
     /**
      * Obtiene los datos de una instancia de Company a partir de su ID.
      *
      * @param id Identificador de la instancia a consultar
      * @return Instancia de CompanyEntity con los datos del Company consultado.
+     * Null si no existe; los ids que se sabe que no existen no se consultan
+     * en la base de datos, ver ExistenceFilter.
+     *
+     * Las consultas concurrentes del mismo id hechas por fuera de una
+     * transacción se agrupan en una sola carga, con sus departments, y todas
+     * reciben la misma instancia. Solo se agrupan las que leyeron el mismo
+     * contador de departments del company (ver ModificationStamps), que
+     * cambia con cada escritura del company o de sus departments. Dentro de
+     * una transacción se consulta en su propio contexto de persistencia,
+     * para poder modificar el resultado.
+     *
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public CompanyEntity getCompany(final Long id) {
+        if (existenceFilter.isMissing(CompanyEntity.class, id)) {
+            return null;
+        }
+        if (registry.getTransactionKey() != null) {
+            return find(id);
+        }
+        return GET_COMPANY.execute(id, modificationStamps.departments(id), new Callable<CompanyEntity>() {
+            @Override
+            public CompanyEntity call() {
+                CompanyEntity entity = find(id);
+                if (entity != null) {
+                    entity.getDepartments().size();
+                }
+                return entity;
+            }
+        });
+    }
+
+    private CompanyEntity find(Long id) {
+        CompanyEntity entity = persistence.find(id);
+        if (entity == null) {
+            existenceFilter.recordMissing(CompanyEntity.class, id);
+        }
+        return entity;
+    }
+
+    /**
+     * Obtiene la versión de un Company, de la que se deriva su ETag. Cambia
+     * cuando cambian el Company o sus departments.
+     *
+     * @param id Identificador de la instancia a consultar
+     * @return versión del Company, o null si no existe.
      *
      */
-    public CompanyEntity getCompany(Long id) {
-        return persistence.find(id);
+    @Override
+    public Long getCompanyVersion(Long id) {
+        if (existenceFilter.isMissing(CompanyEntity.class, id)) {
+            return null;
+        }
+        return persistence.findVersion(id);
     }
 
     /**
@@ -51,6 +145,7 @@ public class CompanyLogic implements ICompanyLogic {
         } else
         {
             persistence.create(entity);
+            modificationStamps.companyChanged(entity.getId());
         }
         return entity;
     }
@@ -64,18 +159,34 @@ public class CompanyLogic implements ICompanyLogic {
      */
     @Override
     public CompanyEntity updateCompany(CompanyEntity entity) {
+        modificationStamps.companyChanged(entity.getId());
         return persistence.update(entity);
     }
 
     /**
-     * Elimina una instancia de Company de la base de datos.
+     * Elimina una instancia de Company de la base de datos, junto con sus
+     * Departments. Los Employees de esos Departments quedan sin Department,
+     * como en DepartmentLogic.deleteDepartment; los contadores de employees
+     * se borran con sus filas.
      *
      * @param id Identificador de la instancia a eliminar.
      *
      */
     @Override
     public void deleteCompany(Long id) {
+        List<Long> employeeIds = employeePersistence.findIdsByCompany(id);
+        if (!employeeIds.isEmpty()) {
+            long[] ids = new long[employeeIds.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = employeeIds.get(i);
+            }
+            employeePersistence.unassignCompany(ids, id);
+            ownershipIndex.employeesMoved(ids, null);
+            modificationStamps.employeesChanged();
+        }
         persistence.delete(id);
+        ownershipIndex.companyDeleted(id);
+        modificationStamps.companyChanged(id);
     }
 
     @Override
@@ -83,9 +194,23 @@ public class CompanyLogic implements ICompanyLogic {
         return persistence.findByName(name);
     }
 
+    /**
+     * Obtiene el número de employees de todos los departments de un Company,
+     * a partir del contador que se mantiene al asociar y desasociar
+     * employees.
+     *
+     * @param id Identificador del Company.
+     * @return número de employees del Company.
+     * @throws BusinessLogicException si el Company no existe.
+     *
+     */
     @Override
-    public Integer getNumberOfEmployeesCompany(Long id) {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+    public Integer getNumberOfEmployeesCompany(Long id) throws BusinessLogicException {
+        Integer count = persistence.findEmployeeCount(id);
+        if (count == null) {
+            throw COMPANY_NOT_FOUND;
+        }
+        return count;
     }
 
 }
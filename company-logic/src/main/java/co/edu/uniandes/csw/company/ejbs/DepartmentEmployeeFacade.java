@@ -0,0 +1,160 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.ejbs;
+
+import co.edu.uniandes.csw.company.api.IDepartmentEmployeeFacade;
+import co.edu.uniandes.csw.company.api.IDepartmentLogic;
+import co.edu.uniandes.csw.company.api.IEntityLoader;
+import co.edu.uniandes.csw.company.entities.EmployeeEntity;
+import co.edu.uniandes.csw.company.exceptions.BusinessLogicException;
+import co.edu.uniandes.csw.company.persistence.EmployeePersistence;
+import java.util.List;
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+
+/**
+ * Atiende las peticiones de /companies/{companyId}/departments/{departmentId}/employees.
+ * Cada método valida la ruta con {@link IDepartmentLogic#resolvePath}, sin
+ * cargar entidades, y ejecuta la operación en la misma transacción y el
+ * mismo contexto de persistencia. Las entidades que se validan se cargan con
+ * {@link IEntityLoader}, de modo que la operación las reutiliza sin
+ * volver a consultarlas.
+ */
+@Stateless
+public class DepartmentEmployeeFacade implements IDepartmentEmployeeFacade {
+
+    private static final BusinessLogicException EMPLOYEE_NOT_FOUND
+            = BusinessLogicException.stackless("El Employee no existe");
+
+    @Inject
+    private EmployeePersistence employeePersistence;
+
+    @Inject
+    private IDepartmentLogic departmentLogic;
+
+    @Inject
+    private IEntityLoader loader;
+
+    /**
+     * Verifica que el Employee exista y lo deja cargado en la transacción.
+     *
+     * @param employeeId Identificador de la instancia de Employee
+     * @throws BusinessLogicException si el Employee no existe
+     *
+     */
+    private void existsEmployee(Long employeeId) throws BusinessLogicException {
+        if (loader.load(EmployeeEntity.class, employeeId) == null) {
+            throw EMPLOYEE_NOT_FOUND;
+        }
+    }
+
+    /**
+     * Obtiene los Employees de un Department.
+     *
+     * @param companyId Identificador de la instancia de Company
+     * @param departmentId Identificador de la instancia de Department
+     * @return Colección de instancias de EmployeeEntity del Department
+     * @throws BusinessLogicException si el Company o el Department no existen
+     *
+     */
+    @Override
+    public List<EmployeeEntity> listEmployees(Long companyId, Long departmentId) throws BusinessLogicException {
+        departmentLogic.resolvePath(companyId, departmentId);
+        return departmentLogic.listEmployees(departmentId);
+    }
+
+    /**
+     * Obtiene un Employee de un Department.
+     *
+     * @param companyId Identificador de la instancia de Company
+     * @param departmentId Identificador de la instancia de Department
+     * @param employeeId Identificador de la instancia de Employee
+     * @return la instancia de EmployeeEntity
+     * @throws BusinessLogicException si el Company o el Department no existen
+     * o si el Employee no pertenece al Department
+     *
+     */
+    @Override
+    public EmployeeEntity getEmployee(Long companyId, Long departmentId, Long employeeId) throws BusinessLogicException {
+        departmentLogic.resolvePath(companyId, departmentId, employeeId);
+        // El índice puede confirmar una ruta que se borró por fuera de la
+        // aplicación; la entidad leída es la que decide.
+        EmployeeEntity entity = employeePersistence.findWithDepartment(employeeId);
+        if (entity == null || entity.getDepartment() == null || !entity.getDepartment().getId().equals(departmentId)) {
+            throw EMPLOYEE_NOT_FOUND;
+        }
+        return entity;
+    }
+
+    /**
+     * Asocia un Employee existente a un Department.
+     *
+     * @param companyId Identificador de la instancia de Company
+     * @param departmentId Identificador de la instancia de Department
+     * @param employeeId Identificador de la instancia de Employee
+     * @return la instancia de EmployeeEntity asociada
+     * @throws BusinessLogicException si el Company, el Department o el
+     * Employee no existen
+     *
+     */
+    @Override
+    public EmployeeEntity addEmployee(Long companyId, Long departmentId, Long employeeId) throws BusinessLogicException {
+        departmentLogic.resolvePath(companyId, departmentId);
+        existsEmployee(employeeId);
+        return departmentLogic.addEmployee(departmentId, employeeId);
+    }
+
+    /**
+     * Remplaza los Employees de un Department.
+     *
+     * @param companyId Identificador de la instancia de Company
+     * @param departmentId Identificador de la instancia de Department
+     * @param list Colección de instancias de EmployeeEntity a asociar
+     * @return Nueva colección de EmployeeEntity del Department
+     * @throws BusinessLogicException si el Company, el Department o algún
+     * Employee no existen
+     *
+     */
+    @Override
+    public List<EmployeeEntity> replaceEmployees(Long companyId, Long departmentId, List<EmployeeEntity> list) throws BusinessLogicException {
+        departmentLogic.resolvePath(companyId, departmentId);
+        return departmentLogic.replaceEmployees(departmentId, list);
+    }
+
+    /**
+     * Desasocia un Employee de un Department.
+     *
+     * @param companyId Identificador de la instancia de Company
+     * @param departmentId Identificador de la instancia de Department
+     * @param employeeId Identificador de la instancia de Employee
+     * @throws BusinessLogicException si el Company o el Department no existen
+     * o si el Employee no pertenece al Department
+     *
+     */
+    @Override
+    public void removeEmployee(Long companyId, Long departmentId, Long employeeId) throws BusinessLogicException {
+        departmentLogic.resolvePath(companyId, departmentId, employeeId);
+        departmentLogic.removeEmployee(departmentId, employeeId);
+    }
+}
@@ -32,17 +32,34 @@ import co.edu.uniandes.csw.company.entities.EmployeeEntity;
 import co.edu.uniandes.csw.company.api.IEmployeeLogic;
 import co.edu.uniandes.csw.company.exceptions.BusinessLogicException;
 import co.edu.uniandes.csw.company.persistence.CompanyPersistence;
+import co.edu.uniandes.csw.company.persistence.EmployeePersistence;
+import co.edu.uniandes.csw.company.persistence.ModificationStamps;
+import co.edu.uniandes.csw.company.persistence.OwnershipIndex;
+import co.edu.uniandes.csw.company.persistence.SharedCache;
+import co.edu.uniandes.csw.company.projections.DepartmentSummary;
+import co.edu.uniandes.csw.company.projections.DepartmentVersion;
+import co.edu.uniandes.csw.company.util.LongHashSet;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
-import javax.persistence.NoResultException;
 
 @Stateless
 public class DepartmentLogic implements IDepartmentLogic {
       private static final Logger LOGGER = Logger.getLogger(DepartmentLogic.class.getName());
 
+    private static final BusinessLogicException COMPANY_NOT_FOUND
+            = BusinessLogicException.stackless("La compañía no existe");
+
+    private static final BusinessLogicException DEPARTMENT_NOT_FOUND
+            = BusinessLogicException.stackless("El Department no existe en la compañía");
+
+    private static final BusinessLogicException EMPLOYEE_NOT_FOUND
+            = BusinessLogicException.stackless("El Employee no existe en el Department");
+
     @Inject
     private DepartmentPersistence persistence;
 
@@ -52,6 +69,21 @@ public class DepartmentLogic implements IDepartmentLogic {
     @Inject
     private IEmployeeLogic employeeLogic;
 
+    @Inject
+    private EmployeePersistence employeePersistence;
+
+    @Inject
+    private CompanyPersistence companyPersistence;
+
+    @Inject
+    private SharedCache sharedCache;
+
+    @Inject
+    private OwnershipIndex ownershipIndex;
+
+    @Inject
+    private ModificationStamps modificationStamps;
+
     /**
      * Obtiene la lista de los registros de Department que pertenecen a un
      * Company.
@@ -66,22 +98,114 @@ public class DepartmentLogic implements IDepartmentLogic {
         return company.getDepartments();
     }
 
+    /**
+     * Obtiene una página de los registros de Department que pertenecen a un
+     * Company, ordenados por id.
+     *
+     * @param companyid id del Company el cual es padre de los Departments.
+     * @param afterId id del último Department de la página anterior, o null
+     * para la primera página.
+     * @param limit número máximo de registros a retornar.
+     * @return Colección de objetos de DepartmentEntity con id mayor a afterId.
+     *
+     */
+    @Override
+    public List<DepartmentEntity> getDepartments(Long companyid, Long afterId, int limit) {
+        return persistence.findPage(companyid, afterId, limit);
+    }
+
+    /**
+     * Obtiene los datos de los Departments de un Company, ordenados por id,
+     * sin cargar las entidades.
+     *
+     * @param companyId id del Company el cual es padre de los Departments.
+     * @param afterId id del último Department de la página anterior, o null
+     * para la primera página.
+     * @param limit número máximo de registros a retornar, o null para
+     * retornarlos todos.
+     * @return Colección de DepartmentSummary con id mayor a afterId.
+     *
+     */
+    @Override
+    public List<DepartmentSummary> getDepartmentSummaries(Long companyId, Long afterId, Integer limit) {
+        return persistence.findSummaries(companyId, afterId, limit);
+    }
+
     /**
      * Obtiene los datos de una instancia de Department a partir de su ID.
      *
      * @param departmentid Identificador del Department a consultar
      * @return Instancia de DepartmentEntity con los datos del Department
-     * consultado.
+     * consultado, o null si no existe.
      *
      */
     @Override
     public DepartmentEntity getDepartment(Long departmentId) {
         LOGGER.log(Level.INFO, "Consultando department con departmentId={0}", departmentId);
-        try {
-            return persistence.find(departmentId);
-        } catch (NoResultException e) {
-            throw new IllegalArgumentException("El Department no existe");
+        return persistence.find(departmentId);
+    }
+
+    /**
+     * Obtiene las versiones de un Department y de su Company, de las que se
+     * deriva el ETag del Department.
+     *
+     * @param companyId Identificador del Company
+     * @param departmentId Identificador del Department
+     * @return versiones, o null si el Department no existe en el Company.
+     *
+     */
+    @Override
+    public DepartmentVersion getDepartmentVersion(Long companyId, Long departmentId) {
+        return persistence.findVersion(companyId, departmentId);
+    }
+
+    /**
+     * Valida que exista la compañía y, si se da departmentId, que el
+     * Department exista y pertenezca a ella. No carga las entidades.
+     *
+     * @param companyId Identificador de la compañía
+     * @param departmentId Identificador del Department, o null para validar
+     * solo la compañía
+     * @throws BusinessLogicException si la ruta no existe
+     *
+     */
+    @Override
+    public void resolvePath(Long companyId, Long departmentId) throws BusinessLogicException {
+        resolvePath(companyId, departmentId, null);
+    }
+
+    /**
+     * Valida que exista la ruta compañía/department/employee y que cada
+     * elemento pertenezca al anterior. La pertenencia se confirma primero en
+     * {@link OwnershipIndex}; si el índice no conoce la ruta se valida con una
+     * sola consulta a la base de datos. No carga las entidades.
+     *
+     * @param companyId Identificador de la compañía
+     * @param departmentId Identificador del Department, o null para validar
+     * solo la compañía
+     * @param employeeId Identificador del Employee, o null para validar hasta
+     * el Department
+     * @throws BusinessLogicException si la ruta no existe
+     *
+     */
+    @Override
+    public void resolvePath(Long companyId, Long departmentId, Long employeeId) throws BusinessLogicException {
+        if (departmentId != null && ownershipIndex.contains(companyId, departmentId, employeeId)) {
+            return;
+        }
+        long generation = ownershipIndex.generation();
+        if (persistence.existsPath(companyId, departmentId, employeeId)) {
+            if (departmentId != null) {
+                ownershipIndex.repair(companyId, departmentId, employeeId, generation);
+            }
+            return;
         }
+        if (departmentId == null) {
+            throw COMPANY_NOT_FOUND;
+        } else if (employeeId == null) {
+            throw DEPARTMENT_NOT_FOUND;
+        }
+        throw EMPLOYEE_NOT_FOUND;
     }
 
     /**
@@ -119,6 +243,10 @@ public class DepartmentLogic implements IDepartmentLogic {
             entity.setCompany(company);
 
             entity = persistence.create(entity);
+            companyPersistence.touch(companyid);
+            sharedCache.evictAfterCommit(CompanyEntity.class, companyid);
+            ownershipIndex.departmentSaved(entity.getId(), companyid);
+            modificationStamps.departmentChanged(companyid);
         }
         return entity;
     }
@@ -134,13 +262,29 @@ public class DepartmentLogic implements IDepartmentLogic {
      */
     @Override
     public DepartmentEntity updateDepartment(Long companyid, DepartmentEntity entity) {
+        DepartmentEntity old = persistence.find(entity.getId());
+        if (old != null && old.getCompany() != null) {
+            sharedCache.evictAfterCommit(CompanyEntity.class, old.getCompany().getId());
+            if (!old.getCompany().getId().equals(companyid)) {
+                companyPersistence.touch(old.getCompany().getId());
+                modificationStamps.departmentChanged(old.getCompany().getId());
+                Integer employees = persistence.findEmployeeCount(old.getId());
+                companyPersistence.adjustEmployeeCount(old.getCompany().getId(), -employees);
+                companyPersistence.adjustEmployeeCount(companyid, employees);
+            }
+        }
         CompanyEntity company = companyLogic.getCompany(companyid);
         entity.setCompany(company);
+        companyPersistence.touch(companyid);
+        sharedCache.evictAfterCommit(CompanyEntity.class, companyid);
+        ownershipIndex.departmentSaved(entity.getId(), companyid);
+        modificationStamps.departmentChanged(companyid);
         return persistence.update(entity);
     }
 
     /**
-     * Elimina una instancia de Department de la base de datos.
+     * Elimina una instancia de Department de la base de datos. Sus Employees
+     * quedan sin Department y se restan del número de employees del Company.
      *
      * @param id Identificador de la instancia a eliminar.
      * @param companyid id del Company el cual es padre del Department.
@@ -148,8 +292,27 @@ public class DepartmentLogic implements IDepartmentLogic {
      */
     @Override
     public void deleteDepartment(Long id) {
+        // El contador del Company se resta antes de borrar porque se resuelve
+        // a través de la fila del Department.
+        List<Long> employeeIds = employeePersistence.findIdsByDepartment(id);
+        if (!employeeIds.isEmpty()) {
+            long[] ids = new long[employeeIds.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = employeeIds.get(i);
+            }
+            int removed = employeePersistence.unassignDepartment(ids, id);
+            persistence.adjustEmployeeCount(id, -removed);
+            ownershipIndex.employeesMoved(ids, null);
+            modificationStamps.employeesChanged();
+        }
         DepartmentEntity old = getDepartment(id);
+        if (old.getCompany() != null) {
+            companyPersistence.touch(old.getCompany().getId());
+            modificationStamps.departmentChanged(old.getCompany().getId());
+            sharedCache.evictAfterCommit(CompanyEntity.class, old.getCompany().getId());
+        }
         persistence.delete(old.getId());
+        ownershipIndex.departmentDeleted(old.getId());
     }
 
     /**
@@ -198,7 +361,20 @@ public class DepartmentLogic implements IDepartmentLogic {
     public EmployeeEntity addEmployee(Long departmentId, Long employeesId) {
         DepartmentEntity departmentEntity = persistence.find(departmentId);
         EmployeeEntity employeesEntity = employeeLogic.getEmployee(employeesId);
+        DepartmentEntity oldDepartment = employeesEntity.getDepartment();
+        if (oldDepartment != null) {
+            sharedCache.evictAfterCommit(DepartmentEntity.class, oldDepartment.getId());
+        }
         employeesEntity.setDepartment(departmentEntity);
+        sharedCache.evictAfterCommit(DepartmentEntity.class, departmentId);
+        ownershipIndex.employeeSaved(employeesId, departmentId);
+        modificationStamps.employeesChanged();
+        if (oldDepartment == null || !oldDepartment.getId().equals(departmentId)) {
+            if (oldDepartment != null) {
+                persistence.adjustEmployeeCount(oldDepartment.getId(), -1);
+            }
+            persistence.adjustEmployeeCount(departmentId, 1);
+        }
         return employeesEntity;
     }
 
@@ -211,21 +387,75 @@ public class DepartmentLogic implements IDepartmentLogic {
      * instancia de Department
      * @return Nueva colección de EmployeeEntity asociada a la instancia de
      * Department
+     * @throws BusinessLogicException si algún Employee de la colección no
+     * existe
      *
      */
     @Override
-    public List<EmployeeEntity> replaceEmployees(Long departmentId, List<EmployeeEntity> list) {
+    public List<EmployeeEntity> replaceEmployees(Long departmentId, List<EmployeeEntity> list) throws BusinessLogicException {
         DepartmentEntity departmentEntity = persistence.find(departmentId);
-        List<EmployeeEntity> employeeList = employeeLogic.getEmployees();
-        for (EmployeeEntity employee : employeeList) {
-            if (list.contains(employee)) {
-                employee.setDepartment(departmentEntity);
-            } else if (employee.getDepartment() != null && employee.getDepartment().equals(departmentEntity)) {
-                employee.setDepartment(null);
+        LongHashSet requested = new LongHashSet(list.size());
+        for (EmployeeEntity employee : list) {
+            if (employee.getId() == null) {
+                throw new BusinessLogicException("Todos los employees deben tener id");
+            }
+            requested.add(employee.getId());
+        }
+        long[] requestedIds = requested.toArray();
+        List<Long> existing = employeePersistence.findExistingIds(requestedIds);
+        if (existing.size() != requestedIds.length) {
+            LongHashSet found = new LongHashSet(existing.size());
+            for (Long id : existing) {
+                found.add(id);
+            }
+            StringBuilder missing = new StringBuilder();
+            for (long id : requestedIds) {
+                if (!found.contains(id)) {
+                    missing.append(missing.length() == 0 ? "" : ", ").append(id);
+                }
+            }
+            throw new BusinessLogicException("No existen los employees con id " + missing);
+        }
+
+        List<Long> currentIds = employeePersistence.findIdsByDepartment(departmentId);
+        LongHashSet current = new LongHashSet(currentIds.size());
+        long[] removals = new long[currentIds.size()];
+        int removalCount = 0;
+        for (Long id : currentIds) {
+            current.add(id);
+            if (!requested.contains(id)) {
+                removals[removalCount++] = id;
             }
         }
-        departmentEntity.setEmployees(list);
-        return departmentEntity.getEmployees();
+        long[] additions = new long[requestedIds.length];
+        int additionCount = 0;
+        for (long id : requestedIds) {
+            if (!current.contains(id)) {
+                additions[additionCount++] = id;
+            }
+        }
+        LOGGER.log(Level.INFO, "Reemplazando employees del department con id={0}: {1} nuevos, {2} retirados",
+                new Object[]{departmentId, additionCount, removalCount});
+        if (removalCount > 0) {
+            long[] removedIds = Arrays.copyOf(removals, removalCount);
+            int removed = employeePersistence.unassignDepartment(removedIds, departmentId);
+            persistence.adjustEmployeeCount(departmentId, -removed);
+            ownershipIndex.employeesMoved(removedIds, null);
+        }
+        if (additionCount > 0) {
+            long[] added = Arrays.copyOf(additions, additionCount);
+            Map<Long, Integer> previous = employeePersistence.countByDepartment(added);
+            int assigned = employeePersistence.assignDepartment(added, departmentEntity);
+            for (Map.Entry<Long, Integer> department : previous.entrySet()) {
+                persistence.adjustEmployeeCount(department.getKey(), -department.getValue());
+            }
+            persistence.adjustEmployeeCount(departmentId, assigned);
+            ownershipIndex.employeesMoved(added, departmentId);
+        }
+        if (removalCount > 0 || additionCount > 0) {
+            modificationStamps.employeesChanged();
+        }
+        return employeePersistence.findByDepartment(departmentId);
     }
 
     /**
@@ -238,6 +468,13 @@ public class DepartmentLogic implements IDepartmentLogic {
     @Override
     public void removeEmployee(Long departmentId, Long employeesId) {
         EmployeeEntity entity = employeeLogic.getEmployee(employeesId);
+        DepartmentEntity oldDepartment = entity.getDepartment();
         entity.setDepartment(null);
+        ownershipIndex.employeeSaved(employeesId, null);
+        modificationStamps.employeesChanged();
+        if (oldDepartment != null) {
+            sharedCache.evictAfterCommit(DepartmentEntity.class, oldDepartment.getId());
+            persistence.adjustEmployeeCount(oldDepartment.getId(), -1);
+        }
     }
 }
@@ -23,13 +23,27 @@ SOFTWARE.
  */
 package co.edu.uniandes.csw.company.ejbs;
 
+import co.edu.uniandes.csw.company.api.BatchItemResult;
 import co.edu.uniandes.csw.company.api.IEmployeeLogic;
+import co.edu.uniandes.csw.company.entities.DepartmentEntity;
 import co.edu.uniandes.csw.company.entities.EmployeeEntity;
+import co.edu.uniandes.csw.company.persistence.DepartmentPersistence;
 import co.edu.uniandes.csw.company.persistence.EmployeePersistence;
+import co.edu.uniandes.csw.company.persistence.ExistenceFilter;
+import co.edu.uniandes.csw.company.persistence.ModificationStamps;
+import co.edu.uniandes.csw.company.persistence.OwnershipIndex;
+import co.edu.uniandes.csw.company.persistence.SharedCache;
+import co.edu.uniandes.csw.company.projections.EmployeeSummary;
+import co.edu.uniandes.csw.company.util.LongHashSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
-import javax.persistence.NoResultException;
 
 
 @Stateless
@@ -37,6 +51,16 @@ public class EmployeeLogic implements IEmployeeLogic {
 
     @Inject private EmployeePersistence persistence;
 
+    @Inject private DepartmentPersistence departmentPersistence;
+
+    @Inject private SharedCache sharedCache;
+
+    @Inject private OwnershipIndex ownershipIndex;
+
+    @Inject private ModificationStamps modificationStamps;
+
+    @Inject private ExistenceFilter existenceFilter;
+
 
     /**
      * Obtiene la lista de los registros de Employee.
@@ -49,23 +73,76 @@ public class EmployeeLogic implements IEmployeeLogic {
         return persistence.findAll();
     }
 
+    /**
+     * Obtiene una página de los registros de Employee ordenados por id.
+     *
+     * @param afterId id del último Employee de la página anterior, o null
+     * para la primera página.
+     * @param limit número máximo de registros a retornar.
+     * @return Colección de objetos de EmployeeEntity con id mayor a afterId.
+     *
+     */
+    @Override
+    public List<EmployeeEntity> getEmployees(Long afterId, int limit) {
+        return persistence.findPage(afterId, limit);
+    }
+
+    /**
+     * Obtiene los datos de los Employees y de su Department, ordenados por
+     * id, sin cargar las entidades.
+     *
+     * @param afterId id del último Employee de la página anterior, o null
+     * para la primera página.
+     * @param limit número máximo de registros a retornar, o null para
+     * retornarlos todos.
+     * @return Colección de EmployeeSummary con id mayor a afterId.
+     *
+     */
+    @Override
+    public List<EmployeeSummary> getEmployeeSummaries(Long afterId, Integer limit) {
+        return persistence.findSummaries(afterId, limit);
+    }
+
+    /**
+     * Recorre todos los registros de Employee sin cargarlos todos en memoria.
+     * Cada Employee se entrega al consumidor en cuanto se lee de la base de
+     * datos; el consumidor no debe guardar referencias a las entidades.
+     *
+     * @param consumer consumidor que recibe cada EmployeeEntity.
+     * @return número de Employees recorridos.
+     *
+     */
+    @Override
+    public int streamEmployees(Consumer<EmployeeEntity> consumer) {
+        return persistence.forEach(consumer);
+    }
+
 
     /**
      * Obtiene los datos de una instancia de Employee a partir de su ID.
      *
      * @param id Identificador de la instancia a consultar
      * @return Instancia de EmployeeEntity con los datos del Employee consultado.
+     * Null si no existe; los ids que se sabe que no existen no se consultan
+     * en la base de datos, ver ExistenceFilter.
      * 
      */
     public EmployeeEntity getEmployee(Long id) {
-        return persistence.find(id);
+        if (existenceFilter.isMissing(EmployeeEntity.class, id)) {
+            return null;
+        }
+        EmployeeEntity entity = persistence.find(id);
+        if (entity == null) {
+            existenceFilter.recordMissing(EmployeeEntity.class, id);
+        }
+        return entity;
     }
 
     /**
      * Obtiene los datos de una instancia de Employee a partir de su name.
      *
      * @param name nombre del empleado de la instancia a consultar
-     * @return el primer empleado con ese nombre .
+     * @return el primer empleado con ese nombre, o null si no hay ninguno.
      * 
      */
     public EmployeeEntity getEmployeeByName(String name) {
@@ -81,9 +158,79 @@ public class EmployeeLogic implements IEmployeeLogic {
     @Override
     public EmployeeEntity createEmployee(EmployeeEntity entity) {
         persistence.create(entity);
+        evictDepartment(entity);
+        Long departmentId = departmentId(entity);
+        if (departmentId != null) {
+            departmentPersistence.adjustEmployeeCount(departmentId, 1);
+        }
+        ownershipIndex.employeeSaved(entity.getId(), departmentId);
+        modificationStamps.employeesChanged();
         return entity;
     }
 
+    /**
+     * Crea una colección de Employees en una sola transacción. Los Employees
+     * que referencian un Department inexistente se rechazan sin afectar a los
+     * demás; el resto se persiste por lotes.
+     *
+     * @param entities Objetos de EmployeeEntity con los datos nuevos
+     * @return Resultado de cada Employee, en el mismo orden de la colección
+     * recibida, con la entidad creada o el motivo del rechazo.
+     *
+     */
+    @Override
+    public List<BatchItemResult<EmployeeEntity>> createEmployees(List<EmployeeEntity> entities) {
+        Set<Long> departmentIds = new HashSet<>();
+        for (EmployeeEntity entity : entities) {
+            if (entity != null && entity.getDepartment() != null && entity.getDepartment().getId() != null) {
+                departmentIds.add(entity.getDepartment().getId());
+            }
+        }
+        Set<Long> existingDepartments = new HashSet<>(departmentPersistence.findExistingIds(departmentIds));
+
+        List<BatchItemResult<EmployeeEntity>> results = new ArrayList<>(entities.size());
+        List<EmployeeEntity> valid = new ArrayList<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            EmployeeEntity entity = entities.get(i);
+            if (entity == null) {
+                results.add(BatchItemResult.<EmployeeEntity>failure(i, "El employee está vacío"));
+            } else if (entity.getDepartment() != null
+                    && !existingDepartments.contains(entity.getDepartment().getId())) {
+                results.add(BatchItemResult.<EmployeeEntity>failure(i, "El department no existe"));
+            } else {
+                results.add(BatchItemResult.success(i, entity));
+                valid.add(entity);
+            }
+        }
+        persistence.createAll(valid);
+        Map<Long, Integer> created = new HashMap<>();
+        Map<Long, LongHashSet> members = new HashMap<>();
+        for (EmployeeEntity entity : valid) {
+            Long departmentId = departmentId(entity);
+            LongHashSet ids = members.get(departmentId);
+            if (ids == null) {
+                ids = new LongHashSet();
+                members.put(departmentId, ids);
+            }
+            ids.add(entity.getId());
+            if (departmentId != null) {
+                Integer previous = created.get(departmentId);
+                created.put(departmentId, previous == null ? 1 : previous + 1);
+            }
+        }
+        for (Map.Entry<Long, LongHashSet> department : members.entrySet()) {
+            ownershipIndex.employeesMoved(department.getValue().toArray(), department.getKey());
+        }
+        if (!valid.isEmpty()) {
+            modificationStamps.employeesChanged();
+        }
+        for (Map.Entry<Long, Integer> department : created.entrySet()) {
+            departmentPersistence.adjustEmployeeCount(department.getKey(), department.getValue());
+            sharedCache.evictAfterCommit(DepartmentEntity.class, department.getKey());
+        }
+        return results;
+    }
+
     /**
      * Actualiza la información de una instancia de Employee.
      *
@@ -93,7 +240,23 @@ public class EmployeeLogic implements IEmployeeLogic {
      */
     @Override
     public EmployeeEntity updateEmployee(EmployeeEntity entity) {
-        return persistence.update(entity);
+        EmployeeEntity old = persistence.find(entity.getId());
+        Long oldDepartmentId = departmentId(old);
+        evictDepartment(old);
+        EmployeeEntity updated = persistence.update(entity);
+        evictDepartment(updated);
+        Long newDepartmentId = departmentId(updated);
+        ownershipIndex.employeeSaved(updated.getId(), newDepartmentId);
+        modificationStamps.employeesChanged();
+        if (oldDepartmentId != null ? !oldDepartmentId.equals(newDepartmentId) : newDepartmentId != null) {
+            if (oldDepartmentId != null) {
+                departmentPersistence.adjustEmployeeCount(oldDepartmentId, -1);
+            }
+            if (newDepartmentId != null) {
+                departmentPersistence.adjustEmployeeCount(newDepartmentId, 1);
+            }
+        }
+        return updated;
     }
 
     /**
@@ -104,7 +267,36 @@ public class EmployeeLogic implements IEmployeeLogic {
      */
     @Override
     public void deleteEmployee(Long id) {
+        EmployeeEntity old = persistence.find(id);
+        evictDepartment(old);
+        Long departmentId = departmentId(old);
         persistence.delete(id);
+        ownershipIndex.employeeDeleted(id);
+        modificationStamps.employeesChanged();
+        if (departmentId != null) {
+            departmentPersistence.adjustEmployeeCount(departmentId, -1);
+        }
+    }
+
+    /**
+     * Invalida en el caché compartido el Department de un Employee, cuya
+     * colección de employees EclipseLink no actualiza por sí mismo.
+     *
+     * @param entity Employee modificado, puede ser null.
+     */
+    private void evictDepartment(EmployeeEntity entity) {
+        if (entity != null && entity.getDepartment() != null) {
+            sharedCache.evictAfterCommit(DepartmentEntity.class, entity.getDepartment().getId());
+        }
+    }
+
+    /**
+     * Obtiene el id del Department de un Employee.
+     *
+     * @param entity Employee, puede ser null.
+     * @return id del Department, o null si el Employee no tiene.
+     */
+    private static Long departmentId(EmployeeEntity entity) {
+        return entity == null || entity.getDepartment() == null ? null : entity.getDepartment().getId();
     }
-  
 }
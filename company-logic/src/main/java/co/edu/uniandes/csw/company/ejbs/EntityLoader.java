@@ -0,0 +1,194 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.ejbs;
+
+import co.edu.uniandes.csw.company.api.IEntityLoader;
+import co.edu.uniandes.csw.company.persistence.EmployeePersistence;
+import co.edu.uniandes.csw.company.persistence.QueryTimeouts;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Resource;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Implementación de {@link IEntityLoader} con alcance de transacción. Los
+ * ids pendientes y las entidades cargadas se guardan como recurso de la
+ * transacción actual, no de la petición HTTP, de modo que el loader funciona
+ * también en los hilos de los bulkheads y dentro de las fachadas. Las
+ * entidades quedan asociadas al contexto de persistencia de la transacción
+ * y se pueden modificar; no se debe usar después de limpiar el contexto (por
+ * ejemplo, con EmployeePersistence.createAll).
+ */
+@Stateless
+@TransactionAttribute(TransactionAttributeType.MANDATORY)
+public class EntityLoader implements IEntityLoader {
+
+    private static final Logger LOGGER = Logger.getLogger(EntityLoader.class.getName());
+
+    @PersistenceContext(unitName = "CompanyPU")
+    protected EntityManager em;
+
+    @Resource
+    private TransactionSynchronizationRegistry registry;
+
+    /**
+     * Registra un id para que se consulte junto con los demás ids pendientes
+     * del mismo tipo.
+     *
+     * @param type clase de la entidad
+     * @param id identificador de la entidad
+     *
+     */
+    @Override
+    public void prime(Class<?> type, Long id) {
+        batch().prime(type, id);
+    }
+
+    /**
+     * Obtiene una entidad por id, consultando en el mismo lote los demás ids
+     * pendientes de su tipo.
+     *
+     * @param type clase de la entidad
+     * @param id identificador de la entidad
+     * @return la entidad, o null si no existe
+     *
+     */
+    @Override
+    public <T> T load(Class<T> type, Long id) {
+        if (id == null) {
+            return null;
+        }
+        Batch batch = batch();
+        batch.prime(type, id);
+        resolve(batch, type);
+        return type.cast(batch.loadedOf(type).get(id));
+    }
+
+    /**
+     * Obtiene varias entidades del mismo tipo con una sola consulta.
+     *
+     * @param type clase de la entidad
+     * @param ids identificadores de las entidades
+     * @return las entidades que existen, en el orden de ids
+     *
+     */
+    @Override
+    public <T> List<T> loadAll(Class<T> type, Collection<Long> ids) {
+        Batch batch = batch();
+        for (Long id : ids) {
+            batch.prime(type, id);
+        }
+        resolve(batch, type);
+        Map<Long, Object> entities = batch.loadedOf(type);
+        List<T> list = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Object entity = id == null ? null : entities.get(id);
+            if (entity != null) {
+                list.add(type.cast(entity));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Obtiene el estado del loader en la transacción actual.
+     */
+    private Batch batch() {
+        Batch batch = (Batch) registry.getResource(Batch.class);
+        if (batch == null) {
+            batch = new Batch();
+            registry.putResource(Batch.class, batch);
+        }
+        return batch;
+    }
+
+    /**
+     * Consulta los ids pendientes de un tipo y memoriza el resultado,
+     * incluidos los ids que no existen.
+     */
+    private void resolve(Batch batch, Class<?> type) {
+        Set<Long> ids = batch.pending.remove(type);
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        LOGGER.log(Level.FINE, "Cargando {0} {1} en lote", new Object[]{ids.size(), type.getSimpleName()});
+        Map<Long, Object> entities = batch.loadedOf(type);
+        String jpql = "select e from " + em.getMetamodel().entity(type).getName() + " e where e.id in :ids";
+        List<Long> pending = new ArrayList<>(ids);
+        for (int from = 0; from < pending.size(); from += EmployeePersistence.IN_CLAUSE_CHUNK_SIZE) {
+            List<Long> chunk = pending.subList(from, Math.min(from + EmployeePersistence.IN_CLAUSE_CHUNK_SIZE, pending.size()));
+            for (Object entity : QueryTimeouts.apply(em.createQuery(jpql, type)).setParameter("ids", chunk).getResultList()) {
+                entities.put((Long) em.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity), entity);
+            }
+        }
+        for (Long id : pending) {
+            if (!entities.containsKey(id)) {
+                entities.put(id, null);
+            }
+        }
+    }
+
+    /**
+     * Ids pendientes y entidades cargadas en una transacción.
+     */
+    private static final class Batch {
+
+        private final Map<Class<?>, Map<Long, Object>> loaded = new HashMap<>();
+
+        private final Map<Class<?>, Set<Long>> pending = new HashMap<>();
+
+        private void prime(Class<?> type, Long id) {
+            if (id == null || loadedOf(type).containsKey(id)) {
+                return;
+            }
+            Set<Long> ids = pending.get(type);
+            if (ids == null) {
+                ids = new LinkedHashSet<>();
+                pending.put(type, ids);
+            }
+            ids.add(id);
+        }
+
+        private Map<Long, Object> loadedOf(Class<?> type) {
+            Map<Long, Object> entities = loaded.get(type);
+            if (entities == null) {
+                entities = new HashMap<>();
+                loaded.put(type, entities);
+            }
+            return entities;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.ejbs;
+
+import co.edu.uniandes.csw.company.persistence.CompanyPersistence;
+import co.edu.uniandes.csw.company.persistence.DepartmentPersistence;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+
+/**
+ * Recalcula el número de employees de los departments y companies a partir de
+ * los employees existentes. La lógica mantiene esos contadores con
+ * actualizaciones atómicas; este proceso corrige las diferencias que dejen
+ * los cambios hechos por fuera de ella (por ejemplo, directamente en la base
+ * de datos) y asigna el valor inicial a los registros creados antes de que
+ * existieran las columnas.
+ *
+ * Se ejecuta al desplegar la aplicación y cada 15 minutos. Solo escribe los
+ * contadores que no coinciden, y solo si no cambiaron desde que se leyeron.
+ */
+@Singleton
+@Startup
+public class HeadcountReconciler {
+
+    private static final Logger LOGGER = Logger.getLogger(HeadcountReconciler.class.getName());
+
+    @Inject
+    private DepartmentPersistence departmentPersistence;
+
+    @Inject
+    private CompanyPersistence companyPersistence;
+
+    @PostConstruct
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void init() {
+        run();
+    }
+
+    /**
+     * Ejecución periódica de {@link #reconcile()}.
+     */
+    @Schedule(hour = "*", minute = "*/15", persistent = false)
+    public void run() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "No se pudo recalcular el número de employees", e);
+        }
+    }
+
+    /**
+     * Recalcula los contadores de employees con una consulta agregada y
+     * corrige los que no coinciden.
+     *
+     * @return número de contadores corregidos.
+     */
+    public int reconcile() {
+        Map<Long, Integer> companyCounts = new HashMap<>();
+        Map<Long, Integer> companyRecorded = new HashMap<>();
+        int fixed = 0;
+        for (Object[] row : departmentPersistence.countEmployees()) {
+            Long departmentId = (Long) row[0];
+            Long companyId = (Long) row[1];
+            Integer recorded = toInteger(row[2]);
+            int actual = toInteger(row[4]);
+            if ((recorded == null || recorded != actual)
+                    && departmentPersistence.updateEmployeeCount(departmentId, recorded, actual)) {
+                fixed++;
+            }
+            if (companyId != null) {
+                Integer previous = companyCounts.get(companyId);
+                companyCounts.put(companyId, previous == null ? actual : previous + actual);
+                companyRecorded.put(companyId, toInteger(row[3]));
+            }
+        }
+        for (Map.Entry<Long, Integer> company : companyCounts.entrySet()) {
+            Integer recorded = companyRecorded.get(company.getKey());
+            int actual = company.getValue();
+            if ((recorded == null || recorded != actual)
+                    && companyPersistence.updateEmployeeCount(company.getKey(), recorded, actual)) {
+                fixed++;
+            }
+        }
+        fixed += companyPersistence.resetEmptyEmployeeCounts();
+        if (fixed > 0) {
+            LOGGER.log(Level.WARNING, "Se corrigieron {0} contadores de employees", fixed);
+        }
+        return fixed;
+    }
+
+    private static Integer toInteger(Object value) {
+        return value == null ? null : ((Number) value).intValue();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.ejbs;
+
+import co.edu.uniandes.csw.company.api.IStatisticsLogic;
+import co.edu.uniandes.csw.company.persistence.CacheStatistics;
+import co.edu.uniandes.csw.company.persistence.OwnershipIndex;
+import co.edu.uniandes.csw.company.util.Deadline;
+import co.edu.uniandes.csw.company.util.SingleFlight;
+import java.util.List;
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+
+@Stateless
+public class StatisticsLogic implements IStatisticsLogic {
+
+    @Inject
+    private OwnershipIndex ownershipIndex;
+
+    /**
+     * Obtiene los contadores del caché compartido de cada entidad.
+     *
+     * @return Colección con los aciertos, fallos y expulsiones de cada
+     * entidad.
+     *
+     */
+    @Override
+    public List<CacheStatistics.Entry> getCacheStatistics() {
+        return CacheStatistics.snapshot();
+    }
+
+    /**
+     * Obtiene el tamaño, la memoria y la antigüedad del índice de pertenencia
+     * department→company y employee→department.
+     *
+     * @return valores del índice en este momento.
+     *
+     */
+    @Override
+    public OwnershipIndex.Statistics getOwnershipStatistics() {
+        return ownershipIndex.statistics();
+    }
+
+    /**
+     * Obtiene los contadores de las consultas concurrentes agrupadas de cada
+     * operación.
+     *
+     * @return Colección con las cargas ejecutadas y las llamadas agrupadas de
+     * cada operación.
+     *
+     */
+    @Override
+    public List<SingleFlight.Entry> getCoalescingStatistics() {
+        return SingleFlight.snapshot();
+    }
+
+    /**
+     * Obtiene los contadores de las peticiones descartadas, respondidas por
+     * tiempo y con consultas canceladas por el plazo de cada endpoint.
+     *
+     * @return Colección con los contadores de cada endpoint.
+     *
+     */
+    @Override
+    public List<Deadline.Entry> getDeadlineStatistics() {
+        return Deadline.snapshot();
+    }
+}
@@ -23,10 +23,16 @@ SOFTWARE.
  */
 package co.edu.uniandes.csw.company.entities;
 import java.io.Serializable;
+import co.edu.uniandes.csw.company.persistence.ExistenceListener;
+import co.edu.uniandes.csw.company.persistence.ModificationListener;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.MappedSuperclass;
+import javax.persistence.TableGenerator;
+import javax.persistence.Version;
+import uk.co.jemos.podam.common.PodamExclude;
 /**
  * Generic entity with ID and name fields to inherit from.
  * 
@@ -36,12 +42,35 @@ import javax.persistence.MappedSuperclass;
  * @author jd.patino10
  */
 @MappedSuperclass
+@EntityListeners({ExistenceListener.class, ModificationListener.class})
 public abstract class BaseEntity implements Serializable{
+
+    /**
+     * Nombre del generador de ids compartido por todas las entidades.
+     */
+    public static final String ID_GENERATOR = "EntityIdGenerator";
+
+    /**
+     * Ids asignados por bloques (hi/lo) desde la tabla ID_SEQUENCE, de modo que
+     * las inserciones no necesitan leer la llave generada y se pueden enviar
+     * por lotes. El tamaño del bloque se puede cambiar por nodo, ver
+     * CompanySessionCustomizer.
+     */
     @Id
-    @GeneratedValue(strategy=GenerationType.IDENTITY)
+    @TableGenerator(name = ID_GENERATOR, table = "ID_SEQUENCE", pkColumnName = "SEQ_NAME",
+            valueColumnName = "SEQ_COUNT", pkColumnValue = "ENTITY_ID", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = ID_GENERATOR)
     private Long id;
     private String name;
 
+    /**
+     * Versión para el bloqueo optimista. Se incrementa con cada
+     * actualización y de ella se derivan los ETags de los servicios REST.
+     */
+    @Version
+    @PodamExclude
+    private Long version;
+
     public Long getId() {
         return id;
     }
@@ -58,6 +87,14 @@ public abstract class BaseEntity implements Serializable{
         this.name = name;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this.getId() != null && ((BaseEntity) obj).getId() != null) {
@@ -73,4 +110,4 @@ public abstract class BaseEntity implements Serializable{
         }
         return super.hashCode();
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
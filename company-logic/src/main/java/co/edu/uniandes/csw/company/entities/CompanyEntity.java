@@ -24,18 +24,34 @@ SOFTWARE.
 package co.edu.uniandes.csw.company.entities;
 
 import java.io.Serializable;
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
 
 import java.util.ArrayList;
 import java.util.List;
 import javax.persistence.CascadeType;
 import javax.persistence.OneToMany;
+import uk.co.jemos.podam.common.PodamExclude;
 
 
 @Entity
+@Table(indexes = {
+    @Index(name = "IDX_COMPANY_NAME", columnList = "NAME", unique = true)
+})
 public class CompanyEntity extends BaseEntity implements Serializable {
 
-    
+
+    /**
+     * Número de employees del company. Se mantiene con actualizaciones atómicas
+     * desde la lógica y lo corrige HeadcountReconciler, por eso no se escribe
+     * al actualizar la entidad.
+     */
+    @PodamExclude
+    @Column(updatable = false)
+    private int employeeCount;
+
     @OneToMany(mappedBy = "company", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<DepartmentEntity> departments = new ArrayList<>();
 
@@ -54,4 +70,14 @@ public class CompanyEntity extends BaseEntity implements Serializable {
     public void setDepartments(List<DepartmentEntity> departments) {
         this.departments = departments;
     }
+
+    /**
+     * Obtiene el número de employees del company.
+     *
+     * @return número de employees.
+     *
+     */
+    public int getEmployeeCount() {
+        return employeeCount;
+    }
 }
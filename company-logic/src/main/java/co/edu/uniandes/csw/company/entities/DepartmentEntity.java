@@ -24,7 +24,10 @@ SOFTWARE.
 package co.edu.uniandes.csw.company.entities;
 
 import java.io.Serializable;
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
 import uk.co.jemos.podam.common.PodamExclude;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
@@ -32,8 +35,20 @@ import java.util.List;
 import java.util.ArrayList;
 
 @Entity
+@Table(indexes = {
+    @Index(name = "IDX_DEPARTMENT_COMPANY_NAME", columnList = "COMPANY_ID, NAME")
+})
 public class DepartmentEntity extends BaseEntity implements Serializable {
 
+    /**
+     * Número de employees del department. Se mantiene con actualizaciones atómicas
+     * desde la lógica y lo corrige HeadcountReconciler, por eso no se escribe
+     * al actualizar la entidad.
+     */
+    @PodamExclude
+    @Column(updatable = false)
+    private int employeeCount;
+
     @PodamExclude
     @ManyToOne
     private CompanyEntity company;
@@ -81,4 +96,14 @@ public class DepartmentEntity extends BaseEntity implements Serializable {
     public void setEmployees(List<EmployeeEntity> employees) {
         this.employees = employees;
     }
+
+    /**
+     * Obtiene el número de employees del department.
+     *
+     * @return número de employees.
+     *
+     */
+    public int getEmployeeCount() {
+        return employeeCount;
+    }
 }
@@ -25,11 +25,17 @@ package co.edu.uniandes.csw.company.entities;
 
 import java.io.Serializable;
 import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
 
 import uk.co.jemos.podam.common.PodamExclude;
 import javax.persistence.ManyToOne;
 
 @Entity
+@Table(indexes = {
+    @Index(name = "IDX_EMPLOYEE_NAME", columnList = "NAME"),
+    @Index(name = "IDX_EMPLOYEE_DEPARTMENT", columnList = "DEPARTMENT_ID")
+})
 public class EmployeeEntity extends BaseEntity implements Serializable {
 
     private Double salary;
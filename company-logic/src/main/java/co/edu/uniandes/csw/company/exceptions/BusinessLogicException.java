@@ -44,4 +44,21 @@ public class BusinessLogicException extends Exception {
         super(message, cause);
     }
 
+    private BusinessLogicException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
+
+    /**
+     * Crea una excepción sin traza de pila ni excepciones suprimidas, para
+     * errores esperados y frecuentes como los recursos que no existen. Como
+     * la instancia no cambia después de creada, se puede guardar en una
+     * constante y lanzar muchas veces.
+     *
+     * @param message mensaje de la excepción
+     * @return la excepción
+     */
+    public static BusinessLogicException stackless(String message) {
+        return new BusinessLogicException(message, false);
+    }
+
 }
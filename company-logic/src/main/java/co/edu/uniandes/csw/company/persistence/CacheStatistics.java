@@ -0,0 +1,160 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de aciertos, fallos y expulsiones del caché compartido de
+ * EclipseLink, por tipo de entidad. Los contadores son globales a la
+ * aplicación y se pueden actualizar desde cualquier hilo.
+ */
+public final class CacheStatistics {
+
+    private static final Map<String, Counters> COUNTERS = new ConcurrentHashMap<>();
+
+    private CacheStatistics() {
+    }
+
+    /**
+     * Registra un tipo de entidad para que aparezca en las estadísticas aunque
+     * todavía no tenga actividad.
+     *
+     * @param entity nombre de la entidad.
+     */
+    static void register(String entity) {
+        counters(entity);
+    }
+
+    /**
+     * Registra una consulta por id resuelta desde el caché compartido.
+     *
+     * @param entity nombre de la entidad.
+     */
+    static void hit(String entity) {
+        counters(entity).hits.increment();
+    }
+
+    /**
+     * Registra una consulta por id que tuvo que ir a la base de datos.
+     *
+     * @param entity nombre de la entidad.
+     */
+    static void miss(String entity) {
+        counters(entity).misses.increment();
+    }
+
+    /**
+     * Registra registros expulsados del caché compartido, por invalidación o
+     * por exceder su tamaño máximo.
+     *
+     * @param entity nombre de la entidad.
+     * @param count número de registros expulsados.
+     */
+    static void evicted(String entity, int count) {
+        counters(entity).evictions.add(count);
+    }
+
+    /**
+     * Obtiene una copia de los contadores de todas las entidades, ordenada
+     * por nombre de entidad.
+     *
+     * @return contadores de cada entidad.
+     */
+    public static List<Entry> snapshot() {
+        List<Entry> entries = new ArrayList<>();
+        for (Map.Entry<String, Counters> e : new ConcurrentSkipListMap<>(COUNTERS).entrySet()) {
+            Counters c = e.getValue();
+            entries.add(new Entry(e.getKey(), c.hits.sum(), c.misses.sum(), c.evictions.sum()));
+        }
+        return entries;
+    }
+
+    private static Counters counters(String entity) {
+        Counters counters = COUNTERS.get(entity);
+        if (counters == null) {
+            COUNTERS.putIfAbsent(entity, new Counters());
+            counters = COUNTERS.get(entity);
+        }
+        return counters;
+    }
+
+    private static final class Counters {
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+    }
+
+    /**
+     * Valores de los contadores de una entidad en un momento dado.
+     */
+    public static final class Entry {
+
+        private final String entity;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        private Entry(String entity, long hits, long misses, long evictions) {
+            this.entity = entity;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        /**
+         * @return nombre de la entidad.
+         */
+        public String getEntity() {
+            return entity;
+        }
+
+        /**
+         * @return consultas por id resueltas desde el caché.
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return consultas por id que fueron a la base de datos.
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return registros expulsados del caché.
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+    }
+}
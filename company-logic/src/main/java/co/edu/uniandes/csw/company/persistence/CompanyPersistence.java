@@ -24,9 +24,14 @@ SOFTWARE.
 package co.edu.uniandes.csw.company.persistence;
 
 import javax.ejb.Stateless;
+import javax.interceptor.Interceptors;
+import javax.inject.Inject;
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.PersistenceContext;
 import co.edu.uniandes.csw.company.entities.CompanyEntity;
+import co.edu.uniandes.csw.company.entities.DepartmentEntity;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -34,6 +39,7 @@ import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 
 @Stateless
+@Interceptors(PersistenceMetrics.class)
 public class CompanyPersistence {
 
     private static final Logger LOGGER = Logger.getLogger(CompanyPersistence.class.getName());
@@ -41,15 +47,19 @@ public class CompanyPersistence {
     @PersistenceContext(unitName = "CompanyPU")
     protected EntityManager em;
 
+    @Inject
+    private SharedCache sharedCache;
+
     public CompanyEntity find(Long id) {
         LOGGER.log(Level.INFO, "Consultando company con id={0}", id);
-        return em.find(CompanyEntity.class, id);
+        sharedCache.recordLookup(CompanyEntity.class, id);
+        return em.find(CompanyEntity.class, id, QueryTimeouts.hints());
     }
 
     public CompanyEntity findByName(String name) {
         LOGGER.log(Level.INFO, "Consultando company con name = {0}", name);
         TypedQuery<CompanyEntity> q
-                = em.createQuery("select u from CompanyEntity u where u.name = :name", CompanyEntity.class);
+                = QueryTimeouts.apply(em.createQuery("select u from CompanyEntity u where u.name = :name", CompanyEntity.class));
         q = q.setParameter("name", name);
         
        List<CompanyEntity> companiesSimilarName = q.getResultList();
@@ -62,8 +72,128 @@ public class CompanyPersistence {
 
     public List<CompanyEntity> findAll() {
         LOGGER.info("Consultando todos los companys");
-        Query q = em.createQuery("select u from CompanyEntity u");
-        return q.getResultList();
+        Query q = QueryTimeouts.apply(em.createQuery("select u from CompanyEntity u"));
+        return FetchPlan.COMPANY_DEPARTMENTS.apply(q, "u").getResultList();
+    }
+
+    /**
+     * Obtiene una página de companies ordenada por id usando paginación por
+     * llave (keyset): solo se leen los registros con id mayor a afterId, de
+     * modo que el costo de cada página no depende de su profundidad.
+     *
+     * @param afterId id de la última company de la página anterior, o null
+     * para obtener la primera página.
+     * @param limit número máximo de registros a retornar.
+     * @return lista de companies con id mayor a afterId.
+     */
+    public List<CompanyEntity> findPage(Long afterId, int limit) {
+        LOGGER.log(Level.INFO, "Consultando {0} companys después del id={1}", new Object[]{limit, afterId});
+        TypedQuery<CompanyEntity> q;
+        if (afterId == null) {
+            q = QueryTimeouts.apply(em.createQuery("select u from CompanyEntity u order by u.id", CompanyEntity.class));
+        } else {
+            q = QueryTimeouts.apply(em.createQuery("select u from CompanyEntity u where u.id > :afterId order by u.id", CompanyEntity.class));
+            q = q.setParameter("afterId", afterId);
+        }
+        return FetchPlan.COMPANY_DEPARTMENTS.apply(q.setMaxResults(limit), "u").getResultList();
+    }
+
+    /**
+     * Obtiene la versión de un company sin cargar la entidad ni sus
+     * departments.
+     *
+     * @param id id del company.
+     * @return versión del company, o null si no existe.
+     */
+    public Long findVersion(Long id) {
+        List<Long> versions = QueryTimeouts.apply(em.createQuery("select c.version from CompanyEntity c where c.id = :id", Long.class))
+                .setParameter("id", id)
+                .getResultList();
+        return versions.isEmpty() ? null : versions.get(0);
+    }
+
+    /**
+     * Incrementa la versión de un company al hacer commit, aunque sus columnas
+     * no cambien. Se usa cuando cambian sus departments, que hacen parte de
+     * su representación.
+     *
+     * @param id id del company.
+     */
+    public void touch(Long id) {
+        CompanyEntity entity = id == null ? null : em.find(CompanyEntity.class, id, QueryTimeouts.hints());
+        if (entity != null) {
+            em.lock(entity, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+        }
+    }
+
+    /**
+     * Obtiene el número de employees de un company.
+     *
+     * @param id id del company.
+     * @return número de employees, o null si el company no existe.
+     */
+    public Integer findEmployeeCount(Long id) {
+        LOGGER.log(Level.INFO, "Consultando número de employees del company con id={0}", id);
+        List<Integer> counts = QueryTimeouts.apply(em.createQuery("select coalesce(c.employeeCount, 0) from CompanyEntity c where c.id = :id", Integer.class))
+                .setParameter("id", id)
+                .getResultList();
+        return counts.isEmpty() ? null : counts.get(0);
+    }
+
+    /**
+     * Suma delta al número de employees de un company con una sentencia
+     * UPDATE atómica, sin cargar la entidad ni cambiar su versión (ver
+     * {@link CounterUpdates}).
+     *
+     * @param id id del company.
+     * @param delta cantidad a sumar, negativa para restar.
+     */
+    public void adjustEmployeeCount(Long id, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        LOGGER.log(Level.INFO, "Sumando {0} al número de employees del company con id={1}", new Object[]{delta, id});
+        CounterUpdates.execute(em, "UPDATE COMPANYENTITY SET EMPLOYEECOUNT = EMPLOYEECOUNT + ?1 WHERE ID = ?2", delta, id);
+        sharedCache.evictAfterCommit(CompanyEntity.class, id);
+    }
+
+    /**
+     * Deja en cero el número de employees de los companies que no tienen
+     * departments.
+     *
+     * @return número de companies actualizados.
+     */
+    public int resetEmptyEmployeeCounts() {
+        int updated = CounterUpdates.execute(em, "UPDATE COMPANYENTITY SET EMPLOYEECOUNT = 0"
+                + " WHERE (EMPLOYEECOUNT IS NULL OR EMPLOYEECOUNT <> 0)"
+                + " AND NOT EXISTS (SELECT 1 FROM DEPARTMENTENTITY d WHERE d.COMPANY_ID = COMPANYENTITY.ID)");
+        if (updated > 0) {
+            sharedCache.evictAllAfterCommit(CompanyEntity.class);
+        }
+        return updated;
+    }
+
+    /**
+     * Cambia el número de employees registrado de un company solo si todavía
+     * tiene el valor esperado, de modo que no se pierden los cambios hechos
+     * por transacciones concurrentes desde que se leyó.
+     *
+     * @param id id del company.
+     * @param expected valor leído, o null si la columna no tenía valor.
+     * @param actual nuevo valor.
+     * @return true si se actualizó el company.
+     */
+    public boolean updateEmployeeCount(Long id, Integer expected, int actual) {
+        int updated;
+        if (expected == null) {
+            updated = CounterUpdates.execute(em, "UPDATE COMPANYENTITY SET EMPLOYEECOUNT = ?1 WHERE ID = ?2 AND EMPLOYEECOUNT IS NULL", actual, id);
+        } else {
+            updated = CounterUpdates.execute(em, "UPDATE COMPANYENTITY SET EMPLOYEECOUNT = ?1 WHERE ID = ?2 AND EMPLOYEECOUNT = ?3", actual, id, expected);
+        }
+        if (updated > 0) {
+            sharedCache.evictAfterCommit(CompanyEntity.class, id);
+        }
+        return updated > 0;
     }
 
     public CompanyEntity create(CompanyEntity entity) {
@@ -73,14 +203,26 @@ public class CompanyPersistence {
         return entity;
     }
 
+    /**
+     * Actualiza un company. Si entity trae versión, la actualización falla
+     * con OptimisticLockException cuando el company cambió después de esa
+     * versión; si no, se actualiza sobre la versión actual.
+     *
+     * @param entity datos nuevos del company.
+     * @return el company actualizado, con su nueva versión.
+     */
     public CompanyEntity update(CompanyEntity entity) {
         LOGGER.log(Level.INFO, "Actualizando company con id={0}", entity.getId());
-        return em.merge(entity);
+        Versions.fillMissing(em, CompanyEntity.class, Collections.singletonList(entity));
+        Versions.fillMissing(em, DepartmentEntity.class, entity.getDepartments());
+        CompanyEntity merged = em.merge(entity);
+        em.flush();
+        return merged;
     }
 
     public void delete(Long id) {
         LOGGER.log(Level.INFO, "Borrando company con id={0}", id);
-        CompanyEntity entity = em.find(CompanyEntity.class, id);
+        CompanyEntity entity = em.find(CompanyEntity.class, id, QueryTimeouts.hints());
         em.remove(entity);
     }
 }
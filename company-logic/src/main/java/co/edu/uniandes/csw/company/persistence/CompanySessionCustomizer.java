@@ -0,0 +1,173 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.persistence;
+
+import co.edu.uniandes.csw.company.entities.BaseEntity;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.persistence.config.CacheIsolationType;
+import org.eclipse.persistence.config.SessionCustomizer;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.invalidation.TimeToLiveCacheInvalidationPolicy;
+import org.eclipse.persistence.sequencing.Sequence;
+import org.eclipse.persistence.sessions.Session;
+
+/**
+ * Ajusta la sesión de EclipseLink de la unidad de persistencia CompanyPU
+ * antes de que se conecte a la base de datos. Se registra con la propiedad
+ * eclipselink.session.customizer de persistence.xml.
+ *
+ * El número de ids que cada nodo reserva en cada acceso a la tabla de
+ * secuencias se toma de la propiedad de sistema o de persistence.xml
+ * {@value #ID_ALLOCATION_SIZE_PROPERTY}; si no está definida se usa el valor
+ * de la anotación en {@link BaseEntity}.
+ *
+ * El caché compartido de cada entidad se configura con las propiedades
+ * {@value #CACHE_SIZE_PROPERTY}&lt;Entidad&gt; (número máximo de registros, 0
+ * para no guardar la entidad en el caché) y {@value #CACHE_TTL_PROPERTY}&lt;Entidad&gt;
+ * (segundos que un registro se considera vigente). Las entidades sin valor
+ * propio usan {@value #CACHE_SIZE_PROPERTY}default y
+ * {@value #CACHE_TTL_PROPERTY}default. No se cambia nada si la unidad de
+ * persistencia tiene el caché compartido deshabilitado.
+ *
+ * Las sentencias SQL ejecutadas se cuentan con {@link StatementCounter}.
+ */
+public class CompanySessionCustomizer implements SessionCustomizer {
+
+    private static final Logger LOGGER = Logger.getLogger(CompanySessionCustomizer.class.getName());
+
+    /**
+     * Propiedad con el número de ids reservados por acceso a la secuencia.
+     */
+    public static final String ID_ALLOCATION_SIZE_PROPERTY = "company.id.allocation-size";
+
+    /**
+     * Prefijo de la propiedad con el tamaño máximo del caché de una entidad.
+     */
+    public static final String CACHE_SIZE_PROPERTY = "company.cache.size.";
+
+    /**
+     * Prefijo de la propiedad con la vigencia, en segundos, de los registros
+     * del caché de una entidad.
+     */
+    public static final String CACHE_TTL_PROPERTY = "company.cache.ttl.";
+
+    private static final String DEFAULT_SUFFIX = "default";
+
+    @Override
+    public void customize(Session session) {
+        customizeIdSequence(session);
+        customizeCaches(session);
+        session.setProfiler(new StatementCounter());
+    }
+
+    /**
+     * Configura la secuencia de ids compartida por todas las entidades. Los
+     * ids siempre los asigna la secuencia, aunque la entidad ya traiga uno,
+     * igual que con las columnas IDENTITY que se usaban antes.
+     */
+    private void customizeIdSequence(Session session) {
+        Integer allocationSize = intProperty(session, ID_ALLOCATION_SIZE_PROPERTY, 1);
+        Set<String> names = new HashSet<>();
+        for (ClassDescriptor descriptor : session.getDescriptors().values()) {
+            if (descriptor.usesSequenceNumbers()) {
+                names.add(descriptor.getSequenceNumberName());
+            }
+        }
+        for (String name : names) {
+            Sequence sequence = session.getLogin().getSequence(name);
+            if (sequence == null) {
+                continue;
+            }
+            sequence.setShouldAlwaysOverrideExistingValue(true);
+            if (allocationSize != null) {
+                sequence.setPreallocationSize(allocationSize);
+            }
+            LOGGER.log(Level.INFO, "Secuencia {0} reservando {1} ids por acceso",
+                    new Object[]{name, sequence.getPreallocationSize()});
+        }
+    }
+
+    /**
+     * Aplica a cada entidad el tamaño y la vigencia de su caché compartido.
+     */
+    private void customizeCaches(Session session) {
+        Integer defaultSize = intProperty(session, CACHE_SIZE_PROPERTY + DEFAULT_SUFFIX, 0);
+        Integer defaultTtl = intProperty(session, CACHE_TTL_PROPERTY + DEFAULT_SUFFIX, 1);
+        for (ClassDescriptor descriptor : session.getDescriptors().values()) {
+            String entity = descriptor.getAlias();
+            CacheStatistics.register(entity);
+            if (!descriptor.isSharedIsolation()) {
+                continue;
+            }
+            Integer size = intProperty(session, CACHE_SIZE_PROPERTY + entity, 0);
+            size = size != null ? size : defaultSize;
+            Integer ttl = intProperty(session, CACHE_TTL_PROPERTY + entity, 1);
+            ttl = ttl != null ? ttl : defaultTtl;
+            if (size != null && size == 0) {
+                descriptor.setCacheIsolation(CacheIsolationType.ISOLATED);
+                LOGGER.log(Level.INFO, "Caché compartido deshabilitado para {0}", entity);
+                continue;
+            }
+            if (size != null) {
+                descriptor.setIdentityMapClass(CountingCacheIdentityMap.class);
+                descriptor.setIdentityMapSize(size);
+            }
+            if (ttl != null) {
+                descriptor.setCacheInvalidationPolicy(new TimeToLiveCacheInvalidationPolicy(ttl * 1000L));
+            }
+            LOGGER.log(Level.INFO, "Caché compartido de {0}: {1} registros, vigencia {2} s",
+                    new Object[]{entity, descriptor.getIdentityMapSize(), ttl});
+        }
+    }
+
+    /**
+     * Lee una propiedad entera, primero de las propiedades de sistema y luego
+     * de las de la unidad de persistencia.
+     *
+     * @return el valor de la propiedad, o null si no está definida o es menor
+     * a min.
+     */
+    private static Integer intProperty(Session session, String name, int min) {
+        Object value = System.getProperty(name);
+        if (value == null) {
+            value = session.getProperty(name);
+        }
+        if (value == null) {
+            return null;
+        }
+        try {
+            int parsed = Integer.parseInt(value.toString().trim());
+            if (parsed >= min) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // se reporta abajo
+        }
+        LOGGER.log(Level.WARNING, "Valor inválido para {0}: {1}", new Object[]{name, value});
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.persistence;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+/**
+ * Sentencias UPDATE sobre los contadores de employees de companies y
+ * departments. Se escriben en SQL nativo porque un UPDATE masivo de JPQL
+ * sobre una entidad con @Version incrementa su versión, y con ella su ETag,
+ * aunque los contadores no aparezcan en la API. A diferencia de un UPDATE
+ * de JPQL, EclipseLink no invalida el caché compartido: quien las usa
+ * invalida los registros que cambian, con
+ * {@link SharedCache#evictAfterCommit(Class, Object)}.
+ */
+final class CounterUpdates {
+
+    private CounterUpdates() {
+    }
+
+    /**
+     * Ejecuta una sentencia UPDATE nativa con el plazo de la petición.
+     *
+     * @param em EntityManager de la transacción actual.
+     * @param sql sentencia con parámetros posicionales ?1, ?2...
+     * @param parameters valores de los parámetros, en orden.
+     * @return número de filas actualizadas.
+     */
+    static int execute(EntityManager em, String sql, Object... parameters) {
+        Query q = QueryTimeouts.apply(em.createNativeQuery(sql));
+        for (int i = 0; i < parameters.length; i++) {
+            q.setParameter(i + 1, parameters[i]);
+        }
+        return q.executeUpdate();
+    }
+}
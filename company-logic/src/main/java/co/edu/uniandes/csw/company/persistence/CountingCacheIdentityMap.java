@@ -0,0 +1,54 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.persistence;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.identitymaps.CacheIdentityMap;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+
+/**
+ * Caché de tamaño fijo de EclipseLink (se expulsan primero los registros
+ * usados hace más tiempo) que reporta las expulsiones en
+ * {@link CacheStatistics}. CompanySessionCustomizer lo asigna a las entidades
+ * que tienen un tamaño de caché configurado.
+ */
+public class CountingCacheIdentityMap extends CacheIdentityMap {
+
+    private final String entity;
+
+    public CountingCacheIdentityMap(int size, ClassDescriptor descriptor, AbstractSession session, boolean isolated) {
+        super(size, descriptor, session, isolated);
+        this.entity = descriptor.getAlias();
+    }
+
+    @Override
+    protected void ensureFixedSize() {
+        int before = getSize();
+        super.ensureFixedSize();
+        int evicted = before - getSize();
+        if (evicted > 0) {
+            CacheStatistics.evicted(entity, evicted);
+        }
+    }
+}
@@ -24,16 +24,28 @@ SOFTWARE.
 package co.edu.uniandes.csw.company.persistence;
 
 import javax.ejb.Stateless;
+import javax.interceptor.Interceptors;
+import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import co.edu.uniandes.csw.company.entities.CompanyEntity;
 import co.edu.uniandes.csw.company.entities.DepartmentEntity;
+import co.edu.uniandes.csw.company.projections.DepartmentSummary;
+import co.edu.uniandes.csw.company.projections.DepartmentVersion;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
+import org.eclipse.persistence.config.CacheUsage;
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
 
 @Stateless
+@Interceptors(PersistenceMetrics.class)
 public class DepartmentPersistence {
 
     private static final Logger LOGGER = Logger.getLogger(DepartmentPersistence.class.getName());
@@ -41,13 +53,17 @@ public class DepartmentPersistence {
     @PersistenceContext(unitName = "CompanyPU")
     protected EntityManager em;
 
+    @Inject
+    private SharedCache sharedCache;
+
     public DepartmentEntity find(Long id) {
         LOGGER.log(Level.INFO, "Consultando department con id={0}", id);
-        return em.find(DepartmentEntity.class, id);
+        sharedCache.recordLookup(DepartmentEntity.class, id);
+        return em.find(DepartmentEntity.class, id, QueryTimeouts.hints());
     }
 
     public DepartmentEntity findByName(Long companyId, String departmentName) {
-        TypedQuery q = em.createQuery("select d from DepartmentEntity d  where d.company.id = :companyId and d.name = :departmentName", DepartmentEntity.class);
+        TypedQuery q = QueryTimeouts.apply(em.createQuery("select d from DepartmentEntity d  where d.company.id = :companyId and d.name = :departmentName", DepartmentEntity.class));
         q = q.setParameter("companyId", companyId);
         q = q.setParameter("departmentName", departmentName);
 
@@ -62,17 +78,222 @@ public class DepartmentPersistence {
 
     public List<DepartmentEntity> findAll() {
         LOGGER.info("Consultando todos los departments");
-        Query q = em.createQuery("select u from DepartmentEntity u");
+        Query q = QueryTimeouts.apply(em.createQuery("select u from DepartmentEntity u"));
         return q.getResultList();
     }
 
+    /**
+     * Filtra una colección de ids dejando solo los que corresponden a
+     * departments existentes.
+     *
+     * @param ids ids a validar.
+     * @return ids de la colección que existen en la base de datos.
+     */
+    public List<Long> findExistingIds(Collection<Long> ids) {
+        LOGGER.log(Level.INFO, "Validando la existencia de {0} departments", ids.size());
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        TypedQuery<Long> q = QueryTimeouts.apply(em.createQuery("select d.id from DepartmentEntity d where d.id in :ids", Long.class));
+        return q.setParameter("ids", ids).getResultList();
+    }
+
+    /**
+     * Verifica con una sola consulta sobre llaves primarias y foráneas que
+     * una ruta company/department/employee exista y que cada elemento
+     * pertenezca al anterior. Solo se leen ids, sin cargar las entidades.
+     *
+     * @param companyId id de la company.
+     * @param departmentId id del department, o null para validar solo la
+     * company.
+     * @param employeeId id del employee, o null para validar hasta el
+     * department.
+     * @return true si la ruta existe.
+     */
+    public boolean existsPath(Long companyId, Long departmentId, Long employeeId) {
+        LOGGER.log(Level.INFO, "Validando la ruta company={0}, department={1}, employee={2}", new Object[]{companyId, departmentId, employeeId});
+        TypedQuery<Long> q;
+        if (departmentId == null) {
+            q = QueryTimeouts.apply(em.createQuery("select c.id from CompanyEntity c where c.id = :companyId", Long.class));
+        } else if (employeeId == null) {
+            q = QueryTimeouts.apply(em.createQuery("select d.id from DepartmentEntity d where d.id = :departmentId and d.company.id = :companyId", Long.class));
+            q.setParameter("departmentId", departmentId);
+        } else {
+            q = QueryTimeouts.apply(em.createQuery("select e.id from EmployeeEntity e join e.department d "
+                    + "where e.id = :employeeId and d.id = :departmentId and d.company.id = :companyId", Long.class));
+            q.setParameter("departmentId", departmentId);
+            q.setParameter("employeeId", employeeId);
+        }
+        return !q.setParameter("companyId", companyId).setMaxResults(1).getResultList().isEmpty();
+    }
+
     public List<DepartmentEntity> findAllInCompany(Long companyId) {
         LOGGER.log(Level.INFO, "Consultando todos los departments de la company id={0}", companyId);
-        TypedQuery q = em.createQuery("select d from DepartmentEntity d  where d.company.id = :companyId", DepartmentEntity.class);
+        TypedQuery q = QueryTimeouts.apply(em.createQuery("select d from DepartmentEntity d  where d.company.id = :companyId", DepartmentEntity.class));
+        q = q.setParameter("companyId", companyId);
+        return FetchPlan.DEPARTMENT_COMPANY.apply(q, "d").getResultList();
+    }
+
+    /**
+     * Obtiene una página de los departments de una company ordenada por id
+     * usando paginación por llave (keyset): solo se leen los registros con id
+     * mayor a afterId, de modo que el costo de cada página no depende de su
+     * profundidad.
+     *
+     * @param companyId id de la company dueña de los departments.
+     * @param afterId id del último department de la página anterior, o null
+     * para obtener la primera página.
+     * @param limit número máximo de registros a retornar.
+     * @return lista de departments de la company con id mayor a afterId.
+     */
+    public List<DepartmentEntity> findPage(Long companyId, Long afterId, int limit) {
+        LOGGER.log(Level.INFO, "Consultando {0} departments de la company id={1} después del id={2}", new Object[]{limit, companyId, afterId});
+        TypedQuery<DepartmentEntity> q;
+        if (afterId == null) {
+            q = QueryTimeouts.apply(em.createQuery("select d from DepartmentEntity d where d.company.id = :companyId order by d.id", DepartmentEntity.class));
+        } else {
+            q = QueryTimeouts.apply(em.createQuery("select d from DepartmentEntity d where d.company.id = :companyId and d.id > :afterId order by d.id", DepartmentEntity.class));
+            q = q.setParameter("afterId", afterId);
+        }
+        q = q.setParameter("companyId", companyId);
+        return FetchPlan.DEPARTMENT_COMPANY.apply(q.setMaxResults(limit), "d").getResultList();
+    }
+
+    /**
+     * Obtiene los datos de los departments de una company con una consulta de
+     * proyección de solo lectura, ordenados por id. Las filas no se
+     * convierten en entidades administradas: no se registran en el contexto
+     * de persistencia ni en el caché, y no se cargan sus relaciones.
+     *
+     * @param companyId id de la company dueña de los departments.
+     * @param afterId id del último department de la página anterior, o null
+     * para empezar desde el primero.
+     * @param limit número máximo de registros a retornar, o null para
+     * retornarlos todos.
+     * @return datos de los departments de la company con id mayor a afterId.
+     */
+    public List<DepartmentSummary> findSummaries(Long companyId, Long afterId, Integer limit) {
+        LOGGER.log(Level.INFO, "Consultando resumen de {0} departments de la company id={1} después del id={2}", new Object[]{limit, companyId, afterId});
+        String select = "select new co.edu.uniandes.csw.company.projections.DepartmentSummary(d.id, d.name, c.id, c.name)"
+                + " from DepartmentEntity d join d.company c where c.id = :companyId";
+        TypedQuery<DepartmentSummary> q;
+        if (afterId == null) {
+            q = QueryTimeouts.apply(em.createQuery(select + " order by d.id", DepartmentSummary.class));
+        } else {
+            q = QueryTimeouts.apply(em.createQuery(select + " and d.id > :afterId order by d.id", DepartmentSummary.class));
+            q = q.setParameter("afterId", afterId);
+        }
         q = q.setParameter("companyId", companyId);
+        q.setHint(QueryHints.READ_ONLY, HintValues.TRUE);
+        q.setHint(QueryHints.CACHE_USAGE, CacheUsage.DoNotCheckCache);
+        q.setHint(QueryHints.MAINTAIN_CACHE, HintValues.FALSE);
+        if (limit != null) {
+            q = q.setMaxResults(limit);
+        }
         return q.getResultList();
     }
 
+    /**
+     * Obtiene la versión de un department y la de su company, sin cargar las
+     * entidades.
+     *
+     * @param companyId id del company.
+     * @param departmentId id del department.
+     * @return versiones, o null si el department no existe en el company.
+     */
+    public DepartmentVersion findVersion(Long companyId, Long departmentId) {
+        List<DepartmentVersion> versions = QueryTimeouts.apply(em.createQuery("select new co.edu.uniandes.csw.company.projections.DepartmentVersion(d.version, c.version)"
+                + " from DepartmentEntity d join d.company c where d.id = :departmentId and c.id = :companyId", DepartmentVersion.class))
+                .setParameter("departmentId", departmentId)
+                .setParameter("companyId", companyId)
+                .getResultList();
+        return versions.isEmpty() ? null : versions.get(0);
+    }
+
+    /**
+     * Obtiene el número de employees de un department.
+     *
+     * @param id id del department.
+     * @return número de employees, o null si el department no existe.
+     */
+    public Integer findEmployeeCount(Long id) {
+        LOGGER.log(Level.INFO, "Consultando número de employees del department con id={0}", id);
+        List<Integer> counts = QueryTimeouts.apply(em.createQuery("select coalesce(d.employeeCount, 0) from DepartmentEntity d where d.id = :id", Integer.class))
+                .setParameter("id", id)
+                .getResultList();
+        return counts.isEmpty() ? null : counts.get(0);
+    }
+
+    /**
+     * Suma delta al número de employees de un department y de su company con
+     * sentencias UPDATE atómicas, sin cargar las entidades ni cambiar sus
+     * versiones (ver {@link CounterUpdates}). Siempre se
+     * actualiza primero el department y luego el company, para que las
+     * transacciones concurrentes bloqueen las filas en el mismo orden.
+     *
+     * @param id id del department.
+     * @param delta cantidad a sumar, negativa para restar.
+     */
+    public void adjustEmployeeCount(Long id, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        LOGGER.log(Level.INFO, "Sumando {0} al número de employees del department con id={1}", new Object[]{delta, id});
+        CounterUpdates.execute(em, "UPDATE DEPARTMENTENTITY SET EMPLOYEECOUNT = EMPLOYEECOUNT + ?1 WHERE ID = ?2", delta, id);
+        sharedCache.evictAfterCommit(DepartmentEntity.class, id);
+        // La fila del department ya está bloqueada: su company no cambia
+        // antes del commit.
+        List<Long> companies = QueryTimeouts.apply(em.createQuery("select d.company.id from DepartmentEntity d where d.id = :id", Long.class))
+                .setParameter("id", id)
+                .getResultList();
+        if (!companies.isEmpty() && companies.get(0) != null) {
+            Long companyId = companies.get(0);
+            CounterUpdates.execute(em, "UPDATE COMPANYENTITY SET EMPLOYEECOUNT = EMPLOYEECOUNT + ?1 WHERE ID = ?2", delta, companyId);
+            sharedCache.evictAfterCommit(CompanyEntity.class, companyId);
+        }
+    }
+
+    /**
+     * Cuenta los employees de todos los departments con una sola consulta
+     * agregada, que también lee los contadores registrados para que todos
+     * los valores correspondan al mismo momento.
+     *
+     * @return una fila por department con su id, el id de su company (o
+     * null), el número de employees registrado del department y del company
+     * (null si la columna no tiene valor) y el número real de employees del
+     * department.
+     */
+    public List<Object[]> countEmployees() {
+        LOGGER.info("Contando los employees de todos los departments");
+        return QueryTimeouts.apply(em.createQuery("select d.id, c.id, d.employeeCount, c.employeeCount, count(e.id) from DepartmentEntity d"
+                + " left join d.company c left join d.employees e"
+                + " group by d.id, c.id, d.employeeCount, c.employeeCount", Object[].class))
+                .getResultList();
+    }
+
+    /**
+     * Cambia el número de employees registrado de un department solo si
+     * todavía tiene el valor esperado, de modo que no se pierden los cambios
+     * hechos por transacciones concurrentes desde que se leyó.
+     *
+     * @param id id del department.
+     * @param expected valor leído, o null si la columna no tenía valor.
+     * @param actual nuevo valor.
+     * @return true si se actualizó el department.
+     */
+    public boolean updateEmployeeCount(Long id, Integer expected, int actual) {
+        int updated;
+        if (expected == null) {
+            updated = CounterUpdates.execute(em, "UPDATE DEPARTMENTENTITY SET EMPLOYEECOUNT = ?1 WHERE ID = ?2 AND EMPLOYEECOUNT IS NULL", actual, id);
+        } else {
+            updated = CounterUpdates.execute(em, "UPDATE DEPARTMENTENTITY SET EMPLOYEECOUNT = ?1 WHERE ID = ?2 AND EMPLOYEECOUNT = ?3", actual, id, expected);
+        }
+        if (updated > 0) {
+            sharedCache.evictAfterCommit(DepartmentEntity.class, id);
+        }
+        return updated > 0;
+    }
+
     public DepartmentEntity create(DepartmentEntity entity) {
         LOGGER.info("Creando un department nuevo");
         em.persist(entity);
@@ -80,9 +301,20 @@ public class DepartmentPersistence {
         return entity;
     }
 
+    /**
+     * Actualiza un department. Si entity trae versión, la actualización falla
+     * con OptimisticLockException cuando el department cambió después de esa
+     * versión; si no, se actualiza sobre la versión actual.
+     *
+     * @param entity datos nuevos del department.
+     * @return el department actualizado, con su nueva versión.
+     */
     public DepartmentEntity update(DepartmentEntity entity) {
         LOGGER.log(Level.INFO, "Actualizando department con id={0}", entity.getId());
-        return em.merge(entity);
+        Versions.fillMissing(em, DepartmentEntity.class, Collections.singletonList(entity));
+        DepartmentEntity merged = em.merge(entity);
+        em.flush();
+        return merged;
     }
 
     /**
@@ -92,7 +324,7 @@ public class DepartmentPersistence {
      */
     public void delete(Long id) {
         LOGGER.log(Level.INFO, "Borrando department con id={0}", id);
-        DepartmentEntity entity = em.find(DepartmentEntity.class, id);
+        DepartmentEntity entity = em.find(DepartmentEntity.class, id, QueryTimeouts.hints());
         assert entity != null;
         em.remove(entity);
     }
@@ -23,43 +23,354 @@ SOFTWARE.
  */
 package co.edu.uniandes.csw.company.persistence;
 
+import co.edu.uniandes.csw.company.entities.DepartmentEntity;
 import co.edu.uniandes.csw.company.entities.EmployeeEntity;
+import co.edu.uniandes.csw.company.projections.EmployeeSummary;
 import javax.ejb.Stateless;
+import javax.interceptor.Interceptors;
+import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
+import org.eclipse.persistence.config.CacheUsage;
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.queries.CursoredStream;
 
 @Stateless
+@Interceptors(PersistenceMetrics.class)
 public class EmployeePersistence {
 
     private static final Logger LOGGER = Logger.getLogger(EmployeePersistence.class.getName());
 
+    /**
+     * Número de employees leídos del cursor entre cada limpieza del contexto
+     * de persistencia en {@link #forEach(Consumer)}.
+     */
+    public static final int STREAM_CLEAR_INTERVAL = 100;
+
+    /**
+     * Número máximo de ids enviados en una misma cláusula IN. Las colecciones
+     * más grandes se dividen en varias sentencias.
+     */
+    public static final int IN_CLAUSE_CHUNK_SIZE = 500;
+
+    /**
+     * Número de employees persistidos en {@link #createAll(List)} entre cada
+     * flush y limpieza del contexto de persistencia. Coincide con
+     * eclipselink.jdbc.batch-writing.size en persistence.xml.
+     */
+    public static final int BATCH_SIZE = 100;
+
     @PersistenceContext(unitName = "CompanyPU")
     protected EntityManager em;
 
+    @Inject
+    private SharedCache sharedCache;
+
     public EmployeeEntity find(Long id) {
         LOGGER.log(Level.INFO, "Consultando employee con id={0}", id);
-        return em.find(EmployeeEntity.class, id);
+        sharedCache.recordLookup(EmployeeEntity.class, id);
+        return em.find(EmployeeEntity.class, id, QueryTimeouts.hints());
+    }
+
+    /**
+     * Obtiene un employee junto con su department y la company de este en una
+     * sola consulta.
+     *
+     * @param id id del employee.
+     * @return el employee, o null si no existe.
+     */
+    public EmployeeEntity findWithDepartment(Long id) {
+        LOGGER.log(Level.INFO, "Consultando employee con department, id={0}", id);
+        TypedQuery<EmployeeEntity> q = QueryTimeouts.apply(em.createQuery("select u from EmployeeEntity u where u.id = :id", EmployeeEntity.class));
+        List<EmployeeEntity> list = FetchPlan.EMPLOYEE_DEPARTMENT.apply(q.setParameter("id", id), "u").getResultList();
+        return list.isEmpty() ? null : list.get(0);
     }
 
     public EmployeeEntity findByName(String name) {
         LOGGER.log(Level.INFO, "Consultando employee con name= ", name);
         TypedQuery<EmployeeEntity> q
-                = em.createQuery("select u from EmployeeEntity u where u.name = :name", EmployeeEntity.class);
-        q = q.setParameter("name", name);
-        return q.getSingleResult();
+                = QueryTimeouts.apply(em.createQuery("select u from EmployeeEntity u where u.name = :name", EmployeeEntity.class));
+        List<EmployeeEntity> list = q.setParameter("name", name).setMaxResults(1).getResultList();
+        return list.isEmpty() ? null : list.get(0);
     }
 
     public List<EmployeeEntity> findAll() {
         LOGGER.info("Consultando todos los employees");
-        Query q = em.createQuery("select u from EmployeeEntity u");
+        Query q = QueryTimeouts.apply(em.createQuery("select u from EmployeeEntity u"));
+        return FetchPlan.EMPLOYEE_DEPARTMENT.apply(q, "u").getResultList();
+    }
+
+    /**
+     * Obtiene una página de employees ordenada por id usando paginación por
+     * llave (keyset): solo se leen los registros con id mayor a afterId, de
+     * modo que el costo de cada página no depende de su profundidad.
+     *
+     * @param afterId id del último employee de la página anterior, o null
+     * para obtener la primera página.
+     * @param limit número máximo de registros a retornar.
+     * @return lista de employees con id mayor a afterId.
+     */
+    public List<EmployeeEntity> findPage(Long afterId, int limit) {
+        LOGGER.log(Level.INFO, "Consultando {0} employees después del id={1}", new Object[]{limit, afterId});
+        TypedQuery<EmployeeEntity> q;
+        if (afterId == null) {
+            q = QueryTimeouts.apply(em.createQuery("select u from EmployeeEntity u order by u.id", EmployeeEntity.class));
+        } else {
+            q = QueryTimeouts.apply(em.createQuery("select u from EmployeeEntity u where u.id > :afterId order by u.id", EmployeeEntity.class));
+            q = q.setParameter("afterId", afterId);
+        }
+        return FetchPlan.EMPLOYEE_DEPARTMENT.apply(q.setMaxResults(limit), "u").getResultList();
+    }
+
+    /**
+     * Obtiene los datos de los employees y de su department con una consulta
+     * de proyección de solo lectura, ordenados por id. Las filas no se
+     * convierten en entidades administradas: no se registran en el contexto
+     * de persistencia ni en el caché, y no se cargan sus relaciones.
+     *
+     * @param afterId id del último employee de la página anterior, o null
+     * para empezar desde el primero.
+     * @param limit número máximo de registros a retornar, o null para
+     * retornarlos todos.
+     * @return datos de los employees con id mayor a afterId.
+     */
+    public List<EmployeeSummary> findSummaries(Long afterId, Integer limit) {
+        LOGGER.log(Level.INFO, "Consultando resumen de {0} employees después del id={1}", new Object[]{limit, afterId});
+        String select = "select new co.edu.uniandes.csw.company.projections.EmployeeSummary(e.id, e.name, e.salary, d.id, d.name)"
+                + " from EmployeeEntity e left join e.department d";
+        TypedQuery<EmployeeSummary> q;
+        if (afterId == null) {
+            q = QueryTimeouts.apply(em.createQuery(select + " order by e.id", EmployeeSummary.class));
+        } else {
+            q = QueryTimeouts.apply(em.createQuery(select + " where e.id > :afterId order by e.id", EmployeeSummary.class));
+            q = q.setParameter("afterId", afterId);
+        }
+        q.setHint(QueryHints.READ_ONLY, HintValues.TRUE);
+        q.setHint(QueryHints.CACHE_USAGE, CacheUsage.DoNotCheckCache);
+        q.setHint(QueryHints.MAINTAIN_CACHE, HintValues.FALSE);
+        if (limit != null) {
+            q = q.setMaxResults(limit);
+        }
         return q.getResultList();
     }
 
+    /**
+     * Recorre todos los employees, ordenados por id, con un cursor de solo
+     * avance de la base de datos (CursoredStream de EclipseLink). Cada
+     * employee se entrega al consumidor en cuanto se lee, y el contexto de
+     * persistencia se limpia cada {@link #STREAM_CLEAR_INTERVAL} registros, de
+     * modo que la memoria usada no depende del tamaño de la tabla. El
+     * consumidor no debe guardar referencias a las entidades que recibe.
+     *
+     * @param consumer consumidor que recibe cada employee.
+     * @return número de employees recorridos.
+     */
+    public int forEach(Consumer<EmployeeEntity> consumer) {
+        LOGGER.info("Recorriendo todos los employees con un cursor");
+        Query q = QueryTimeouts.apply(em.createQuery("select u from EmployeeEntity u left join fetch u.department order by u.id"));
+        q.setHint(QueryHints.CURSOR, HintValues.TRUE);
+        q.setHint(QueryHints.CURSOR_PAGE_SIZE, STREAM_CLEAR_INTERVAL);
+        q.setHint(QueryHints.JDBC_FETCH_SIZE, STREAM_CLEAR_INTERVAL);
+        CursoredStream cursor = (CursoredStream) q.getSingleResult();
+        int count = 0;
+        try {
+            while (cursor.hasNext()) {
+                consumer.accept((EmployeeEntity) cursor.next());
+                count++;
+                if (count % STREAM_CLEAR_INTERVAL == 0) {
+                    cursor.releasePrevious();
+                    em.clear();
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return count;
+    }
+
+    /**
+     * Obtiene los ids de los employees asociados a un department, sin cargar
+     * las entidades.
+     *
+     * @param departmentId id del department.
+     * @return ids de los employees del department.
+     */
+    public List<Long> findIdsByDepartment(Long departmentId) {
+        LOGGER.log(Level.INFO, "Consultando ids de employees del department con id={0}", departmentId);
+        TypedQuery<Long> q = QueryTimeouts.apply(em.createQuery("select e.id from EmployeeEntity e where e.department.id = :departmentId", Long.class));
+        return q.setParameter("departmentId", departmentId).getResultList();
+    }
+
+    /**
+     * Obtiene los ids de los employees asociados a algún department de un
+     * company.
+     *
+     * @param companyId id del company.
+     * @return ids de los employees de sus departments.
+     */
+    public List<Long> findIdsByCompany(Long companyId) {
+        LOGGER.log(Level.INFO, "Consultando ids de employees del company con id={0}", companyId);
+        TypedQuery<Long> q = QueryTimeouts.apply(em.createQuery("select e.id from EmployeeEntity e where e.department.company.id = :companyId", Long.class));
+        return q.setParameter("companyId", companyId).getResultList();
+    }
+
+    /**
+     * Obtiene los employees asociados a un department, ordenados por id. Las
+     * entidades se refrescan desde la base de datos para reflejar las
+     * actualizaciones masivas hechas en la misma transacción.
+     *
+     * @param departmentId id del department.
+     * @return employees del department.
+     */
+    public List<EmployeeEntity> findByDepartment(Long departmentId) {
+        LOGGER.log(Level.INFO, "Consultando employees del department con id={0}", departmentId);
+        TypedQuery<EmployeeEntity> q = QueryTimeouts.apply(em.createQuery("select e from EmployeeEntity e where e.department.id = :departmentId order by e.id", EmployeeEntity.class));
+        q.setHint(QueryHints.REFRESH, HintValues.TRUE);
+        return q.setParameter("departmentId", departmentId).getResultList();
+    }
+
+    /**
+     * Filtra una colección de ids dejando solo los que corresponden a
+     * employees existentes.
+     *
+     * @param ids ids a validar.
+     * @return ids de la colección que existen en la base de datos.
+     */
+    public List<Long> findExistingIds(long[] ids) {
+        LOGGER.log(Level.INFO, "Validando la existencia de {0} employees", ids.length);
+        List<Long> existing = new ArrayList<>(ids.length);
+        for (List<Long> chunk : chunks(ids)) {
+            TypedQuery<Long> q = QueryTimeouts.apply(em.createQuery("select e.id from EmployeeEntity e where e.id in :ids", Long.class));
+            existing.addAll(q.setParameter("ids", chunk).getResultList());
+        }
+        return existing;
+    }
+
+    /**
+     * Cuenta, por department, cuántos de un conjunto de employees están
+     * asociados a cada uno.
+     *
+     * @param ids ids de los employees.
+     * @return número de employees del conjunto por id de department; no
+     * incluye los employees sin department.
+     */
+    public Map<Long, Integer> countByDepartment(long[] ids) {
+        Map<Long, Integer> counts = new HashMap<>();
+        for (List<Long> chunk : chunks(ids)) {
+            List<Object[]> rows = QueryTimeouts.apply(em.createQuery("select e.department.id, count(e.id) from EmployeeEntity e"
+                    + " where e.id in :ids and e.department is not null group by e.department.id", Object[].class))
+                    .setParameter("ids", chunk)
+                    .getResultList();
+            for (Object[] row : rows) {
+                Long departmentId = (Long) row[0];
+                int count = ((Number) row[1]).intValue();
+                Integer previous = counts.get(departmentId);
+                counts.put(departmentId, previous == null ? count : previous + count);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Asocia un conjunto de employees a un department con sentencias UPDATE
+     * masivas, sin cargar las entidades.
+     *
+     * @param ids ids de los employees a asociar.
+     * @param department department al que quedan asociados.
+     * @return número de employees actualizados.
+     */
+    public int assignDepartment(long[] ids, DepartmentEntity department) {
+        LOGGER.log(Level.INFO, "Asociando {0} employees al department con id={1}", new Object[]{ids.length, department.getId()});
+        int updated = 0;
+        for (List<Long> chunk : chunks(ids)) {
+            updated += QueryTimeouts.apply(em.createQuery("update EmployeeEntity e set e.department = :department where e.id in :ids"))
+                    .setParameter("department", department)
+                    .setParameter("ids", chunk)
+                    .executeUpdate();
+        }
+        evictDepartments(updated);
+        return updated;
+    }
+
+    /**
+     * Desasocia de un department un conjunto de employees con sentencias
+     * UPDATE masivas. Solo se modifican los employees que siguen asociados a
+     * ese department.
+     *
+     * @param ids ids de los employees a desasociar.
+     * @param departmentId id del department del que se desasocian.
+     * @return número de employees actualizados.
+     */
+    public int unassignDepartment(long[] ids, Long departmentId) {
+        LOGGER.log(Level.INFO, "Desasociando {0} employees del department con id={1}", new Object[]{ids.length, departmentId});
+        int updated = 0;
+        for (List<Long> chunk : chunks(ids)) {
+            updated += QueryTimeouts.apply(em.createQuery("update EmployeeEntity e set e.department = null where e.department.id = :departmentId and e.id in :ids"))
+                    .setParameter("departmentId", departmentId)
+                    .setParameter("ids", chunk)
+                    .executeUpdate();
+        }
+        evictDepartments(updated);
+        return updated;
+    }
+
+    /**
+     * Desasocia de los departments de un company un conjunto de employees con
+     * sentencias UPDATE masivas. Solo se modifican los employees que siguen
+     * asociados a algún department de ese company.
+     *
+     * @param ids ids de los employees a desasociar.
+     * @param companyId id del company de cuyos departments se desasocian.
+     * @return número de employees actualizados.
+     */
+    public int unassignCompany(long[] ids, Long companyId) {
+        LOGGER.log(Level.INFO, "Desasociando {0} employees del company con id={1}", new Object[]{ids.length, companyId});
+        int updated = 0;
+        for (List<Long> chunk : chunks(ids)) {
+            updated += QueryTimeouts.apply(em.createQuery("update EmployeeEntity e set e.department = null where e.id in :ids"
+                    + " and e.department.id in (select d.id from DepartmentEntity d where d.company.id = :companyId)"))
+                    .setParameter("companyId", companyId)
+                    .setParameter("ids", chunk)
+                    .executeUpdate();
+        }
+        evictDepartments(updated);
+        return updated;
+    }
+
+    /**
+     * Las actualizaciones masivas no modifican la colección employees de los
+     * departments que están en el caché compartido, así que se invalidan.
+     */
+    private void evictDepartments(int updated) {
+        if (updated > 0) {
+            sharedCache.evictAllAfterCommit(DepartmentEntity.class);
+        }
+    }
+
+    private static List<List<Long>> chunks(long[] ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.length; from += IN_CLAUSE_CHUNK_SIZE) {
+            int to = Math.min(ids.length, from + IN_CLAUSE_CHUNK_SIZE);
+            List<Long> chunk = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                chunk.add(ids[i]);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
     public EmployeeEntity create(EmployeeEntity entity) {
         LOGGER.info("Creando un employee nuevo");
         em.persist(entity);
@@ -67,14 +378,41 @@ public class EmployeePersistence {
         return entity;
     }
 
+    /**
+     * Persiste una colección de employees en la transacción actual. Cada
+     * {@link #BATCH_SIZE} employees se hace flush, para que las inserciones
+     * se envíen en un solo lote JDBC, y se limpia el contexto de persistencia
+     * para que la memoria usada no dependa del tamaño de la colección.
+     *
+     * @param entities employees a crear.
+     * @return los mismos employees, ya desasociados del contexto y con su id.
+     */
+    public List<EmployeeEntity> createAll(List<EmployeeEntity> entities) {
+        LOGGER.log(Level.INFO, "Creando {0} employees nuevos", entities.size());
+        int count = 0;
+        for (EmployeeEntity entity : entities) {
+            em.persist(entity);
+            count++;
+            if (count % BATCH_SIZE == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+        LOGGER.log(Level.INFO, "{0} employees creados", count);
+        return entities;
+    }
+
     public EmployeeEntity update(EmployeeEntity entity) {
         LOGGER.log(Level.INFO, "Actualizando employee con id={0}", entity.getId());
+        Versions.fillMissing(em, EmployeeEntity.class, Collections.singletonList(entity));
         return em.merge(entity);
     }
 
     public void delete(Long id) {
         LOGGER.log(Level.INFO, "Borrando employee con id={0}", id);
-        EmployeeEntity entity = em.find(EmployeeEntity.class, id);
+        EmployeeEntity entity = em.find(EmployeeEntity.class, id, QueryTimeouts.hints());
         em.remove(entity);
     }
 }
@@ -0,0 +1,309 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.persistence;
+
+import co.edu.uniandes.csw.company.util.LongBloomFilter;
+import co.edu.uniandes.csw.company.util.LongHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Permite responder que un id no existe sin cargar la entidad. Para cada
+ * tipo de entidad se mantiene un filtro de Bloom con los ids existentes y un
+ * caché acotado (LRU) de ids que se sabe que no existen. Las entradas de ese
+ * caché vencen después de un tiempo, para ver los registros insertados por
+ * fuera de la aplicación.
+ *
+ * Un id que no está en el filtro de Bloom puede haberse insertado en otro
+ * nodo o directamente en la base de datos después de cargar el filtro, por
+ * eso se confirma con una consulta por llave primaria antes de darlo por
+ * inexistente y registrarlo en el caché; si existe, se agrega al filtro.
+ *
+ * {@link ExistenceFilterLoader} construye los filtros al desplegar la
+ * aplicación y los reconstruye periódicamente, para descartar los ids
+ * borrados y ajustar su tamaño. {@link ExistenceListener} registra las
+ * entidades creadas y borradas. Los ids creados desde la carga anterior se
+ * agregan también al filtro nuevo, de modo que una recarga concurrente no
+ * los pierde; un id creado desde la carga anterior tampoco se registra como
+ * inexistente, por si la consulta que no lo encontró fue anterior a su
+ * creación. Al terminar una carga se descartan del caché los ids que
+ * aparecieron en la base de datos. Mientras un tipo no se ha cargado,
+ * ningún id se da por inexistente.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class ExistenceFilter {
+
+    private static final Logger LOGGER = Logger.getLogger(ExistenceFilter.class.getName());
+
+    /**
+     * Propiedad de sistema con el número máximo de ids inexistentes que se
+     * recuerdan por tipo de entidad.
+     */
+    public static final String NEGATIVE_CACHE_SIZE_PROPERTY = "company.negative-cache.size";
+
+    private static final int DEFAULT_NEGATIVE_CACHE_SIZE = 10000;
+
+    /**
+     * Propiedad de sistema con el tiempo, en milisegundos, durante el que se
+     * recuerda que un id no existe.
+     */
+    public static final String NEGATIVE_CACHE_TTL_PROPERTY = "company.negative-cache.ttl-ms";
+
+    private static final long DEFAULT_NEGATIVE_CACHE_TTL_MS = 60000;
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * Tamaño mínimo de un filtro, para que los tipos con pocos registros no
+     * se saturen con las primeras inserciones.
+     */
+    private static final int MIN_EXPECTED_SIZE = 1 << 16;
+
+    @PersistenceContext(unitName = "CompanyPU")
+    protected EntityManager em;
+
+    private final ConcurrentMap<Class<?>, Filter> filters = new ConcurrentHashMap<>();
+
+    /**
+     * Indica si se sabe que un id no existe, sin cargar la entidad. Si el id
+     * no está en el filtro de Bloom ni en el caché de inexistentes, se
+     * confirma con una consulta por llave primaria.
+     *
+     * @param type clase de la entidad.
+     * @param id id a consultar.
+     * @return true si el id no existe; false si puede existir.
+     */
+    public boolean isMissing(Class<?> type, Long id) {
+        Filter filter = id == null ? null : filters.get(type);
+        if (filter == null) {
+            return false;
+        }
+        synchronized (filter.missing) {
+            Long expires = filter.missing.get(id);
+            if (expires != null) {
+                if (expires - System.nanoTime() > 0) {
+                    return true;
+                }
+                filter.missing.remove(id);
+            }
+        }
+        LongBloomFilter ids = filter.ids;
+        if (ids == null || ids.mightContain(id)) {
+            return false;
+        }
+        if (exists(type, id)) {
+            LOGGER.log(Level.FINE, "{0} con id={1} existe pero no estaba en el filtro", new Object[]{type.getSimpleName(), id});
+            synchronized (filter) {
+                if (filter.ids != null) {
+                    filter.ids.add(id);
+                }
+            }
+            return false;
+        }
+        return record(filter, id);
+    }
+
+    /**
+     * Registra un id que se consultó en la base de datos y no existía.
+     *
+     * @param type clase de la entidad.
+     * @param id id consultado.
+     */
+    public void recordMissing(Class<?> type, Long id) {
+        Filter filter = id == null ? null : filters.get(type);
+        if (filter != null) {
+            record(filter, id);
+        }
+    }
+
+    /**
+     * Registra un id borrado. A diferencia de
+     * {@link #recordMissing(Class, Long)}, se registra aunque se haya creado
+     * desde la carga anterior.
+     *
+     * @param type clase de la entidad.
+     * @param id id borrado.
+     */
+    public void removed(Class<?> type, Long id) {
+        Filter filter = id == null ? null : filters.get(type);
+        if (filter != null) {
+            filter.putMissing(id);
+        }
+    }
+
+    /**
+     * Registra un id creado.
+     *
+     * @param type clase de la entidad.
+     * @param id id creado.
+     */
+    public void created(Class<?> type, Long id) {
+        Filter filter = id == null ? null : filters.get(type);
+        if (filter == null) {
+            return;
+        }
+        synchronized (filter) {
+            if (filter.ids != null) {
+                filter.ids.add(id);
+            }
+            filter.recent.add(id);
+            synchronized (filter.missing) {
+                filter.missing.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Marca el inicio de la carga de un tipo de entidad. Se debe llamar antes
+     * de consultar los ids existentes.
+     *
+     * @param type clase de la entidad.
+     */
+    public void beginLoad(Class<?> type) {
+        Filter filter = filters.get(type);
+        if (filter == null) {
+            filters.putIfAbsent(type, new Filter());
+            filter = filters.get(type);
+        }
+        synchronized (filter) {
+            filter.previous = filter.recent;
+            filter.recent = new LongHashSet();
+        }
+    }
+
+    /**
+     * Reemplaza el filtro de un tipo de entidad por uno con los ids
+     * existentes y los creados desde la carga anterior, y descarta del caché
+     * de inexistentes los ids que aparecieron en la consulta.
+     *
+     * @param type clase de la entidad.
+     * @param existing ids existentes, consultados después de
+     * {@link #beginLoad(Class)}.
+     */
+    public void finishLoad(Class<?> type, List<Long> existing) {
+        Filter filter = filters.get(type);
+        LongBloomFilter ids = new LongBloomFilter(Math.max(MIN_EXPECTED_SIZE, existing.size() * 2), FALSE_POSITIVE_RATE);
+        for (Long id : existing) {
+            ids.add(id);
+        }
+        LongHashSet cached;
+        synchronized (filter.missing) {
+            cached = new LongHashSet(filter.missing.size());
+            for (Long id : filter.missing.keySet()) {
+                cached.add(id);
+            }
+        }
+        LongHashSet found = new LongHashSet();
+        if (!cached.isEmpty()) {
+            for (Long id : existing) {
+                if (cached.contains(id)) {
+                    found.add(id);
+                }
+            }
+        }
+        synchronized (filter) {
+            for (long id : filter.previous.toArray()) {
+                ids.add(id);
+            }
+            for (long id : filter.recent.toArray()) {
+                ids.add(id);
+            }
+            filter.previous = new LongHashSet();
+            filter.ids = ids;
+            synchronized (filter.missing) {
+                for (long id : found.toArray()) {
+                    filter.missing.remove(id);
+                }
+            }
+        }
+        LOGGER.log(Level.INFO, "Filtro de ids de {0} cargado con {1} ids ({2} bytes)",
+                new Object[]{type.getSimpleName(), existing.size(), ids.memoryBytes()});
+    }
+
+    /**
+     * Registra un id inexistente, salvo que se haya creado desde la carga
+     * anterior.
+     *
+     * @return true si se registró.
+     */
+    private static boolean record(Filter filter, Long id) {
+        synchronized (filter) {
+            if (filter.recent.contains(id) || filter.previous.contains(id)) {
+                return false;
+            }
+            filter.putMissing(id);
+            return true;
+        }
+    }
+
+    private boolean exists(Class<?> type, Long id) {
+        String entity = em.getMetamodel().entity(type).getName();
+        return !QueryTimeouts.apply(em.createQuery("select e.id from " + entity + " e where e.id = :id", Long.class))
+                .setParameter("id", id)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
+    private static final class Filter {
+
+        private volatile LongBloomFilter ids;
+        private LongHashSet recent = new LongHashSet();
+        private LongHashSet previous = new LongHashSet();
+        private final long ttlNanos = TimeUnit.MILLISECONDS.toNanos(
+                Long.getLong(NEGATIVE_CACHE_TTL_PROPERTY, DEFAULT_NEGATIVE_CACHE_TTL_MS));
+        /**
+         * Ids inexistentes y el instante (System.nanoTime) en que vencen.
+         */
+        private final Map<Long, Long> missing = new LinkedHashMap<Long, Long>(16, 0.75f, true) {
+            private final int maxSize = Integer.getInteger(NEGATIVE_CACHE_SIZE_PROPERTY, DEFAULT_NEGATIVE_CACHE_SIZE);
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+
+        private void putMissing(Long id) {
+            synchronized (missing) {
+                missing.put(id, System.nanoTime() + ttlNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.persistence;
+
+import co.edu.uniandes.csw.company.entities.CompanyEntity;
+import co.edu.uniandes.csw.company.entities.DepartmentEntity;
+import co.edu.uniandes.csw.company.entities.EmployeeEntity;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Carga los filtros de {@link ExistenceFilter} al desplegar la aplicación y
+ * los vuelve a cargar cada 15 minutos.
+ */
+@Singleton
+@Startup
+public class ExistenceFilterLoader {
+
+    private static final Logger LOGGER = Logger.getLogger(ExistenceFilterLoader.class.getName());
+
+    private static final Class<?>[] TYPES = {CompanyEntity.class, DepartmentEntity.class, EmployeeEntity.class};
+
+    @PersistenceContext(unitName = "CompanyPU")
+    protected EntityManager em;
+
+    @Inject
+    private ExistenceFilter existenceFilter;
+
+    @PostConstruct
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void init() {
+        load();
+    }
+
+    /**
+     * Recarga periódica de {@link #load()}.
+     */
+    @Schedule(hour = "*", minute = "*/15", persistent = false)
+    public void refresh() {
+        try {
+            load();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "No se pudieron recargar los filtros de ids", e);
+        }
+    }
+
+    /**
+     * Consulta los ids existentes de cada tipo de entidad y reemplaza sus
+     * filtros.
+     */
+    public void load() {
+        for (Class<?> type : TYPES) {
+            existenceFilter.beginLoad(type);
+            String entity = em.getMetamodel().entity(type).getName();
+            existenceFilter.finishLoad(type, em.createQuery("select e.id from " + entity + " e", Long.class).getResultList());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.persistence;
+
+import co.edu.uniandes.csw.company.entities.BaseEntity;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Mantiene {@link ExistenceFilter} al crear y borrar entidades. Un id creado
+ * se agrega al filtro de inmediato (un falso positivo no es un problema) y se
+ * quita de nuevo del caché de inexistentes al hacer commit, por si otra
+ * transacción lo registró mientras tanto. Un id borrado solo se registra
+ * como inexistente si la transacción hace commit.
+ */
+public class ExistenceListener {
+
+    private static final Logger LOGGER = Logger.getLogger(ExistenceListener.class.getName());
+
+    @PostPersist
+    public void created(BaseEntity entity) {
+        final Class<?> type = entity.getClass();
+        final Long id = entity.getId();
+        final ExistenceFilter filter = lookup();
+        if (filter == null) {
+            return;
+        }
+        filter.created(type, id);
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                filter.created(type, id);
+            }
+        });
+    }
+
+    @PostRemove
+    public void removed(BaseEntity entity) {
+        final Class<?> type = entity.getClass();
+        final Long id = entity.getId();
+        final ExistenceFilter filter = lookup();
+        if (filter == null) {
+            return;
+        }
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                filter.removed(type, id);
+            }
+        });
+    }
+
+    private static ExistenceFilter lookup() {
+        try {
+            return InitialContext.doLookup("java:module/ExistenceFilter");
+        } catch (NamingException e) {
+            LOGGER.log(Level.FINE, "Sin filtro de ids", e);
+            return null;
+        }
+    }
+
+    private static void afterCommit(final Runnable action) {
+        TransactionSynchronizationRegistry registry;
+        try {
+            registry = InitialContext.doLookup("java:comp/TransactionSynchronizationRegistry");
+        } catch (NamingException e) {
+            LOGGER.log(Level.FINE, "Sin registro de transacciones", e);
+            registry = null;
+        }
+        if (registry == null || registry.getTransactionKey() == null) {
+            action.run();
+            return;
+        }
+        registry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+                // el filtro se actualiza después del commit
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
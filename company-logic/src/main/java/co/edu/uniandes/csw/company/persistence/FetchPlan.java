@@ -0,0 +1,94 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.persistence;
+
+import javax.persistence.Query;
+import org.eclipse.persistence.annotations.BatchFetchType;
+import org.eclipse.persistence.config.QueryHints;
+
+/**
+ * Planes de carga de las relaciones que necesita cada servicio de listas.
+ * Cargan en la misma consulta, o en una consulta adicional para toda la
+ * lista, las relaciones que luego recorren los DTOs. Así cada lista ejecuta
+ * un número fijo de sentencias SQL, sin importar cuántos registros retorne.
+ *
+ * Las relaciones a uno se cargan con left join fetch. Las colecciones se
+ * cargan por lotes: con un join a la consulta original si no está paginada,
+ * o con una cláusula IN sobre los ids de la página si lo está.
+ */
+public enum FetchPlan {
+
+    /**
+     * Companies con sus departments, para CompanyDetailDTO.
+     */
+    COMPANY_DEPARTMENTS(new String[0], new String[]{"departments"}),
+    /**
+     * Departments con su company, para DepartmentDetailDTO.
+     */
+    DEPARTMENT_COMPANY(new String[]{"company"}, new String[0]),
+    /**
+     * Employees con su department y el company de este, para
+     * EmployeeDetailDTO. El company se carga porque la relación del
+     * department con su company no es lazy.
+     */
+    EMPLOYEE_DEPARTMENT(new String[]{"department", "department.company"}, new String[0]);
+
+    /**
+     * Número máximo de ids por cada cláusula IN de la carga por lotes; es
+     * mayor que el tamaño máximo de página de los servicios.
+     */
+    static final int BATCH_SIZE = 1000;
+
+    private final String[] joins;
+
+    private final String[] batches;
+
+    private FetchPlan(String[] joins, String[] batches) {
+        this.joins = joins;
+        this.batches = batches;
+    }
+
+    /**
+     * Agrega a una consulta los hints del plan. Se debe llamar después de
+     * fijar el número máximo de resultados.
+     *
+     * @param query consulta a la que se aplica el plan.
+     * @param alias alias de la entidad principal en la consulta.
+     * @return la misma consulta.
+     */
+    public <Q extends Query> Q apply(Q query, String alias) {
+        for (String join : joins) {
+            query.setHint(QueryHints.LEFT_FETCH, alias + "." + join);
+        }
+        if (batches.length > 0) {
+            boolean paged = query.getMaxResults() != Integer.MAX_VALUE || query.getFirstResult() > 0;
+            query.setHint(QueryHints.BATCH_TYPE, paged ? BatchFetchType.IN : BatchFetchType.JOIN);
+            query.setHint(QueryHints.BATCH_SIZE, BATCH_SIZE);
+            for (String batch : batches) {
+                query.setHint(QueryHints.BATCH, alias + "." + batch);
+            }
+        }
+        return query;
+    }
+}
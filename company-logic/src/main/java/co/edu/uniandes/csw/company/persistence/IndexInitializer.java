@@ -0,0 +1,171 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.persistence;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.Index;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Table;
+import javax.persistence.metamodel.EntityType;
+
+/**
+ * Crea al desplegar la aplicación los índices declarados con
+ * {@code @Table(indexes = ...)} en las entidades que no existan en la base de
+ * datos. La generación de esquema de EclipseLink solo crea los índices al
+ * crear una tabla, así que las tablas que ya existían no los tendrían.
+ *
+ * Un índice se considera existente si la tabla ya tiene alguno sobre las
+ * mismas columnas, en el mismo orden (y único, si se declaró único), aunque
+ * tenga otro nombre; por ejemplo, el que Derby crea para una llave foránea.
+ */
+@Singleton
+@Startup
+public class IndexInitializer {
+
+    private static final Logger LOGGER = Logger.getLogger(IndexInitializer.class.getName());
+
+    @PersistenceContext(unitName = "CompanyPU")
+    protected EntityManager em;
+
+    @PostConstruct
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void init() {
+        try {
+            ensureIndexes();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "No se pudieron verificar los índices de la base de datos", e);
+        }
+    }
+
+    /**
+     * Verifica los índices declarados en las entidades y crea los que faltan.
+     *
+     * @return nombres de los índices creados.
+     */
+    public List<String> ensureIndexes() {
+        Connection connection = em.unwrap(Connection.class);
+        List<String> created = new ArrayList<>();
+        try {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (EntityType<?> type : em.getMetamodel().getEntities()) {
+                Table table = type.getJavaType().getAnnotation(Table.class);
+                if (table == null || table.indexes().length == 0) {
+                    continue;
+                }
+                String tableName = (table.name().isEmpty() ? type.getName() : table.name()).toUpperCase();
+                Map<String, IndexColumns> existing = readIndexes(metaData, tableName);
+                for (Index index : table.indexes()) {
+                    List<String> columns = parseColumns(index.columnList());
+                    if (isCovered(existing, columns, index.unique())) {
+                        LOGGER.log(Level.FINE, "Índice {0} presente en {1}", new Object[]{index.name(), tableName});
+                    } else if (createIndex(connection, tableName, index, columns)) {
+                        created.add(index.name());
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudieron leer los índices de la base de datos", e);
+        }
+        LOGGER.log(Level.INFO, "Índices creados al iniciar: {0}", created.isEmpty() ? "ninguno" : created);
+        return created;
+    }
+
+    private static Map<String, IndexColumns> readIndexes(DatabaseMetaData metaData, String tableName) throws SQLException {
+        Map<String, IndexColumns> indexes = new HashMap<>();
+        try (ResultSet rs = metaData.getIndexInfo(null, null, tableName, false, true)) {
+            while (rs.next()) {
+                String name = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if (name == null || column == null) {
+                    continue;
+                }
+                IndexColumns index = indexes.get(name);
+                if (index == null) {
+                    index = new IndexColumns(!rs.getBoolean("NON_UNIQUE"));
+                    indexes.put(name, index);
+                }
+                index.columns.put((int) rs.getShort("ORDINAL_POSITION"), column.toUpperCase());
+            }
+        }
+        return indexes;
+    }
+
+    private static boolean isCovered(Map<String, IndexColumns> existing, List<String> columns, boolean unique) {
+        for (IndexColumns index : existing.values()) {
+            if (new ArrayList<>(index.columns.values()).equals(columns) && (index.unique || !unique)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean createIndex(Connection connection, String tableName, Index index, List<String> columns) {
+        String sql = "CREATE " + (index.unique() ? "UNIQUE " : "") + "INDEX " + index.name()
+                + " ON " + tableName + " (" + String.join(", ", columns) + ")";
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(sql);
+            LOGGER.log(Level.INFO, "Índice creado: {0}", sql);
+            return true;
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "No se pudo crear el índice " + index.name(), e);
+            return false;
+        }
+    }
+
+    private static List<String> parseColumns(String columnList) {
+        List<String> columns = new ArrayList<>();
+        for (String column : Arrays.asList(columnList.split(","))) {
+            columns.add(column.trim().toUpperCase());
+        }
+        return columns;
+    }
+
+    private static final class IndexColumns {
+
+        private final boolean unique;
+        private final Map<Integer, String> columns = new TreeMap<>();
+
+        private IndexColumns(boolean unique) {
+            this.unique = unique;
+        }
+    }
+}
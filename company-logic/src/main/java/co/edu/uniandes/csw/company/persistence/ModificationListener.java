@@ -0,0 +1,74 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.persistence;
+
+import co.edu.uniandes.csw.company.entities.BaseEntity;
+import co.edu.uniandes.csw.company.entities.CompanyEntity;
+import co.edu.uniandes.csw.company.entities.DepartmentEntity;
+import co.edu.uniandes.csw.company.entities.EmployeeEntity;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Registra en {@link ModificationStamps} las entidades creadas, actualizadas
+ * y borradas, también cuando la escritura no pasa por los *Logic. Las
+ * actualizaciones masivas con JPQL no pasan por aquí; por eso los *Logic
+ * siguen registrando sus propias escrituras.
+ */
+public class ModificationListener {
+
+    private static final Logger LOGGER = Logger.getLogger(ModificationListener.class.getName());
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void changed(BaseEntity entity) {
+        ModificationStamps stamps = lookup();
+        if (stamps == null) {
+            return;
+        }
+        if (entity instanceof CompanyEntity) {
+            stamps.companyChanged(entity.getId());
+        } else if (entity instanceof DepartmentEntity) {
+            CompanyEntity company = ((DepartmentEntity) entity).getCompany();
+            stamps.departmentChanged(company == null ? null : company.getId());
+        } else if (entity instanceof EmployeeEntity) {
+            stamps.employeesChanged();
+        }
+    }
+
+    private static ModificationStamps lookup() {
+        try {
+            return InitialContext.doLookup("java:module/ModificationStamps");
+        } catch (NamingException e) {
+            LOGGER.log(Level.FINE, "Sin contadores de modificación", e);
+            return null;
+        }
+    }
+}
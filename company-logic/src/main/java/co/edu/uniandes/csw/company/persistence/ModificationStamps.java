@@ -0,0 +1,178 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.persistence;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Contadores de modificación de las colecciones de la API, de los que se
+ * derivan sus ETags: uno global para los companies, otro para los employees
+ * y uno por company para sus departments. Consultarlos no va a la base de
+ * datos.
+ *
+ * Los *Logic registran sus escrituras con los métodos *Changed,
+ * que incrementan los contadores después del commit: quien lea un contador y
+ * luego consulte la colección nunca asocia datos viejos a un contador nuevo.
+ * {@link ModificationListener} registra además las entidades escritas por
+ * fuera de los *Logic. Los contadores viven en memoria y vuelven a cero al
+ * reiniciar, por eso se entregan junto con {@link #getEpoch()}. Los cambios
+ * hechos directamente en la base de datos, o en otro nodo, no incrementan
+ * los contadores.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class ModificationStamps {
+
+    @Resource
+    private TransactionSynchronizationRegistry registry;
+
+    private final long epoch = System.currentTimeMillis();
+
+    private final AtomicLong companies = new AtomicLong();
+
+    private final AtomicLong employees = new AtomicLong();
+
+    private final ConcurrentMap<Long, AtomicLong> departments = new ConcurrentHashMap<>();
+
+    /**
+     * @return momento en que se crearon los contadores.
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * @return contador de la colección de companies.
+     */
+    public long companies() {
+        return companies.get();
+    }
+
+    /**
+     * @return contador de la colección de employees.
+     */
+    public long employees() {
+        return employees.get();
+    }
+
+    /**
+     * @param companyId id del company.
+     * @return contador de la colección de departments del company.
+     */
+    public long departments(Long companyId) {
+        AtomicLong stamp = departments.get(companyId);
+        return stamp == null ? 0L : stamp.get();
+    }
+
+    /**
+     * Registra la creación, actualización o borrado de un company. Sus datos
+     * aparecen en la lista de companies y en la de sus departments; como la
+     * actualización y el borrado se propagan a sus departments, también puede
+     * cambiar la lista de employees.
+     *
+     * @param companyId id del company.
+     */
+    public void companyChanged(final Long companyId) {
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                increment(companyId);
+                companies.incrementAndGet();
+                employees.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Registra la creación, actualización o borrado de un department. Los
+     * departments aparecen en la lista de su company, en la de companies y,
+     * con su nombre, en la de employees: cambian las mismas colecciones que
+     * con {@link #companyChanged(Long)}.
+     *
+     * @param companyId id del company del department.
+     */
+    public void departmentChanged(Long companyId) {
+        companyChanged(companyId);
+    }
+
+    /**
+     * Registra la creación, actualización, borrado o cambio de department de
+     * employees.
+     */
+    public void employeesChanged() {
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                employees.incrementAndGet();
+            }
+        });
+    }
+
+    private void increment(Long companyId) {
+        if (companyId == null) {
+            return;
+        }
+        AtomicLong stamp = departments.get(companyId);
+        if (stamp == null) {
+            AtomicLong created = new AtomicLong();
+            stamp = departments.putIfAbsent(companyId, created);
+            if (stamp == null) {
+                stamp = created;
+            }
+        }
+        stamp.incrementAndGet();
+    }
+
+    private void afterCommit(final Runnable change) {
+        if (registry.getTransactionKey() == null) {
+            change.run();
+            return;
+        }
+        registry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+                // los contadores se incrementan después del commit
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    change.run();
+                }
+            }
+        });
+    }
+}
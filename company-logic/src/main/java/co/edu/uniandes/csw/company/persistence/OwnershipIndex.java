@@ -0,0 +1,503 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.persistence;
+
+import co.edu.uniandes.csw.company.util.LongLongHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Índice en memoria de la pertenencia department→company y
+ * employee→department, para validar las rutas anidadas de la API sin ir a
+ * la base de datos.
+ *
+ * Se carga al desplegar la aplicación y se vuelve a cargar cada 15 minutos.
+ * Los *Logic registran sus cambios con los métodos *Saved/*Deleted, que se
+ * aplican solo si la transacción hace commit. El índice solo se usa para
+ * confirmar rutas: si no conoce una ruta, quien pregunta la valida en la base
+ * de datos y la registra con {@link #repair(Long, Long, Long, long)}. Así,
+ * un cambio hecho por fuera de la aplicación puede dejar una ruta borrada
+ * como válida hasta la siguiente recarga, pero nunca rechaza una ruta válida.
+ *
+ * Una reparación se descarta si el índice cambió desde que se leyó la ruta
+ * de la base de datos ({@link #generation()}): el cambio pudo ser el borrado
+ * de esa misma ruta, confirmado y aplicado antes que la reparación.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class OwnershipIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(OwnershipIndex.class.getName());
+
+    /**
+     * Valor del índice para un department sin company o un employee sin
+     * department.
+     */
+    private static final long NONE = 0L;
+
+    @PersistenceContext(unitName = "CompanyPU")
+    protected EntityManager em;
+
+    @Resource
+    private TransactionSynchronizationRegistry registry;
+
+    private final StampedLock lock = new StampedLock();
+
+    private LongLongHashMap departmentCompany = new LongLongHashMap();
+
+    private LongLongHashMap employeeDepartment = new LongLongHashMap();
+
+    /**
+     * Cambios aplicados mientras se construye una recarga, para repetirlos
+     * sobre los mapas nuevos; es null cuando no hay una recarga en curso.
+     */
+    private List<Runnable> pending;
+
+    private volatile long loadedAt;
+
+    /**
+     * Número de cambios aplicados desde el despliegue, sin contar las
+     * reparaciones. Solo se modifica con el candado de escritura.
+     */
+    private volatile long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder repairs = new LongAdder();
+    private final LongAdder changes = new LongAdder();
+
+    @PostConstruct
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void init() {
+        rebuild();
+    }
+
+    /**
+     * Recarga periódica de {@link #rebuild()}.
+     */
+    @Schedule(hour = "*", minute = "*/15", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void refresh() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "No se pudo recargar el índice de pertenencia", e);
+        }
+    }
+
+    /**
+     * Vuelve a leer toda la pertenencia de la base de datos. Los cambios que
+     * se registren mientras tanto se aplican también a la nueva copia.
+     */
+    public void rebuild() {
+        long stamp = lock.writeLock();
+        try {
+            if (pending != null) {
+                return;
+            }
+            pending = new ArrayList<>();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        LongLongHashMap departments = null;
+        LongLongHashMap employees = null;
+        try {
+            departments = load("select d.id, c.id from DepartmentEntity d left join d.company c");
+            employees = load("select e.id, d.id from EmployeeEntity e left join e.department d");
+        } finally {
+            stamp = lock.writeLock();
+            try {
+                if (employees != null) {
+                    departmentCompany = departments;
+                    employeeDepartment = employees;
+                    for (Runnable change : pending) {
+                        change.run();
+                    }
+                    loadedAt = System.currentTimeMillis();
+                    changes.reset();
+                }
+                pending = null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        LOGGER.log(Level.INFO, "Índice de pertenencia cargado: {0} departments, {1} employees",
+                new Object[]{departments.size(), employees.size()});
+    }
+
+    private LongLongHashMap load(String jpql) {
+        List<Object[]> rows = em.createQuery(jpql, Object[].class).getResultList();
+        LongLongHashMap map = new LongLongHashMap(rows.size());
+        for (Object[] row : rows) {
+            map.put((Long) row[0], row[1] == null ? NONE : (Long) row[1]);
+        }
+        return map;
+    }
+
+    /**
+     * Indica si el índice confirma una ruta company/department[/employee].
+     *
+     * @param companyId id de la company.
+     * @param departmentId id del department.
+     * @param employeeId id del employee, o null para validar hasta el
+     * department.
+     * @return true si la ruta existe según el índice; false si no existe o
+     * el índice no la conoce.
+     */
+    public boolean contains(long companyId, long departmentId, Long employeeId) {
+        long stamp = lock.tryOptimisticRead();
+        boolean found = matches(companyId, departmentId, employeeId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = matches(companyId, departmentId, employeeId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (found) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return found;
+    }
+
+    private boolean matches(long companyId, long departmentId, Long employeeId) {
+        if (departmentCompany.get(departmentId) != companyId) {
+            return false;
+        }
+        return employeeId == null || employeeDepartment.get(employeeId) == departmentId;
+    }
+
+    /**
+     * Obtiene la generación del índice, que se debe leer antes de validar
+     * una ruta en la base de datos para luego registrarla con
+     * {@link #repair(Long, Long, Long, long)}.
+     *
+     * @return número de cambios aplicados al índice.
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Registra una ruta que se confirmó en la base de datos y que el índice
+     * no conocía. Se descarta si entre tanto se aplicó otro cambio al índice.
+     *
+     * @param companyId id de la company.
+     * @param departmentId id del department.
+     * @param employeeId id del employee, puede ser null.
+     * @param seen generación del índice antes de consultar la ruta.
+     */
+    public void repair(final Long companyId, final Long departmentId, final Long employeeId, final long seen) {
+        if (departmentId == null) {
+            return;
+        }
+        repairs.increment();
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != seen) {
+                    return;
+                }
+                departmentCompany.put(departmentId, companyId == null ? NONE : companyId);
+                if (employeeId != null) {
+                    employeeDepartment.put(employeeId, departmentId);
+                }
+            }
+        }, false);
+    }
+
+    /**
+     * Registra la company de un department creado o modificado.
+     *
+     * @param departmentId id del department.
+     * @param companyId id de su company, puede ser null.
+     */
+    public void departmentSaved(final Long departmentId, final Long companyId) {
+        if (departmentId == null) {
+            return;
+        }
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                departmentCompany.put(departmentId, companyId == null ? NONE : companyId);
+            }
+        });
+    }
+
+    /**
+     * Registra la eliminación de un department.
+     *
+     * @param departmentId id del department.
+     */
+    public void departmentDeleted(final Long departmentId) {
+        if (departmentId == null) {
+            return;
+        }
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                departmentCompany.remove(departmentId);
+            }
+        });
+    }
+
+    /**
+     * Registra la eliminación de una company y de sus departments.
+     *
+     * @param companyId id de la company.
+     */
+    public void companyDeleted(final Long companyId) {
+        if (companyId == null) {
+            return;
+        }
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                departmentCompany.removeValue(companyId);
+            }
+        });
+    }
+
+    /**
+     * Registra el department de un employee creado o modificado.
+     *
+     * @param employeeId id del employee.
+     * @param departmentId id de su department, puede ser null.
+     */
+    public void employeeSaved(Long employeeId, Long departmentId) {
+        if (employeeId != null) {
+            employeesMoved(new long[]{employeeId}, departmentId);
+        }
+    }
+
+    /**
+     * Registra el department de varios employees.
+     *
+     * @param employeeIds ids de los employees.
+     * @param departmentId id de su department, puede ser null.
+     */
+    public void employeesMoved(final long[] employeeIds, final Long departmentId) {
+        if (employeeIds.length == 0) {
+            return;
+        }
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                for (long employeeId : employeeIds) {
+                    employeeDepartment.put(employeeId, departmentId == null ? NONE : departmentId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Registra la eliminación de un employee.
+     *
+     * @param employeeId id del employee.
+     */
+    public void employeeDeleted(final Long employeeId) {
+        if (employeeId == null) {
+            return;
+        }
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                employeeDepartment.remove(employeeId);
+            }
+        });
+    }
+
+    /**
+     * Obtiene el tamaño, la memoria y la antigüedad del índice.
+     *
+     * @return valores del índice en este momento.
+     */
+    public Statistics statistics() {
+        long stamp = lock.readLock();
+        try {
+            return new Statistics(departmentCompany.size(), employeeDepartment.size(),
+                    departmentCompany.memoryBytes() + employeeDepartment.memoryBytes(),
+                    loadedAt, System.currentTimeMillis() - loadedAt, changes.sum(),
+                    hits.sum(), misses.sum(), repairs.sum());
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void afterCommit(Runnable change) {
+        afterCommit(change, true);
+    }
+
+    private void afterCommit(final Runnable change, final boolean counted) {
+        if (registry.getTransactionKey() == null) {
+            write(change, counted);
+            return;
+        }
+        registry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+                // el índice se actualiza después del commit
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    write(change, counted);
+                }
+            }
+        });
+    }
+
+    private void write(Runnable change, boolean counted) {
+        long stamp = lock.writeLock();
+        try {
+            change.run();
+            if (counted) {
+                changes.increment();
+                generation++;
+            }
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Valores del índice en un momento dado.
+     */
+    public static final class Statistics {
+
+        private final int departments;
+        private final int employees;
+        private final long memoryBytes;
+        private final long loadedAt;
+        private final long ageMillis;
+        private final long changes;
+        private final long hits;
+        private final long misses;
+        private final long repairs;
+
+        private Statistics(int departments, int employees, long memoryBytes, long loadedAt,
+                long ageMillis, long changes, long hits, long misses, long repairs) {
+            this.departments = departments;
+            this.employees = employees;
+            this.memoryBytes = memoryBytes;
+            this.loadedAt = loadedAt;
+            this.ageMillis = ageMillis;
+            this.changes = changes;
+            this.hits = hits;
+            this.misses = misses;
+            this.repairs = repairs;
+        }
+
+        /**
+         * @return departments en el índice.
+         */
+        public int getDepartments() {
+            return departments;
+        }
+
+        /**
+         * @return employees en el índice.
+         */
+        public int getEmployees() {
+            return employees;
+        }
+
+        /**
+         * @return bytes que ocupan las tablas del índice.
+         */
+        public long getMemoryBytes() {
+            return memoryBytes;
+        }
+
+        /**
+         * @return momento de la última carga completa, en milisegundos desde
+         * la época.
+         */
+        public long getLoadedAt() {
+            return loadedAt;
+        }
+
+        /**
+         * @return milisegundos transcurridos desde la última carga completa.
+         */
+        public long getAgeMillis() {
+            return ageMillis;
+        }
+
+        /**
+         * @return cambios aplicados desde la última carga completa.
+         */
+        public long getChanges() {
+            return changes;
+        }
+
+        /**
+         * @return rutas confirmadas por el índice.
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return rutas que el índice no pudo confirmar.
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return rutas que el índice no conocía y la base de datos confirmó.
+         */
+        public long getRepairs() {
+            return repairs;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.persistence;
+
+import co.edu.uniandes.csw.company.util.Metrics;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.InvocationContext;
+
+/**
+ * Interceptor que mide cada llamada a los métodos de las clases de
+ * persistencia en {@link Metrics#PERSISTENCE}, con el nombre
+ * Clase.método. Las sobrecargas de un método comparten el medidor.
+ */
+public class PersistenceMetrics {
+
+    private static final ConcurrentMap<Method, Metrics.Timer> TIMERS = new ConcurrentHashMap<>();
+
+    @AroundInvoke
+    public Object measure(InvocationContext context) throws Exception {
+        Metrics.Timer timer = timer(context.getMethod());
+        long started = timer.start();
+        boolean failed = true;
+        try {
+            Object result = context.proceed();
+            failed = false;
+            return result;
+        } finally {
+            timer.stop(started, failed);
+        }
+    }
+
+    private static Metrics.Timer timer(Method method) {
+        Metrics.Timer timer = TIMERS.get(method);
+        if (timer == null) {
+            timer = Metrics.of(Metrics.PERSISTENCE).timer(method.getDeclaringClass().getSimpleName() + "." + method.getName());
+            TIMERS.putIfAbsent(method, timer);
+        }
+        return timer;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.persistence;
+
+import co.edu.uniandes.csw.company.util.Deadline;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Collections;
+import java.util.Map;
+import javax.persistence.Query;
+import javax.persistence.QueryTimeoutException;
+
+/**
+ * Aplica el plazo de la petición del hilo actual ({@link Deadline}) como
+ * tiempo máximo de las consultas JPA. Cuando se vence, Derby cancela la
+ * sentencia y libera la conexión; si ya estaba vencido la consulta no se
+ * envía.
+ *
+ * JDBC recibe el tiempo en segundos, así que se redondea hacia arriba.
+ */
+public final class QueryTimeouts {
+
+    /**
+     * Hint de JPA con el tiempo máximo de una consulta, en milisegundos.
+     */
+    public static final String TIMEOUT_HINT = "javax.persistence.query.timeout";
+
+    /**
+     * SQLState con que Derby informa una sentencia cancelada o vencida.
+     */
+    private static final String CANCELLED_STATE = "XCL52";
+
+    private QueryTimeouts() {
+    }
+
+    /**
+     * Aplica el plazo del hilo actual a una consulta.
+     *
+     * @param query consulta.
+     * @return la misma consulta.
+     * @throws QueryTimeoutException si el plazo ya venció.
+     */
+    public static <Q extends Query> Q apply(Q query) {
+        Integer timeout = timeout();
+        if (timeout != null) {
+            query.setHint(TIMEOUT_HINT, timeout);
+        }
+        return query;
+    }
+
+    /**
+     * Obtiene las propiedades de EntityManager.find con el plazo del hilo
+     * actual.
+     *
+     * @return las propiedades, o null si no hay plazo.
+     * @throws QueryTimeoutException si el plazo ya venció.
+     */
+    public static Map<String, Object> hints() {
+        Integer timeout = timeout();
+        return timeout == null ? null : Collections.<String, Object>singletonMap(TIMEOUT_HINT, timeout);
+    }
+
+    /**
+     * Indica si una excepción, o alguna de sus causas, es una consulta
+     * cancelada por tiempo.
+     *
+     * @param e excepción.
+     * @return true si la consulta se canceló por tiempo.
+     */
+    public static boolean isTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null && cause != cause.getCause(); cause = cause.getCause()) {
+            if (cause instanceof QueryTimeoutException || cause instanceof SQLTimeoutException) {
+                return true;
+            }
+            if (cause instanceof SQLException && CANCELLED_STATE.equals(((SQLException) cause).getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Integer timeout() {
+        Deadline deadline = Deadline.current();
+        if (deadline == null || !deadline.isBounded()) {
+            return null;
+        }
+        long remaining = deadline.remainingMillis();
+        if (remaining <= 0) {
+            throw new QueryTimeoutException("Se venció el plazo de la petición");
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (remaining + 999) / 1000 * 1000);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.persistence;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Resource;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Operaciones sobre el caché compartido (L2) de la unidad de persistencia.
+ *
+ * EclipseLink actualiza el caché con las entidades modificadas al terminar la
+ * transacción, pero no las colecciones del lado inverso de una relación
+ * (Company.departments, Department.employees) ni los registros modificados con
+ * sentencias UPDATE masivas. Los *Logic invalidan esos registros con
+ * {@link #evictAfterCommit(Class, Object)}.
+ */
+@Stateless
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class SharedCache {
+
+    private static final Logger LOGGER = Logger.getLogger(SharedCache.class.getName());
+
+    @PersistenceContext(unitName = "CompanyPU")
+    protected EntityManager em;
+
+    @Resource
+    private TransactionSynchronizationRegistry registry;
+
+    /**
+     * Registra en {@link CacheStatistics} si una consulta por id se puede
+     * resolver desde el caché. Se llama justo antes de em.find.
+     *
+     * @param type clase de la entidad.
+     * @param id id consultado.
+     */
+    public void recordLookup(Class<?> type, Object id) {
+        if (id != null && em.getEntityManagerFactory().getCache().contains(type, id)) {
+            CacheStatistics.hit(type.getSimpleName());
+        } else {
+            CacheStatistics.miss(type.getSimpleName());
+        }
+    }
+
+    /**
+     * Invalida un registro del caché de inmediato y de nuevo cuando termina
+     * la transacción actual, para descartar también lo que otra transacción
+     * haya cargado antes del commit.
+     *
+     * @param type clase de la entidad.
+     * @param id id del registro a invalidar, se ignora si es null.
+     */
+    public void evictAfterCommit(final Class<?> type, final Object id) {
+        if (id == null) {
+            return;
+        }
+        final Cache cache = em.getEntityManagerFactory().getCache();
+        evict(cache, type, id);
+        afterCompletion(new Runnable() {
+            @Override
+            public void run() {
+                evict(cache, type, id);
+            }
+        });
+    }
+
+    /**
+     * Invalida todos los registros de un tipo de entidad, de inmediato y de
+     * nuevo cuando termina la transacción actual.
+     *
+     * @param type clase de la entidad.
+     */
+    public void evictAllAfterCommit(final Class<?> type) {
+        final Cache cache = em.getEntityManagerFactory().getCache();
+        cache.evict(type);
+        afterCompletion(new Runnable() {
+            @Override
+            public void run() {
+                cache.evict(type);
+            }
+        });
+    }
+
+    private void afterCompletion(final Runnable action) {
+        if (registry.getTransactionKey() == null) {
+            return;
+        }
+        registry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+                // la invalidación se hace después del commit
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private static void evict(Cache cache, Class<?> type, Object id) {
+        if (cache.contains(type, id)) {
+            cache.evict(type, id);
+            CacheStatistics.evicted(type.getSimpleName(), 1);
+            LOGGER.log(Level.FINE, "{0} con id={1} invalidado en el caché", new Object[]{type.getSimpleName(), id});
+        }
+    }
+}
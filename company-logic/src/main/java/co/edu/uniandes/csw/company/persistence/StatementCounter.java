@@ -0,0 +1,82 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.persistence;
+
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.SessionProfiler;
+import org.eclipse.persistence.sessions.SessionProfilerAdapter;
+
+/**
+ * Cuenta las sentencias SQL que EclipseLink envía a la base de datos. Se
+ * registra como profiler de la sesión en CompanySessionCustomizer; cada
+ * sentencia preparada cuenta una vez, aunque se ejecute como un lote.
+ * También cuenta las unidades de trabajo (contextos de persistencia) que se
+ * crean, una por cada transacción que usa la base de datos.
+ *
+ * El contador es global a la aplicación. Sirve para verificar que una
+ * operación ejecuta un número acotado de sentencias, comparando su valor
+ * antes y después de la operación.
+ */
+public class StatementCounter extends SessionProfilerAdapter {
+
+    private static final LongAdder STATEMENTS = new LongAdder();
+
+    private static final LongAdder UNITS_OF_WORK = new LongAdder();
+
+    /**
+     * Obtiene el número de sentencias SQL enviadas desde que se desplegó la
+     * aplicación.
+     *
+     * @return número de sentencias.
+     */
+    public static long count() {
+        return STATEMENTS.sum();
+    }
+
+    /**
+     * Obtiene el número de unidades de trabajo creadas desde que se desplegó
+     * la aplicación.
+     *
+     * @return número de unidades de trabajo.
+     */
+    public static long unitsOfWork() {
+        return UNITS_OF_WORK.sum();
+    }
+
+    @Override
+    public void startOperationProfile(String operationName, DatabaseQuery query, int weight) {
+        if (SessionProfiler.SqlPrepare.equals(operationName)) {
+            STATEMENTS.increment();
+        }
+    }
+
+    @Override
+    public void occurred(String operationName, AbstractSession session) {
+        if (SessionProfiler.UowCreated.equals(operationName)) {
+            UNITS_OF_WORK.increment();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.persistence;
+
+import co.edu.uniandes.csw.company.entities.BaseEntity;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+
+/**
+ * Apoyo para actualizar con merge entidades que llegan de los DTOs, que no
+ * traen versión. EclipseLink no puede actualizar una entidad con versión
+ * null, así que a las que no la traen se les asigna la versión actual: la
+ * actualización queda como "el último gana", igual que antes de que
+ * existiera la versión.
+ */
+final class Versions {
+
+    private Versions() {
+    }
+
+    /**
+     * Asigna la versión actual de la base de datos a las entidades con id que
+     * no traen versión, con una sola consulta.
+     *
+     * @param em contexto de persistencia.
+     * @param type clase de las entidades.
+     * @param entities entidades a completar.
+     */
+    static void fillMissing(EntityManager em, Class<? extends BaseEntity> type, Collection<? extends BaseEntity> entities) {
+        List<Long> ids = new ArrayList<>();
+        for (BaseEntity entity : entities) {
+            if (entity.getId() != null && entity.getVersion() == null) {
+                ids.add(entity.getId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        String name = em.getMetamodel().entity(type).getName();
+        Map<Long, Long> versions = new HashMap<>();
+        for (Object[] row : QueryTimeouts.apply(em.createQuery("select e.id, e.version from " + name + " e where e.id in :ids", Object[].class))
+                .setParameter("ids", ids)
+                .getResultList()) {
+            versions.put((Long) row[0], (Long) row[1]);
+        }
+        for (BaseEntity entity : entities) {
+            if (entity.getId() != null && entity.getVersion() == null) {
+                entity.setVersion(versions.get(entity.getId()));
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.projections;
+
+/**
+ * Datos de un Employee y de su Department leídos con una consulta de
+ * proyección (SELECT NEW). No es una entidad: no queda registrado en el
+ * contexto de persistencia ni en el caché.
+ */
+public class EmployeeSummary {
+
+    private final Long id;
+    private final String name;
+    private final Double salary;
+    private final Long departmentId;
+    private final String departmentName;
+
+    public EmployeeSummary(Long id, String name, Double salary, Long departmentId, String departmentName) {
+        this.id = id;
+        this.name = name;
+        this.salary = salary;
+        this.departmentId = departmentId;
+        this.departmentName = departmentName;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Double getSalary() {
+        return salary;
+    }
+
+    /**
+     * @return id del Department, o null si el Employee no tiene.
+     */
+    public Long getDepartmentId() {
+        return departmentId;
+    }
+
+    /**
+     * @return nombre del Department, o null si el Employee no tiene.
+     */
+    public String getDepartmentName() {
+        return departmentName;
+    }
+}
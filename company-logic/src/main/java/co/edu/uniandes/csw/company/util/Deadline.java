@@ -0,0 +1,258 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plazo de la petición que se está atendiendo en el hilo actual. Los
+ * servicios lo establecen antes de llamar a la lógica y la persistencia lo
+ * usa como tiempo máximo de cada consulta, así una petición abandonada no
+ * sigue ocupando una conexión del pool.
+ *
+ * Cada plazo pertenece a un endpoint, en el que se cuentan las peticiones
+ * descartadas porque su plazo venció antes de empezar, las que se
+ * respondieron por tiempo y las consultas canceladas.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private static final ConcurrentMap<String, Counters> ENDPOINTS = new ConcurrentSkipListMap<>();
+
+    private final String endpoint;
+
+    /**
+     * Instante de {@link System#nanoTime()} en que vence, o
+     * {@link Long#MAX_VALUE} si no tiene plazo.
+     */
+    private final long expiresAt;
+
+    private final Counters counters;
+
+    private Deadline(String endpoint, long expiresAt) {
+        this.endpoint = endpoint;
+        this.expiresAt = expiresAt;
+        this.counters = counters(endpoint);
+    }
+
+    /**
+     * Crea un plazo que vence después de un tiempo.
+     *
+     * @param endpoint endpoint de la petición.
+     * @param millis milisegundos desde ahora.
+     * @return el plazo.
+     */
+    public static Deadline in(String endpoint, long millis) {
+        return new Deadline(endpoint, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis)));
+    }
+
+    /**
+     * Crea un plazo que no vence, para contar las peticiones de un endpoint
+     * cuyo cliente no envió plazo.
+     *
+     * @param endpoint endpoint de la petición.
+     * @return el plazo.
+     */
+    public static Deadline unbounded(String endpoint) {
+        return new Deadline(endpoint, Long.MAX_VALUE);
+    }
+
+    /**
+     * Obtiene el plazo del hilo actual.
+     *
+     * @return el plazo, o null si no hay.
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Establece el plazo del hilo actual.
+     *
+     * @param deadline nuevo plazo, o null para quitarlo.
+     * @return el plazo anterior, para restablecerlo al terminar.
+     */
+    public static Deadline set(Deadline deadline) {
+        Deadline previous = CURRENT.get();
+        if (deadline == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(deadline);
+        }
+        return previous;
+    }
+
+    /**
+     * Obtiene un plazo que vence a más tardar después de un tiempo.
+     *
+     * @param millis milisegundos desde ahora.
+     * @return este plazo si vence antes, o uno nuevo del mismo endpoint.
+     */
+    public Deadline atMost(long millis) {
+        Deadline other = in(endpoint, millis);
+        return other.expiresAt - expiresAt < 0 ? other : this;
+    }
+
+    /**
+     * @return endpoint de la petición.
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @return true si el plazo vence en algún momento.
+     */
+    public boolean isBounded() {
+        return expiresAt != Long.MAX_VALUE;
+    }
+
+    /**
+     * @return true si el plazo ya venció.
+     */
+    public boolean isExpired() {
+        return isBounded() && expiresAt - System.nanoTime() <= 0;
+    }
+
+    /**
+     * @return milisegundos que faltan para que venza, 0 si ya venció, o
+     * {@link Long#MAX_VALUE} si no vence.
+     */
+    public long remainingMillis() {
+        if (!isBounded()) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAt - System.nanoTime()));
+    }
+
+    /**
+     * Cuenta una petición descartada porque su plazo venció antes de
+     * empezar.
+     */
+    public void dropped() {
+        counters.dropped.increment();
+    }
+
+    /**
+     * Cuenta una petición que se respondió por tiempo antes de terminar.
+     */
+    public void timedOut() {
+        counters.timedOut.increment();
+    }
+
+    /**
+     * Cuenta una consulta cancelada por el plazo.
+     */
+    public void cancelled() {
+        counters.cancelled.increment();
+    }
+
+    private static Counters counters(String endpoint) {
+        Counters counters = ENDPOINTS.get(endpoint);
+        if (counters == null) {
+            Counters created = new Counters();
+            counters = ENDPOINTS.putIfAbsent(endpoint, created);
+            if (counters == null) {
+                counters = created;
+            }
+        }
+        return counters;
+    }
+
+    /**
+     * Obtiene una copia de los contadores de todos los endpoints, ordenada
+     * por nombre de endpoint.
+     *
+     * @return contadores de cada endpoint.
+     */
+    public static List<Entry> snapshot() {
+        List<Entry> entries = new ArrayList<>();
+        for (Map.Entry<String, Counters> endpoint : ENDPOINTS.entrySet()) {
+            Counters counters = endpoint.getValue();
+            entries.add(new Entry(endpoint.getKey(), counters.dropped.sum(), counters.timedOut.sum(), counters.cancelled.sum()));
+        }
+        return entries;
+    }
+
+    private static final class Counters {
+
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+    }
+
+    /**
+     * Contadores de un endpoint en un momento dado.
+     */
+    public static final class Entry {
+
+        private final String endpoint;
+        private final long dropped;
+        private final long timedOut;
+        private final long cancelled;
+
+        Entry(String endpoint, long dropped, long timedOut, long cancelled) {
+            this.endpoint = endpoint;
+            this.dropped = dropped;
+            this.timedOut = timedOut;
+            this.cancelled = cancelled;
+        }
+
+        /**
+         * @return nombre del endpoint.
+         */
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        /**
+         * @return peticiones descartadas porque su plazo venció antes de
+         * empezar.
+         */
+        public long getDropped() {
+            return dropped;
+        }
+
+        /**
+         * @return peticiones respondidas por tiempo antes de terminar.
+         */
+        public long getTimedOut() {
+            return timedOut;
+        }
+
+        /**
+         * @return consultas canceladas por el plazo.
+         */
+        public long getCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias sin bloqueos, con cubetas logarítmicas como las de
+ * HdrHistogram: cada potencia de dos de microsegundos se divide en
+ * {@value #SUB_BUCKETS} cubetas iguales, así el error relativo de los
+ * percentiles es a lo más 1/{@value #SUB_BUCKETS} en todo el rango. Registrar
+ * un valor es un incremento atómico sobre un arreglo de tamaño fijo.
+ *
+ * Los valores por encima de 2^{@value #MAX_EXPONENT} microsegundos (unos 35
+ * minutos) se registran en la última cubeta.
+ *
+ * Los valores se acumulan desde que se crea; {@link RollingLatencyHistogram}
+ * calcula los percentiles de una ventana reciente.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private static final int MAX_EXPONENT = 31;
+
+    static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Registra una latencia.
+     *
+     * @param nanos latencia en nanosegundos.
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(index(Math.max(0, nanos / 1000)));
+    }
+
+    /**
+     * Calcula varios percentiles sobre una misma copia de las cubetas.
+     *
+     * @param quantiles percentiles entre 0 y 1.
+     * @return el límite superior, en microsegundos, de la cubeta de cada
+     * percentil; 0 si no hay valores registrados.
+     */
+    public long[] quantiles(double... quantiles) {
+        long[] copy = new long[BUCKETS];
+        addTo(copy);
+        return quantiles(copy, quantiles);
+    }
+
+    /**
+     * Suma las cubetas de este histograma a un arreglo.
+     *
+     * @param copy arreglo de {@link #BUCKETS} cubetas.
+     */
+    void addTo(long[] copy) {
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] += counts.get(i);
+        }
+    }
+
+    /**
+     * Pone todas las cubetas en cero. Los valores registrados mientras tanto
+     * se pueden perder.
+     */
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    /**
+     * Calcula varios percentiles sobre una copia de las cubetas.
+     */
+    static long[] quantiles(long[] copy, double... quantiles) {
+        long total = 0;
+        for (long count : copy) {
+            total += count;
+        }
+        long[] values = new long[quantiles.length];
+        if (total == 0) {
+            return values;
+        }
+        for (int q = 0; q < quantiles.length; q++) {
+            long rank = Math.max(1, (long) Math.ceil(quantiles[q] * total));
+            long seen = 0;
+            int i = 0;
+            while (i < BUCKETS - 1 && (seen += copy[i]) < rank) {
+                i++;
+            }
+            values[q] = lowerBound(i + 1) - 1;
+        }
+        return values;
+    }
+
+    private static int index(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) - SUB_BUCKETS;
+        return SUB_BUCKETS + (exponent - SUB_BITS) * SUB_BUCKETS + sub;
+    }
+
+    private static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = (index - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+        int sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+    }
+}
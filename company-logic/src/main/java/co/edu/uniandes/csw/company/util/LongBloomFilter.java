@@ -0,0 +1,124 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom de valores long. Responde si un valor pudo haberse agregado:
+ * un false es definitivo y un true puede ser un falso positivo, con la
+ * probabilidad indicada al crearlo mientras no se agreguen más valores de
+ * los esperados. Los valores no se pueden quitar.
+ *
+ * Es seguro para uso concurrente: los bits se activan con compare-and-set.
+ */
+public class LongBloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final int expectedSize;
+
+    /**
+     * Crea un filtro dimensionado para un número de valores y una tasa de
+     * falsos positivos.
+     *
+     * @param expectedSize número de valores esperado.
+     * @param falsePositiveRate probabilidad de falso positivo, entre 0 y 1.
+     */
+    public LongBloomFilter(int expectedSize, double falsePositiveRate) {
+        int n = Math.max(expectedSize, 1);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int length = (int) Math.max(1, (m + 63) / 64);
+        this.words = new AtomicLongArray(length);
+        this.bits = 64L * length;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        this.expectedSize = n;
+    }
+
+    /**
+     * Agrega un valor al filtro.
+     *
+     * @param value valor a agregar.
+     */
+    public void add(long value) {
+        long h1 = mix(value);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+    }
+
+    /**
+     * Indica si un valor pudo haberse agregado al filtro.
+     *
+     * @param value valor a buscar.
+     * @return false si el valor seguro no se agregó.
+     */
+    public boolean mightContain(long value) {
+        long h1 = mix(value);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Obtiene el número de valores para el que se dimensionó el filtro.
+     *
+     * @return número de valores esperado.
+     */
+    public int getExpectedSize() {
+        return expectedSize;
+    }
+
+    /**
+     * Obtiene la memoria que ocupan los bits del filtro.
+     *
+     * @return tamaño en bytes.
+     */
+    public long memoryBytes() {
+        return bits / 8;
+    }
+
+    /**
+     * Dispersa los bits del valor (finalizador de SplitMix64).
+     */
+    private static long mix(long value) {
+        long h = value + 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.util;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto de valores long con direccionamiento abierto. Guarda los valores
+ * en un arreglo primitivo, sin crear un objeto Long por elemento, y se usa
+ * para comparar colecciones grandes de ids.
+ *
+ * La clase no es segura para uso concurrente.
+ */
+public class LongHashSet {
+
+    private static final long EMPTY = 0L;
+
+    private long[] table;
+    private int size;
+    private boolean hasEmptyValue;
+
+    /**
+     * Crea un conjunto con capacidad para el número de elementos esperado sin
+     * necesidad de crecer.
+     *
+     * @param expectedSize número de elementos esperado.
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = 8;
+        while (capacity * 3 / 4 <= expectedSize) {
+            capacity <<= 1;
+        }
+        table = new long[capacity];
+    }
+
+    /**
+     * Crea un conjunto vacío.
+     */
+    public LongHashSet() {
+        this(4);
+    }
+
+    /**
+     * Agrega un valor al conjunto.
+     *
+     * @param value valor a agregar.
+     * @return true si el valor no estaba en el conjunto.
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            boolean added = !hasEmptyValue;
+            hasEmptyValue = true;
+            if (added) {
+                size++;
+            }
+            return added;
+        }
+        int mask = table.length - 1;
+        int i = mix(value) & mask;
+        while (table[i] != EMPTY) {
+            if (table[i] == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+        size++;
+        if (size * 4 > table.length * 3) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Indica si un valor pertenece al conjunto.
+     *
+     * @param value valor a buscar.
+     * @return true si el valor está en el conjunto.
+     */
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return hasEmptyValue;
+        }
+        int mask = table.length - 1;
+        int i = mix(value) & mask;
+        while (table[i] != EMPTY) {
+            if (table[i] == value) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Obtiene el número de elementos del conjunto.
+     *
+     * @return número de elementos.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Indica si el conjunto no tiene elementos.
+     *
+     * @return true si el conjunto está vacío.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Copia los elementos del conjunto a un arreglo, sin un orden definido.
+     *
+     * @return arreglo con los elementos del conjunto.
+     */
+    public long[] toArray() {
+        long[] values = new long[size];
+        int n = 0;
+        if (hasEmptyValue) {
+            values[n++] = EMPTY;
+        }
+        for (long value : table) {
+            if (value != EMPTY) {
+                values[n++] = value;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Elimina todos los elementos del conjunto conservando su capacidad.
+     */
+    public void clear() {
+        Arrays.fill(table, EMPTY);
+        size = 0;
+        hasEmptyValue = false;
+    }
+
+    private void grow() {
+        long[] old = table;
+        table = new long[old.length << 1];
+        int mask = table.length - 1;
+        for (long value : old) {
+            if (value != EMPTY) {
+                int i = mix(value) & mask;
+                while (table[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = value;
+            }
+        }
+    }
+
+    /**
+     * Dispersa los bits del valor para que ids consecutivos no queden en
+     * posiciones consecutivas de la tabla.
+     */
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,239 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.util;
+
+/**
+ * Mapa de long a long con direccionamiento abierto. Guarda llaves y valores
+ * en arreglos primitivos, sin crear objetos por entrada. Las llaves deben ser
+ * distintas de 0, que marca las posiciones libres; los valores pueden ser
+ * cualquier long distinto de {@link #NO_VALUE}.
+ *
+ * La clase no es segura para uso concurrente. {@link #get(long)} sí termina
+ * aunque otro hilo modifique el mapa al mismo tiempo, de modo que se puede
+ * usar en una lectura optimista que luego se valida.
+ */
+public class LongLongHashMap {
+
+    /**
+     * Valor que retorna {@link #get(long)} cuando la llave no está.
+     */
+    public static final long NO_VALUE = Long.MIN_VALUE;
+
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    /**
+     * Crea un mapa con capacidad para el número de entradas esperado sin
+     * necesidad de crecer.
+     *
+     * @param expectedSize número de entradas esperado.
+     */
+    public LongLongHashMap(int expectedSize) {
+        int capacity = 8;
+        while (capacity * 3 / 4 <= expectedSize) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new long[capacity];
+    }
+
+    /**
+     * Crea un mapa vacío.
+     */
+    public LongLongHashMap() {
+        this(4);
+    }
+
+    /**
+     * Asocia un valor a una llave, reemplazando el anterior.
+     *
+     * @param key llave, distinta de 0.
+     * @param value valor.
+     */
+    public void put(long key, long value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("La llave 0 no está permitida");
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        if (size * 4 > keys.length * 3) {
+            grow();
+        }
+    }
+
+    /**
+     * Obtiene el valor asociado a una llave.
+     *
+     * @param key llave a buscar.
+     * @return el valor, o {@link #NO_VALUE} si la llave no está.
+     */
+    public long get(long key) {
+        long[] k = keys;
+        long[] v = values;
+        if (key == EMPTY || k.length != v.length) {
+            return NO_VALUE;
+        }
+        int mask = k.length - 1;
+        int i = mix(key) & mask;
+        for (int probes = 0; probes < k.length && k[i] != EMPTY; probes++) {
+            if (k[i] == key) {
+                return v[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Elimina una llave del mapa.
+     *
+     * @param key llave a eliminar.
+     * @return true si la llave estaba en el mapa.
+     */
+    public boolean remove(long key) {
+        if (key == EMPTY) {
+            return false;
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                shiftBack(i);
+                size--;
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Elimina todas las entradas con un valor dado.
+     *
+     * @param value valor a eliminar.
+     * @return número de entradas eliminadas.
+     */
+    public int removeValue(long value) {
+        LongHashSet matches = new LongHashSet();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && values[i] == value) {
+                matches.add(keys[i]);
+            }
+        }
+        for (long key : matches.toArray()) {
+            remove(key);
+        }
+        return matches.size();
+    }
+
+    /**
+     * Obtiene el número de entradas del mapa.
+     *
+     * @return número de entradas.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Obtiene el número de posiciones de la tabla, ocupadas o no.
+     *
+     * @return capacidad de la tabla.
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Estima la memoria que ocupan los arreglos del mapa.
+     *
+     * @return tamaño en bytes de los arreglos de llaves y valores.
+     */
+    public long memoryBytes() {
+        return 2L * Long.BYTES * keys.length;
+    }
+
+    /**
+     * Elimina la posición i y corre hacia atrás las entradas siguientes que
+     * quedarían inalcanzables, para no dejar marcas de borrado en la tabla.
+     */
+    private void shiftBack(int i) {
+        int mask = keys.length - 1;
+        int hole = i;
+        int j = (i + 1) & mask;
+        while (keys[j] != EMPTY) {
+            int home = mix(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        values[hole] = 0L;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        long[] newKeys = new long[oldKeys.length << 1];
+        long[] newValues = new long[newKeys.length];
+        int mask = newKeys.length - 1;
+        for (int n = 0; n < oldKeys.length; n++) {
+            if (oldKeys[n] != EMPTY) {
+                int i = mix(oldKeys[n]) & mask;
+                while (newKeys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                newKeys[i] = oldKeys[n];
+                newValues[i] = oldValues[n];
+            }
+        }
+        values = newValues;
+        keys = newKeys;
+    }
+
+    /**
+     * Dispersa los bits de la llave para que ids consecutivos no queden en
+     * posiciones consecutivas de la tabla.
+     */
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,239 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de una capa de la aplicación: un {@link Timer} por método, con
+ * sus llamadas, llamadas en curso, errores e histograma de latencias, y
+ * contadores simples por nombre. Registrar una llamada solo incrementa
+ * LongAdders y una cubeta del histograma, sin bloqueos.
+ *
+ * Los contadores se acumulan desde que se despliega la aplicación; los
+ * percentiles de latencia son de la ventana reciente configurada con la
+ * propiedad de sistema {@value #WINDOW_PROPERTY}, para que reflejen la
+ * latencia actual y no la de todo el tiempo desplegado.
+ */
+public final class Metrics {
+
+    /**
+     * Métodos de los recursos REST.
+     */
+    public static final String HTTP = "http";
+
+    /**
+     * Métodos de las clases de persistencia.
+     */
+    public static final String PERSISTENCE = "persistence";
+
+    /**
+     * Respuestas generadas por cada convertidor de excepciones.
+     */
+    public static final String EXCEPTION_MAPPERS = "exception_mapper";
+
+    /**
+     * Propiedad de sistema con la duración, en milisegundos, de la ventana de
+     * los percentiles de latencia.
+     */
+    public static final String WINDOW_PROPERTY = "company.metrics.window-ms";
+
+    private static final long WINDOW_MILLIS = Long.getLong(WINDOW_PROPERTY, 60000L);
+
+    private static final ConcurrentMap<String, Metrics> LAYERS = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Obtiene las métricas de una capa, creándolas la primera vez.
+     *
+     * @param layer nombre de la capa.
+     * @return métricas de la capa.
+     */
+    public static Metrics of(String layer) {
+        Metrics metrics = LAYERS.get(layer);
+        if (metrics == null) {
+            Metrics created = new Metrics();
+            metrics = LAYERS.putIfAbsent(layer, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Obtiene el medidor de un método, creándolo la primera vez.
+     *
+     * @param name nombre del método.
+     * @return medidor del método.
+     */
+    public Timer timer(String name) {
+        Timer timer = timers.get(name);
+        if (timer == null) {
+            Timer created = new Timer(name);
+            timer = timers.putIfAbsent(name, created);
+            if (timer == null) {
+                timer = created;
+            }
+        }
+        return timer;
+    }
+
+    /**
+     * Incrementa un contador.
+     *
+     * @param name nombre del contador.
+     */
+    public void increment(String name) {
+        LongAdder counter = counters.get(name);
+        if (counter == null) {
+            LongAdder created = new LongAdder();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.increment();
+    }
+
+    /**
+     * @return medidores de la capa, ordenados por nombre.
+     */
+    public List<Timer> timers() {
+        return new ArrayList<>(timers.values());
+    }
+
+    /**
+     * @return copia de los contadores de la capa, ordenada por nombre.
+     */
+    public Map<String, Long> counters() {
+        Map<String, Long> copy = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+            copy.put(counter.getKey(), counter.getValue().sum());
+        }
+        return copy;
+    }
+
+    /**
+     * Medidor de las llamadas a un método.
+     */
+    public static final class Timer {
+
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder inFlight = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final RollingLatencyHistogram histogram = new RollingLatencyHistogram(WINDOW_MILLIS);
+
+        Timer(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Registra el inicio de una llamada.
+         *
+         * @return instante de inicio, para {@link #stop(long, boolean)}.
+         */
+        public long start() {
+            inFlight.increment();
+            return System.nanoTime();
+        }
+
+        /**
+         * Registra el fin de una llamada.
+         *
+         * @param started instante que retornó {@link #start()}.
+         * @param failed true si la llamada terminó en error.
+         */
+        public void stop(long started, boolean failed) {
+            long elapsed = System.nanoTime() - started;
+            inFlight.decrement();
+            calls.increment();
+            if (failed) {
+                errors.increment();
+            }
+            totalNanos.add(elapsed);
+            histogram.record(elapsed);
+        }
+
+        /**
+         * @return nombre del método.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return llamadas terminadas.
+         */
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        /**
+         * @return llamadas en curso.
+         */
+        public long getInFlight() {
+            return inFlight.sum();
+        }
+
+        /**
+         * @return llamadas terminadas en error.
+         */
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        /**
+         * @return suma de las latencias, en nanosegundos.
+         */
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        /**
+         * Calcula percentiles de la latencia de las llamadas terminadas en la
+         * ventana reciente.
+         *
+         * @param quantiles percentiles entre 0 y 1.
+         * @return latencia de cada percentil, en microsegundos.
+         */
+        public long[] quantileMicros(double... quantiles) {
+            return histogram.quantiles(quantiles);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias de una ventana reciente. La ventana se divide en
+ * {@value #SLICES} tramos, cada uno con su {@link LatencyHistogram}: una
+ * latencia se registra en el tramo actual y los percentiles se calculan
+ * sumando los tramos que aún están dentro de la ventana. Al empezar un tramo
+ * se reutiliza el histograma del más antiguo, que se pone en cero.
+ *
+ * La ventana cubre el tramo actual y los {@value #SLICES} - 1 anteriores, de
+ * modo que su duración real varía en un tramo. Los valores registrados justo
+ * al cambiar de tramo se pueden perder.
+ */
+public final class RollingLatencyHistogram {
+
+    private static final int SLICES = 6;
+
+    private final long sliceNanos;
+
+    private final LatencyHistogram[] slices = new LatencyHistogram[SLICES];
+
+    /**
+     * Número de tramo (instante / duración del tramo) que guarda cada
+     * histograma.
+     */
+    private final AtomicLongArray ticks = new AtomicLongArray(SLICES);
+
+    /**
+     * Crea un histograma vacío.
+     *
+     * @param windowMillis duración de la ventana en milisegundos.
+     */
+    public RollingLatencyHistogram(long windowMillis) {
+        this.sliceNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(windowMillis) / SLICES);
+        long tick = tick();
+        for (int i = 0; i < SLICES; i++) {
+            slices[i] = new LatencyHistogram();
+            ticks.set(i, tick - SLICES);
+        }
+    }
+
+    /**
+     * Registra una latencia en el tramo actual.
+     *
+     * @param nanos latencia en nanosegundos.
+     */
+    public void record(long nanos) {
+        long tick = tick();
+        int index = (int) Math.floorMod(tick, (long) SLICES);
+        long current = ticks.get(index);
+        if (current < tick && ticks.compareAndSet(index, current, tick)) {
+            slices[index].reset();
+        }
+        slices[index].record(nanos);
+    }
+
+    /**
+     * Calcula varios percentiles de las latencias de la ventana.
+     *
+     * @param quantiles percentiles entre 0 y 1.
+     * @return el límite superior, en microsegundos, de la cubeta de cada
+     * percentil; 0 si no hay valores en la ventana.
+     */
+    public long[] quantiles(double... quantiles) {
+        long tick = tick();
+        long[] copy = new long[LatencyHistogram.BUCKETS];
+        for (int i = 0; i < SLICES; i++) {
+            if (tick - ticks.get(i) < SLICES) {
+                slices[i].addTo(copy);
+            }
+        }
+        return LatencyHistogram.quantiles(copy, quantiles);
+    }
+
+    private long tick() {
+        return Math.floorDiv(System.nanoTime(), sliceNanos);
+    }
+}
@@ -0,0 +1,262 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015 Los Andes University
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package co.edu.uniandes.csw.company.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agrupa las llamadas concurrentes a una misma operación con los mismos
+ * argumentos: la primera ejecuta la carga y las demás esperan su resultado,
+ * en lugar de repetir la consulta. Una llamada que llega cuando la carga ya
+ * terminó inicia una carga nueva; no se guardan resultados. Las llamadas
+ * solo se agrupan si leyeron la misma versión de los datos, de modo que una
+ * llamada que llega después del commit de una escritura no recibe el
+ * resultado de una carga que empezó antes.
+ *
+ * Cada llamada espera según su propio {@link Deadline}: si se vence
+ * esperando, o si la carga en curso falló porque se venció el plazo de
+ * quien la inició, sigue por su cuenta con su propio plazo.
+ *
+ * Todas las llamadas agrupadas reciben el mismo objeto, por eso solo se debe
+ * usar para lecturas cuyo resultado no se modifica.
+ *
+ * @param <K> tipo de los argumentos de la operación.
+ * @param <V> tipo del resultado.
+ */
+public final class SingleFlight<K, V> {
+
+    private static final Map<String, SingleFlight<?, ?>> OPERATIONS = new ConcurrentHashMap<>();
+
+    private final String operation;
+
+    private final ConcurrentMap<Key<K>, Call<V>> calls = new ConcurrentHashMap<>();
+
+    private final LongAdder loads = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private SingleFlight(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Crea el agrupador de una operación y lo registra para que aparezca en
+     * las estadísticas.
+     *
+     * @param operation nombre de la operación.
+     * @return agrupador de la operación.
+     */
+    public static <K, V> SingleFlight<K, V> of(String operation) {
+        SingleFlight<K, V> flight = new SingleFlight<>(operation);
+        OPERATIONS.put(operation, flight);
+        return flight;
+    }
+
+    /**
+     * Ejecuta la carga, o espera la que ya esté en curso con los mismos
+     * argumentos y la misma versión.
+     *
+     * @param key argumentos de la operación.
+     * @param version versión de los datos, leída antes de la carga.
+     * @param loader carga a ejecutar.
+     * @return resultado de la carga.
+     */
+    public V execute(K key, long version, Callable<V> loader) {
+        Key<K> flight = new Key<>(key, version);
+        Call<V> call = new Call<>(loader, Deadline.current());
+        Call<V> running = calls.putIfAbsent(flight, call);
+        if (running == null) {
+            loads.increment();
+            try {
+                call.run();
+            } finally {
+                calls.remove(flight, call);
+            }
+            return get(call);
+        }
+        coalesced.increment();
+        Deadline deadline = Deadline.current();
+        try {
+            if (deadline == null || !deadline.isBounded()) {
+                running.get();
+            } else {
+                running.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+            }
+        } catch (TimeoutException e) {
+            return load(loader);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Se interrumpió la espera de " + operation, e);
+        } catch (ExecutionException e) {
+            if (running.deadline != null && running.deadline.isExpired()) {
+                return load(loader);
+            }
+        }
+        return get(running);
+    }
+
+    /**
+     * Ejecuta la carga en el hilo actual, sin agruparla con otras llamadas.
+     */
+    private V load(Callable<V> loader) {
+        loads.increment();
+        FutureTask<V> call = new FutureTask<>(loader);
+        call.run();
+        return get(call);
+    }
+
+    /**
+     * Obtiene el resultado de una carga terminada.
+     */
+    private V get(FutureTask<V> call) {
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Se interrumpió la espera de " + operation, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Obtiene una copia de los contadores de todas las operaciones, ordenada
+     * por nombre de operación.
+     *
+     * @return contadores de cada operación.
+     */
+    public static List<Entry> snapshot() {
+        List<Entry> entries = new ArrayList<>();
+        for (SingleFlight<?, ?> flight : new ConcurrentSkipListMap<>(OPERATIONS).values()) {
+            entries.add(new Entry(flight.operation, flight.loads.sum(), flight.coalesced.sum(), flight.calls.size()));
+        }
+        return entries;
+    }
+
+    /**
+     * Argumentos y versión de una carga.
+     */
+    private static final class Key<K> {
+
+        private final K key;
+        private final long version;
+
+        Key(K key, long version) {
+            this.key = key;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key<?> other = (Key<?>) obj;
+            return version == other.version && (key == null ? other.key == null : key.equals(other.key));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (key == null ? 0 : key.hashCode()) + (int) (version ^ (version >>> 32));
+        }
+    }
+
+    /**
+     * Carga en curso, con el plazo de quien la inició.
+     */
+    private static final class Call<V> extends FutureTask<V> {
+
+        private final Deadline deadline;
+
+        Call(Callable<V> loader, Deadline deadline) {
+            super(loader);
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * Contadores de una operación en un momento dado.
+     */
+    public static final class Entry {
+
+        private final String operation;
+        private final long loads;
+        private final long coalesced;
+        private final int inFlight;
+
+        Entry(String operation, long loads, long coalesced, int inFlight) {
+            this.operation = operation;
+            this.loads = loads;
+            this.coalesced = coalesced;
+            this.inFlight = inFlight;
+        }
+
+        /**
+         * @return nombre de la operación.
+         */
+        public String getOperation() {
+            return operation;
+        }
+
+        /**
+         * @return cargas ejecutadas.
+         */
+        public long getLoads() {
+            return loads;
+        }
+
+        /**
+         * @return llamadas que esperaron una carga en curso en lugar de
+         * ejecutar la suya.
+         */
+        public long getCoalesced() {
+            return coalesced;
+        }
+
+        /**
+         * @return cargas en curso.
+         */
+        public int getInFlight() {
+            return inFlight;
+        }
+    }
+}
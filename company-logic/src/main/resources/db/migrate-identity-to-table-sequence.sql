@@ -0,0 +1,23 @@
+-- Migración de los ids IDENTITY a la tabla de secuencias ID_SEQUENCE.
+--
+-- Ejecutar una sola vez sobre una base de datos Derby creada con la versión
+-- anterior (ids IDENTITY), con la aplicación detenida y antes de desplegar la
+-- nueva versión. Las columnas ID existentes se conservan: Derby las creó como
+-- GENERATED BY DEFAULT, así que aceptan los ids que asigna la aplicación.
+-- El script deja el contador en el mayor id existente, de modo que la
+-- aplicación empieza a reservar bloques a partir de ahí. Es idempotente.
+
+CREATE TABLE ID_SEQUENCE (SEQ_NAME VARCHAR(50) NOT NULL, SEQ_COUNT DECIMAL(15), PRIMARY KEY (SEQ_NAME));
+
+INSERT INTO ID_SEQUENCE (SEQ_NAME, SEQ_COUNT)
+    SELECT 'ENTITY_ID', 0 FROM SYSIBM.SYSDUMMY1
+    WHERE NOT EXISTS (SELECT 1 FROM ID_SEQUENCE WHERE SEQ_NAME = 'ENTITY_ID');
+
+UPDATE ID_SEQUENCE SET SEQ_COUNT = (SELECT MAX(ID) FROM COMPANYENTITY)
+    WHERE SEQ_NAME = 'ENTITY_ID' AND SEQ_COUNT < (SELECT COALESCE(MAX(ID), 0) FROM COMPANYENTITY);
+
+UPDATE ID_SEQUENCE SET SEQ_COUNT = (SELECT MAX(ID) FROM DEPARTMENTENTITY)
+    WHERE SEQ_NAME = 'ENTITY_ID' AND SEQ_COUNT < (SELECT COALESCE(MAX(ID), 0) FROM DEPARTMENTENTITY);
+
+UPDATE ID_SEQUENCE SET SEQ_COUNT = (SELECT MAX(ID) FROM EMPLOYEEENTITY)
+    WHERE SEQ_NAME = 'ENTITY_ID' AND SEQ_COUNT < (SELECT COALESCE(MAX(ID), 0) FROM EMPLOYEEENTITY);
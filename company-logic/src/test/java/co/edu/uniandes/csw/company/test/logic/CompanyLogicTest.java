@@ -28,12 +28,26 @@ import co.edu.uniandes.csw.company.api.ICompanyLogic;
 import co.edu.uniandes.csw.company.api.IDepartmentLogic;
 import co.edu.uniandes.csw.company.ejbs.DepartmentLogic;
 import co.edu.uniandes.csw.company.entities.CompanyEntity;
+import co.edu.uniandes.csw.company.persistence.CacheStatistics;
 import co.edu.uniandes.csw.company.persistence.CompanyPersistence;
 import co.edu.uniandes.csw.company.entities.DepartmentEntity;
+import co.edu.uniandes.csw.company.entities.EmployeeEntity;
 import co.edu.uniandes.csw.company.exceptions.BusinessLogicException;
 import co.edu.uniandes.csw.company.persistence.DepartmentPersistence;
+import co.edu.uniandes.csw.company.persistence.StatementCounter;
+import co.edu.uniandes.csw.company.util.LongHashSet;
+import co.edu.uniandes.csw.company.projections.EmployeeSummary;
+import co.edu.uniandes.csw.company.util.Deadline;
+import co.edu.uniandes.csw.company.util.SingleFlight;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
@@ -41,6 +55,7 @@ import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
 import javax.transaction.NotSupportedException;
 import javax.transaction.RollbackException;
+import javax.transaction.Status;
 import javax.transaction.SystemException;
 import javax.transaction.UserTransaction;
 import org.junit.Assert;
@@ -100,6 +115,8 @@ public class CompanyLogicTest {
                 .addPackage(DepartmentEntity.class.getPackage())
                 .addPackage(DepartmentLogic.class.getPackage())
                 .addPackage(IDepartmentLogic.class.getPackage())
+                .addPackage(LongHashSet.class.getPackage())
+                .addPackage(EmployeeSummary.class.getPackage())
                 .addAsManifestResource("META-INF/persistence.xml", "persistence.xml")
                 .addAsManifestResource("META-INF/beans.xml", "beans.xml");
     }
@@ -132,6 +149,7 @@ public class CompanyLogicTest {
      *
      */
     private void clearData() {
+        em.createQuery("delete from EmployeeEntity").executeUpdate();
         em.createQuery("delete from DepartmentEntity").executeUpdate();
         em.createQuery("delete from CompanyEntity").executeUpdate();
     }
@@ -232,6 +250,187 @@ public class CompanyLogicTest {
         Assert.assertEquals(entity.getId(), resultEntity.getId());
     }
 
+    /**
+     * Prueba para verificar que las consultas por id quedan registradas en
+     * las estadísticas del caché.
+     *
+     *
+     */
+    @Test
+    public void getCompanyCacheStatisticsTest() {
+        long before = lookups(CompanyEntity.class.getSimpleName());
+        companyLogic.getCompany(data.get(0).getId());
+        Assert.assertEquals(before + 1, lookups(CompanyEntity.class.getSimpleName()));
+    }
+
+    private long lookups(String entity) {
+        for (CacheStatistics.Entry entry : CacheStatistics.snapshot()) {
+            if (entry.getEntity().equals(entity)) {
+                return entry.getHits() + entry.getMisses();
+            }
+        }
+        Assert.fail("No hay estadísticas para " + entity);
+        return 0;
+    }
+
+    /**
+     * Prueba para verificar que las consultas concurrentes de un mismo
+     * Company se agrupan en una sola carga. El registro se bloquea con una
+     * actualización sin commit para que la primera carga espere mientras
+     * llegan las demás.
+     *
+     *
+     */
+    @Test
+    public void getCompanyCoalescedTest() throws Exception {
+        final CompanyEntity entity = data.get(0);
+        int callers = 8;
+        em.getEntityManagerFactory().getCache().evict(CompanyEntity.class, entity.getId());
+        SingleFlight.Entry initial = coalescing("CompanyLogic.getCompany");
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            utx.begin();
+            em.createQuery("update CompanyEntity c set c.name = c.name where c.id = :id")
+                    .setParameter("id", entity.getId()).executeUpdate();
+            long before = StatementCounter.count();
+            List<Future<CompanyEntity>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(new Callable<CompanyEntity>() {
+                    @Override
+                    public CompanyEntity call() {
+                        return companyLogic.getCompany(entity.getId());
+                    }
+                }));
+            }
+            long deadline = System.currentTimeMillis() + 10000;
+            while (coalescing("CompanyLogic.getCompany").getCoalesced() < initial.getCoalesced() + callers - 1
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            utx.rollback();
+
+            CompanyEntity first = results.get(0).get(30, TimeUnit.SECONDS);
+            Assert.assertEquals(entity.getName(), first.getName());
+            for (Future<CompanyEntity> result : results) {
+                Assert.assertSame(first, result.get(30, TimeUnit.SECONDS));
+            }
+            SingleFlight.Entry stats = coalescing("CompanyLogic.getCompany");
+            Assert.assertEquals(initial.getLoads() + 1, stats.getLoads());
+            Assert.assertEquals(initial.getCoalesced() + callers - 1, stats.getCoalesced());
+            Assert.assertEquals(0, stats.getInFlight());
+            // el company y sus departments
+            Assert.assertTrue(StatementCounter.count() - before <= 2);
+        } finally {
+            if (utx.getStatus() == Status.STATUS_ACTIVE) {
+                utx.rollback();
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Prueba que una llamada agrupada espere según su propio plazo, que
+     * repita la carga si la de quien la inició falló porque se le venció el
+     * plazo, y que no se agrupen llamadas con versiones distintas.
+     *
+     *
+     */
+    @Test
+    public void singleFlightDeadlineTest() throws Exception {
+        final SingleFlight<Long, String> flight = SingleFlight.of("CompanyLogicTest.singleFlight");
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return flight.execute(1L, 1L, new Callable<String>() {
+                        @Override
+                        public String call() throws Exception {
+                            started.countDown();
+                            release.await(30, TimeUnit.SECONDS);
+                            return "leader";
+                        }
+                    });
+                }
+            });
+            Assert.assertTrue(started.await(30, TimeUnit.SECONDS));
+            Assert.assertEquals("version", flight.execute(1L, 2L, constant("version")));
+
+            Deadline previous = Deadline.set(Deadline.in("CompanyLogicTest", 100));
+            try {
+                Assert.assertEquals("follower", flight.execute(1L, 1L, constant("follower")));
+            } finally {
+                Deadline.set(previous);
+            }
+            release.countDown();
+            Assert.assertEquals("leader", leader.get(30, TimeUnit.SECONDS));
+
+            final CountDownLatch failing = new CountDownLatch(1);
+            final CountDownLatch fail = new CountDownLatch(1);
+            Future<String> expired = executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    Deadline previous = Deadline.set(Deadline.in("CompanyLogicTest", 0));
+                    try {
+                        return flight.execute(1L, 1L, new Callable<String>() {
+                            @Override
+                            public String call() throws Exception {
+                                failing.countDown();
+                                fail.await(30, TimeUnit.SECONDS);
+                                throw new IllegalStateException("Se venció el plazo");
+                            }
+                        });
+                    } finally {
+                        Deadline.set(previous);
+                    }
+                }
+            });
+            Assert.assertTrue(failing.await(30, TimeUnit.SECONDS));
+            Future<String> follower = executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return flight.execute(1L, 1L, constant("retry"));
+                }
+            });
+            long wait = System.currentTimeMillis() + 10000;
+            while (coalescing("CompanyLogicTest.singleFlight").getCoalesced() < 2 && System.currentTimeMillis() < wait) {
+                Thread.sleep(10);
+            }
+            fail.countDown();
+            Assert.assertEquals("retry", follower.get(30, TimeUnit.SECONDS));
+            try {
+                expired.get(30, TimeUnit.SECONDS);
+                Assert.fail("La carga vencida debía fallar");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static Callable<String> constant(final String value) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                return value;
+            }
+        };
+    }
+
+    private SingleFlight.Entry coalescing(String operation) {
+        for (SingleFlight.Entry entry : SingleFlight.snapshot()) {
+            if (entry.getOperation().equals(operation)) {
+                return entry;
+            }
+        }
+        Assert.fail("No hay estadísticas para " + operation);
+        return null;
+    }
+
     /**
      * Prueba para eliminar un Company
      *
@@ -245,6 +444,31 @@ public class CompanyLogicTest {
         Assert.assertNull(deleted);
     }
 
+    /**
+     * Prueba que al eliminar un Company cuyos Departments tienen Employees,
+     * los Employees queden sin Department.
+     *
+     *
+     */
+    @Test
+    public void deleteCompanyWithEmployeesTest() throws Exception {
+        CompanyEntity entity = data.get(1);
+        Long departmentId = entity.getDepartments().get(0).getId();
+        EmployeeEntity employee = factory.manufacturePojo(EmployeeEntity.class);
+        utx.begin();
+        employee.setDepartment(em.find(DepartmentEntity.class, departmentId));
+        em.persist(employee);
+        utx.commit();
+
+        companyLogic.deleteCompany(entity.getId());
+        Assert.assertNull(em.find(CompanyEntity.class, entity.getId()));
+        Assert.assertNull(em.find(DepartmentEntity.class, departmentId));
+        em.getEntityManagerFactory().getCache().evict(EmployeeEntity.class);
+        EmployeeEntity unassigned = em.find(EmployeeEntity.class, employee.getId());
+        Assert.assertNotNull(unassigned);
+        Assert.assertNull(unassigned.getDepartment());
+    }
+
     /**
      * Prueba para actualizar un Company
      *
@@ -24,12 +24,18 @@ SOFTWARE.
 package co.edu.uniandes.csw.company.test.logic;
 
 import co.edu.uniandes.csw.company.ejbs.DepartmentLogic;
+import co.edu.uniandes.csw.company.api.ICompanyLogic;
+import co.edu.uniandes.csw.company.api.IDepartmentEmployeeFacade;
 import co.edu.uniandes.csw.company.api.IDepartmentLogic;
+import co.edu.uniandes.csw.company.ejbs.HeadcountReconciler;
 import co.edu.uniandes.csw.company.entities.DepartmentEntity;
 import co.edu.uniandes.csw.company.persistence.DepartmentPersistence;
+import co.edu.uniandes.csw.company.persistence.OwnershipIndex;
 import co.edu.uniandes.csw.company.entities.CompanyEntity;
 import co.edu.uniandes.csw.company.entities.EmployeeEntity;
 import co.edu.uniandes.csw.company.exceptions.BusinessLogicException;
+import co.edu.uniandes.csw.company.util.LongHashSet;
+import co.edu.uniandes.csw.company.projections.EmployeeSummary;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -70,6 +76,30 @@ public class DepartmentLogicTest {
     @Inject
     private IDepartmentLogic departmentLogic;
 
+    /**
+     *
+     */
+    @Inject
+    private ICompanyLogic companyLogic;
+
+    /**
+     *
+     */
+    @Inject
+    private HeadcountReconciler reconciler;
+
+    /**
+     *
+     */
+    @Inject
+    private OwnershipIndex ownershipIndex;
+
+    /**
+     *
+     */
+    @Inject
+    private IDepartmentEmployeeFacade departmentEmployeeFacade;
+
     /**
      *
      */
@@ -109,6 +139,8 @@ public class DepartmentLogicTest {
                 .addPackage(DepartmentPersistence.class.getPackage())
                 .addPackage(CompanyEntity.class.getPackage())
                 .addPackage(EmployeeEntity.class.getPackage())
+                .addPackage(LongHashSet.class.getPackage())
+                .addPackage(EmployeeSummary.class.getPackage())
                 .addAsManifestResource("META-INF/persistence.xml", "persistence.xml")
                 .addAsManifestResource("META-INF/beans.xml", "beans.xml");
     }
@@ -317,10 +349,11 @@ public class DepartmentLogicTest {
      *
      */
     @Test
-    public void replaceEmployeesTest() {
+    public void replaceEmployeesTest() throws BusinessLogicException {
         DepartmentEntity entity = departmentData.get(0);
         List<EmployeeEntity> list = employeesData.subList(1, 3);
-        departmentLogic.replaceEmployees(entity.getId(), list);
+        List<EmployeeEntity> result = departmentLogic.replaceEmployees(entity.getId(), list);
+        Assert.assertEquals(2, result.size());
 
         entity = departmentLogic.getDepartment(entity.getId());
         Assert.assertFalse(entity.getEmployees().contains(employeesData.get(0)));
@@ -328,6 +361,41 @@ public class DepartmentLogicTest {
         Assert.assertTrue(entity.getEmployees().contains(employeesData.get(2)));
     }
 
+    /**
+     * Prueba para remplazar las instancias de Employees asociadas a una
+     * instancia de Department con un Employee que pertenece a otro Department.
+     *
+     *
+     */
+    @Test
+    public void replaceEmployeesFromOtherDepartmentTest() throws BusinessLogicException {
+        DepartmentEntity entity = departmentData.get(1);
+        List<EmployeeEntity> list = employeesData.subList(0, 2);
+        departmentLogic.replaceEmployees(entity.getId(), list);
+
+        entity = departmentLogic.getDepartment(entity.getId());
+        Assert.assertEquals(2, entity.getEmployees().size());
+        Assert.assertTrue(entity.getEmployees().contains(employeesData.get(0)));
+        Assert.assertTrue(entity.getEmployees().contains(employeesData.get(1)));
+        Assert.assertTrue(departmentLogic.listEmployees(departmentData.get(0).getId()).isEmpty());
+    }
+
+    /**
+     * Prueba para remplazar las instancias de Employees asociadas a una
+     * instancia de Department con un Employee que no existe.
+     *
+     *
+     */
+    @Test(expected = BusinessLogicException.class)
+    public void replaceEmployeesUnknownTest() throws BusinessLogicException {
+        DepartmentEntity entity = departmentData.get(0);
+        List<EmployeeEntity> list = new ArrayList<>(employeesData.subList(1, 3));
+        EmployeeEntity unknown = new EmployeeEntity();
+        unknown.setId(Long.MAX_VALUE);
+        list.add(unknown);
+        departmentLogic.replaceEmployees(entity.getId(), list);
+    }
+
     /**
      * Prueba para desasociar un Employees existente de un Department existente
      *
@@ -339,4 +407,142 @@ public class DepartmentLogicTest {
         EmployeeEntity response = departmentLogic.getEmployee(departmentData.get(0).getId(), employeesData.get(0).getId());
         Assert.assertNull(response);
     }
+
+    /**
+     * Prueba para mantener el número de employees de los Departments y del
+     * Company al asociar, desasociar y remplazar Employees.
+     *
+     *
+     */
+    @Test
+    public void employeeCountTest() throws BusinessLogicException {
+        Assert.assertTrue(reconciler.reconcile() > 0);
+        Assert.assertEquals(0, reconciler.reconcile());
+        Assert.assertEquals(Integer.valueOf(1), companyLogic.getNumberOfEmployeesCompany(fatherEntity.getId()));
+        Assert.assertEquals(1, employeeCount(departmentData.get(0)));
+
+        departmentLogic.addEmployee(departmentData.get(1).getId(), employeesData.get(1).getId());
+        Assert.assertEquals(1, employeeCount(departmentData.get(1)));
+        Assert.assertEquals(Integer.valueOf(2), companyLogic.getNumberOfEmployeesCompany(fatherEntity.getId()));
+
+        departmentLogic.removeEmployee(departmentData.get(0).getId(), employeesData.get(0).getId());
+        Assert.assertEquals(0, employeeCount(departmentData.get(0)));
+        Assert.assertEquals(Integer.valueOf(1), companyLogic.getNumberOfEmployeesCompany(fatherEntity.getId()));
+
+        departmentLogic.replaceEmployees(departmentData.get(2).getId(), employeesData);
+        Assert.assertEquals(0, employeeCount(departmentData.get(1)));
+        Assert.assertEquals(3, employeeCount(departmentData.get(2)));
+        Assert.assertEquals(Integer.valueOf(3), companyLogic.getNumberOfEmployeesCompany(fatherEntity.getId()));
+        Assert.assertEquals(0, reconciler.reconcile());
+    }
+
+    /**
+     * Prueba para eliminar un Department con Employees: los Employees quedan
+     * sin Department y el número de employees del Company se actualiza.
+     *
+     *
+     */
+    @Test
+    public void deleteDepartmentWithEmployeesTest() throws BusinessLogicException {
+        reconciler.reconcile();
+        Assert.assertEquals(Integer.valueOf(1), companyLogic.getNumberOfEmployeesCompany(fatherEntity.getId()));
+
+        departmentLogic.deleteDepartment(departmentData.get(0).getId());
+        Assert.assertNull(em.find(DepartmentEntity.class, departmentData.get(0).getId()));
+        Assert.assertEquals(Long.valueOf(0), em.createQuery("select count(e) from EmployeeEntity e where e.department is not null", Long.class)
+                .getSingleResult());
+        Assert.assertEquals(Integer.valueOf(0), companyLogic.getNumberOfEmployeesCompany(fatherEntity.getId()));
+        Assert.assertEquals(0, reconciler.reconcile());
+    }
+
+    /**
+     * Prueba para consultar el número de employees de un Company que no
+     * existe.
+     *
+     *
+     */
+    @Test(expected = BusinessLogicException.class)
+    public void employeeCountUnknownCompanyTest() throws BusinessLogicException {
+        companyLogic.getNumberOfEmployeesCompany(Long.MAX_VALUE);
+    }
+
+    /**
+     * Prueba para validar rutas company/department/employee con el índice de
+     * pertenencia. Los datos de la prueba se insertan sin pasar por la
+     * lógica, así que el índice solo los conoce después de confirmarlos en
+     * la base de datos.
+     *
+     *
+     */
+    @Test
+    public void resolvePathTest() throws BusinessLogicException {
+        DepartmentEntity department = departmentData.get(0);
+        EmployeeEntity employee = employeesData.get(1);
+        departmentLogic.addEmployee(department.getId(), employee.getId());
+        OwnershipIndex.Statistics before = ownershipIndex.statistics();
+
+        departmentLogic.resolvePath(fatherEntity.getId(), department.getId());
+        departmentLogic.resolvePath(fatherEntity.getId(), department.getId());
+        departmentLogic.resolvePath(fatherEntity.getId(), department.getId(), employee.getId());
+
+        OwnershipIndex.Statistics after = ownershipIndex.statistics();
+        Assert.assertEquals(before.getRepairs() + 1, after.getRepairs());
+        Assert.assertEquals(before.getHits() + 2, after.getHits());
+        Assert.assertTrue(after.getDepartments() > 0);
+        Assert.assertTrue(after.getMemoryBytes() > 0);
+
+        BusinessLogicException first = null;
+        for (int i = 0; i < 2; i++) {
+            try {
+                departmentLogic.resolvePath(fatherEntity.getId() + 1, department.getId());
+                Assert.fail("El department no pertenece a esa compañía");
+            } catch (BusinessLogicException e) {
+                Assert.assertEquals(0, e.getStackTrace().length);
+                Assert.assertTrue(first == null || first == e);
+                first = e;
+            }
+        }
+        try {
+            departmentLogic.resolvePath(fatherEntity.getId(), department.getId(), employeesData.get(2).getId());
+            Assert.fail("El employee no pertenece al department");
+        } catch (BusinessLogicException e) {
+            // esperado
+        }
+    }
+
+    /**
+     * Prueba que una ruta leída de la base de datos no se registra en el
+     * índice si entre tanto se aplicó otro cambio, que pudo borrarla; y que
+     * una ruta que el índice confirma pero ya no existe responde como no
+     * encontrada.
+     *
+     *
+     */
+    @Test
+    public void staleRepairTest() throws BusinessLogicException {
+        DepartmentEntity department = departmentData.get(1);
+        EmployeeEntity employee = employeesData.get(2);
+
+        long generation = ownershipIndex.generation();
+        ownershipIndex.employeeSaved(employeesData.get(1).getId(), null);
+        ownershipIndex.repair(fatherEntity.getId(), department.getId(), employee.getId(), generation);
+        Assert.assertFalse(ownershipIndex.contains(fatherEntity.getId(), department.getId(), employee.getId()));
+
+        ownershipIndex.repair(fatherEntity.getId(), department.getId(), employee.getId(), ownershipIndex.generation());
+        Assert.assertTrue(ownershipIndex.contains(fatherEntity.getId(), department.getId(), employee.getId()));
+        try {
+            departmentEmployeeFacade.getEmployee(fatherEntity.getId(), department.getId(), employee.getId());
+            Assert.fail("El employee no pertenece al department");
+        } catch (BusinessLogicException e) {
+            // esperado
+        } finally {
+            ownershipIndex.employeeSaved(employee.getId(), null);
+        }
+    }
+
+    private int employeeCount(DepartmentEntity department) {
+        return em.createQuery("select d.employeeCount from DepartmentEntity d where d.id = :id", Integer.class)
+                .setParameter("id", department.getId())
+                .getSingleResult();
+    }
 }
@@ -24,12 +24,19 @@ SOFTWARE.
 package co.edu.uniandes.csw.company.test.logic;
 
 import co.edu.uniandes.csw.company.ejbs.EmployeeLogic;
+import co.edu.uniandes.csw.company.api.BatchItemResult;
 import co.edu.uniandes.csw.company.api.IEmployeeLogic;
+import co.edu.uniandes.csw.company.api.IEntityLoader;
 import co.edu.uniandes.csw.company.entities.EmployeeEntity;
 import co.edu.uniandes.csw.company.persistence.EmployeePersistence;
+import co.edu.uniandes.csw.company.persistence.StatementCounter;
+import co.edu.uniandes.csw.company.persistence.ExistenceFilter;
 import co.edu.uniandes.csw.company.entities.DepartmentEntity;
+import co.edu.uniandes.csw.company.util.LongHashSet;
+import co.edu.uniandes.csw.company.projections.EmployeeSummary;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
@@ -67,6 +74,18 @@ public class EmployeeLogicTest {
     @Inject
     private IEmployeeLogic employeeLogic;
 
+    /**
+     * 
+     */
+    @Inject
+    private ExistenceFilter existenceFilter;
+
+    /**
+     * 
+     */
+    @Inject
+    private IEntityLoader loader;
+
     /**
      * 
      */
@@ -99,6 +118,8 @@ public class EmployeeLogicTest {
                 .addPackage(EmployeeLogic.class.getPackage())
                 .addPackage(IEmployeeLogic.class.getPackage())
                 .addPackage(EmployeePersistence.class.getPackage())
+                .addPackage(LongHashSet.class.getPackage())
+                .addPackage(EmployeeSummary.class.getPackage())
                 .addAsManifestResource("META-INF/persistence.xml", "persistence.xml")
                 .addAsManifestResource("META-INF/beans.xml", "beans.xml");
     }
@@ -173,6 +194,38 @@ public class EmployeeLogicTest {
         Assert.assertEquals(newEntity.getId(), entity.getId());
     }
 
+    /**
+     * Prueba para crear una colección de Employees más grande que el tamaño
+     * de lote, con un Employee vacío y uno cuyo Department no existe.
+     *
+     * 
+     */
+    @Test
+    public void createEmployeesTest() {
+        List<EmployeeEntity> entities = new ArrayList<>();
+        for (int i = 0; i < EmployeePersistence.BATCH_SIZE * 2 + 1; i++) {
+            entities.add(factory.manufacturePojo(EmployeeEntity.class));
+        }
+        DepartmentEntity unknown = new DepartmentEntity();
+        unknown.setId(Long.MAX_VALUE);
+        entities.get(1).setDepartment(unknown);
+        entities.set(2, null);
+
+        List<BatchItemResult<EmployeeEntity>> results = employeeLogic.createEmployees(entities);
+        Assert.assertEquals(entities.size(), results.size());
+        Assert.assertFalse(results.get(1).isSuccess());
+        Assert.assertFalse(results.get(2).isSuccess());
+        for (int i = 0; i < results.size(); i++) {
+            BatchItemResult<EmployeeEntity> result = results.get(i);
+            Assert.assertEquals(i, result.getIndex());
+            if (result.isSuccess()) {
+                EmployeeEntity entity = em.find(EmployeeEntity.class, result.getEntity().getId());
+                Assert.assertEquals(entities.get(i).getName(), entity.getName());
+            }
+        }
+        Assert.assertEquals(data.size() + entities.size() - 2, employeeLogic.getEmployees().size());
+    }
+
     /**
      * Prueba para consultar la lista de Employees
      *
@@ -222,6 +275,45 @@ public class EmployeeLogicTest {
         Assert.assertNull(deleted);
     }
 
+    /**
+     * Prueba que un id creado desde la última carga no quede registrado como
+     * inexistente si la consulta que no lo encontró fue anterior a su
+     * creación, y que un id borrado sí se registre.
+     *
+     * 
+     */
+    @Test
+    public void existenceFilterTest() {
+        EmployeeEntity entity = data.get(0);
+        existenceFilter.recordMissing(EmployeeEntity.class, entity.getId());
+        Assert.assertFalse(existenceFilter.isMissing(EmployeeEntity.class, entity.getId()));
+        Assert.assertNotNull(employeeLogic.getEmployee(entity.getId()));
+
+        EmployeeEntity deleted = data.get(1);
+        employeeLogic.deleteEmployee(deleted.getId());
+        Assert.assertTrue(existenceFilter.isMissing(EmployeeEntity.class, deleted.getId()));
+        Assert.assertNull(employeeLogic.getEmployee(deleted.getId()));
+    }
+
+    /**
+     * Prueba que un id insertado por fuera de la aplicación, que no está en
+     * el filtro de Bloom, no se dé por inexistente sin consultarlo.
+     *
+     * 
+     */
+    @Test
+    public void existenceFilterConfirmsMissTest() throws Exception {
+        Long id = 900000000L + new Random().nextInt(1000000);
+        utx.begin();
+        em.createNativeQuery("INSERT INTO EMPLOYEEENTITY (ID, NAME, VERSION) VALUES (?1, ?2, 1)")
+                .setParameter(1, id)
+                .setParameter(2, "externo")
+                .executeUpdate();
+        utx.commit();
+        Assert.assertFalse(existenceFilter.isMissing(EmployeeEntity.class, id));
+        Assert.assertNotNull(employeeLogic.getEmployee(id));
+    }
+
     /**
      * Prueba para actualizar un Employee
      *
@@ -242,5 +334,40 @@ public class EmployeeLogicTest {
         Assert.assertEquals(pojoEntity.getSalary(), resp.getSalary());
         Assert.assertEquals(pojoEntity.getId(), resp.getId());
     }
-}
 
+    /**
+     * Prueba que el loader consulta juntos los ids registrados y memoriza el
+     * resultado durante la transacción, incluidos los ids que no existen.
+     *
+     * 
+     */
+    @Test
+    public void entityLoaderTest() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (DepartmentEntity entity : departmentData) {
+            ids.add(entity.getId());
+        }
+        Long missing = departmentData.get(departmentData.size() - 1).getId() + 1000;
+        utx.begin();
+        try {
+            loader.prime(DepartmentEntity.class, missing);
+            long before = StatementCounter.count();
+            List<DepartmentEntity> loaded = loader.loadAll(DepartmentEntity.class, ids);
+            Assert.assertEquals(1, StatementCounter.count() - before);
+            Assert.assertEquals(departmentData.size(), loaded.size());
+            for (int i = 0; i < departmentData.size(); i++) {
+                Assert.assertEquals(departmentData.get(i).getName(), loaded.get(i).getName());
+            }
+
+            before = StatementCounter.count();
+            for (DepartmentEntity entity : loaded) {
+                Assert.assertSame(entity, loader.load(DepartmentEntity.class, entity.getId()));
+                Assert.assertSame(entity, em.find(DepartmentEntity.class, entity.getId()));
+            }
+            Assert.assertNull(loader.load(DepartmentEntity.class, missing));
+            Assert.assertEquals(before, StatementCounter.count());
+        } finally {
+            utx.rollback();
+        }
+    }
+}
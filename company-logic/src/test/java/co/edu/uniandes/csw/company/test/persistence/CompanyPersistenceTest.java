@@ -25,9 +25,16 @@ package co.edu.uniandes.csw.company.test.persistence;
 
 import co.edu.uniandes.csw.company.entities.CompanyEntity;
 import co.edu.uniandes.csw.company.persistence.CompanyPersistence;
+import co.edu.uniandes.csw.company.persistence.QueryTimeouts;
+import co.edu.uniandes.csw.company.projections.EmployeeSummary;
+import co.edu.uniandes.csw.company.util.Deadline;
+import co.edu.uniandes.csw.company.util.LatencyHistogram;
+import co.edu.uniandes.csw.company.util.RollingLatencyHistogram;
+import co.edu.uniandes.csw.company.util.Metrics;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.ejb.EJBException;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -55,6 +62,7 @@ public class CompanyPersistenceTest {
         return ShrinkWrap.create(JavaArchive.class)
                 .addPackage(CompanyEntity.class.getPackage())
                 .addPackage(CompanyPersistence.class.getPackage())
+                .addPackage(EmployeeSummary.class.getPackage())
                 .addAsManifestResource("META-INF/persistence.xml", "persistence.xml")
                 .addAsManifestResource("META-INF/beans.xml", "beans.xml");
     }
@@ -129,6 +137,32 @@ public class CompanyPersistenceTest {
         Assert.assertEquals(newEntity.getName(), entity.getName());
     }
 
+    /**
+     * Prueba para verificar que los ids se asignan por bloques desde la tabla
+     * de secuencias, ignorando el id que trae la entidad.
+     *
+     *
+     */
+    @Test
+    public void createCompanyIdAllocationTest() throws Exception {
+        CompanyEntity first = new CompanyEntity();
+        first.setName("first");
+        first.setId(-1L);
+        CompanyEntity second = new CompanyEntity();
+        second.setName("second");
+        utx.begin();
+        em.joinTransaction();
+        companyPersistence.create(first);
+        companyPersistence.create(second);
+        utx.commit();
+
+        Assert.assertTrue(first.getId() > 0);
+        Assert.assertEquals(1, Math.abs(first.getId() - second.getId()));
+        Number reserved = (Number) em.createNativeQuery("select SEQ_COUNT from ID_SEQUENCE where SEQ_NAME = 'ENTITY_ID'")
+                .getSingleResult();
+        Assert.assertTrue(reserved.longValue() >= Math.max(first.getId(), second.getId()));
+    }
+
     /**
      * Prueba para consultar la lista de Companys.
      *
@@ -149,6 +183,20 @@ public class CompanyPersistenceTest {
         }
     }
 
+    /**
+     * Prueba para consultar la lista de Companys por páginas.
+     */
+    @Test
+    public void findPageTest() {
+        List<CompanyEntity> first = companyPersistence.findPage(null, 2);
+        Assert.assertEquals(2, first.size());
+        Assert.assertTrue(first.get(0).getId() < first.get(1).getId());
+
+        List<CompanyEntity> second = companyPersistence.findPage(first.get(1).getId(), 2);
+        Assert.assertEquals(data.size() - 2, second.size());
+        Assert.assertTrue(second.get(0).getId() > first.get(1).getId());
+    }
+
     /**
      * Prueba para consultar una Company.
      */
@@ -160,6 +208,72 @@ public class CompanyPersistenceTest {
         Assert.assertEquals(entity.getName(), newEntity.getName());
     }
 
+    /**
+     * Prueba del plazo de la petición: con el plazo vencido las consultas no
+     * se envían; con plazo vigente se ejecutan normalmente.
+     */
+    @Test
+    public void deadlineTest() {
+        CompanyEntity entity = data.get(0);
+        Deadline previous = Deadline.set(Deadline.in("CompanyPersistenceTest", 60000));
+        try {
+            Assert.assertNotNull(companyPersistence.find(entity.getId()));
+            Assert.assertEquals(data.size(), companyPersistence.findPage(null, data.size()).size());
+
+            Deadline.set(Deadline.in("CompanyPersistenceTest", 0));
+            try {
+                companyPersistence.findByName(entity.getName());
+                Assert.fail("La consulta no debió ejecutarse con el plazo vencido");
+            } catch (EJBException e) {
+                Assert.assertTrue(QueryTimeouts.isTimeout(e));
+            }
+        } finally {
+            Deadline.set(previous);
+        }
+        Assert.assertNotNull(companyPersistence.findByName(entity.getName()));
+    }
+
+    /**
+     * Prueba de las métricas de la persistencia: cada llamada se mide con el
+     * nombre Clase.método y los percentiles tienen a lo más 1/16 de error.
+     */
+    @Test
+    public void metricsTest() {
+        Metrics.Timer timer = Metrics.of(Metrics.PERSISTENCE).timer("CompanyPersistence.find");
+        long before = timer.getCalls();
+        companyPersistence.find(data.get(0).getId());
+        companyPersistence.find(data.get(1).getId());
+        Assert.assertEquals(before + 2, timer.getCalls());
+        Assert.assertEquals(0, timer.getInFlight());
+        Assert.assertTrue(timer.quantileMicros(0.5)[0] > 0);
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.quantiles(0.5)[0]);
+        for (long micros = 1; micros <= 10000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        long[] quantiles = histogram.quantiles(0.5, 0.9, 0.99, 0.999);
+        Assert.assertEquals(5000, quantiles[0], 5000 / 16);
+        Assert.assertEquals(9000, quantiles[1], 9000 / 16);
+        Assert.assertEquals(9900, quantiles[2], 9900 / 16);
+        Assert.assertEquals(9990, quantiles[3], 9990 / 16);
+    }
+
+    /**
+     * Prueba que los percentiles de latencia solo cuenten la ventana
+     * reciente.
+     */
+    @Test
+    public void rollingMetricsTest() throws InterruptedException {
+        RollingLatencyHistogram histogram = new RollingLatencyHistogram(600);
+        histogram.record(5000 * 1000);
+        Assert.assertEquals(5000, histogram.quantiles(0.5)[0], 5000 / 16);
+        Thread.sleep(800);
+        Assert.assertEquals(0, histogram.quantiles(0.5)[0]);
+        histogram.record(100 * 1000);
+        Assert.assertEquals(100, histogram.quantiles(0.5)[0], 100 / 16);
+    }
+
     /**
      * Prueba para consultar una Company que existe.
      */
@@ -26,6 +26,7 @@ package co.edu.uniandes.csw.company.test.persistence;
 import co.edu.uniandes.csw.company.entities.CompanyEntity;
 import co.edu.uniandes.csw.company.entities.DepartmentEntity;
 import co.edu.uniandes.csw.company.persistence.DepartmentPersistence;
+import co.edu.uniandes.csw.company.projections.EmployeeSummary;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -55,6 +56,7 @@ public class DepartmentPersistenceTest {
         return ShrinkWrap.create(JavaArchive.class)
                 .addPackage(DepartmentEntity.class.getPackage())
                 .addPackage(DepartmentPersistence.class.getPackage())
+                .addPackage(EmployeeSummary.class.getPackage())
                 .addPackage(CompanyEntity.class.getPackage())
                 .addAsManifestResource("META-INF/persistence.xml", "persistence.xml")
                 .addAsManifestResource("META-INF/beans.xml", "beans.xml");
@@ -170,6 +172,22 @@ public class DepartmentPersistenceTest {
         }
     }
 
+    /**
+     * Prueba para consultar los Departments de una Company por páginas.
+     *
+     *
+     */
+    @Test
+    public void findPageTest() {
+        List<DepartmentEntity> first = departmentPersistence.findPage(fatherEntity.getId(), null, 2);
+        Assert.assertEquals(2, first.size());
+        Assert.assertTrue(first.get(0).getId() < first.get(1).getId());
+
+        List<DepartmentEntity> second = departmentPersistence.findPage(fatherEntity.getId(), first.get(1).getId(), 2);
+        Assert.assertEquals(departmentData.size() - 2, second.size());
+        Assert.assertTrue(second.get(0).getId() > first.get(1).getId());
+    }
+
     /**
      * Prueba para consultar un Department.
      *
@@ -236,4 +254,20 @@ public class DepartmentPersistenceTest {
 
         Assert.assertEquals(newEntity.getName(), resp.getName());
     }
+
+    /**
+     * Prueba para validar una ruta company/department.
+     *
+     *
+     */
+    @Test
+    public void existsPathTest() {
+        DepartmentEntity entity = departmentData.get(0);
+        Assert.assertTrue(departmentPersistence.existsPath(fatherEntity.getId(), null, null));
+        Assert.assertTrue(departmentPersistence.existsPath(fatherEntity.getId(), entity.getId(), null));
+        Assert.assertFalse(departmentPersistence.existsPath(fatherEntity.getId() + 1, null, null));
+        Assert.assertFalse(departmentPersistence.existsPath(fatherEntity.getId() + 1, entity.getId(), null));
+        Assert.assertFalse(departmentPersistence.existsPath(fatherEntity.getId(), entity.getId() + 1000, null));
+        Assert.assertFalse(departmentPersistence.existsPath(fatherEntity.getId(), entity.getId(), entity.getId()));
+    }
 }
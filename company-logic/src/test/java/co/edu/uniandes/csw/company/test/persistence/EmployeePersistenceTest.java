@@ -24,6 +24,8 @@ SOFTWARE.
 package co.edu.uniandes.csw.company.test.persistence;
 import co.edu.uniandes.csw.company.entities.EmployeeEntity;
 import co.edu.uniandes.csw.company.persistence.EmployeePersistence;
+import co.edu.uniandes.csw.company.persistence.IndexInitializer;
+import co.edu.uniandes.csw.company.projections.EmployeeSummary;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -56,6 +58,7 @@ public class EmployeePersistenceTest {
         return ShrinkWrap.create(JavaArchive.class)
                 .addPackage(EmployeeEntity.class.getPackage())
                 .addPackage(EmployeePersistence.class.getPackage())
+                .addPackage(EmployeeSummary.class.getPackage())
                 .addAsManifestResource("META-INF/persistence.xml", "persistence.xml")
                 .addAsManifestResource("META-INF/beans.xml", "beans.xml");
     }
@@ -70,6 +73,9 @@ public class EmployeePersistenceTest {
     @Inject
     private EmployeePersistence employeePersistence;
 
+    @Inject
+    private IndexInitializer indexInitializer;
+
     /**
      * 
      */
@@ -172,6 +178,102 @@ public class EmployeePersistenceTest {
         }
     }
 
+    /**
+     * Prueba para consultar la lista de Employees por páginas.
+     *
+     * 
+     */
+    @Test
+    public void findPageTest() {
+        List<EmployeeEntity> first = employeePersistence.findPage(null, 2);
+        Assert.assertEquals(2, first.size());
+        Assert.assertTrue(first.get(0).getId() < first.get(1).getId());
+
+        List<EmployeeEntity> second = employeePersistence.findPage(first.get(1).getId(), 2);
+        Assert.assertEquals(data.size() - 2, second.size());
+        Assert.assertTrue(second.get(0).getId() > first.get(1).getId());
+    }
+
+    /**
+     * Prueba para consultar el resumen de los Employees con la proyección.
+     *
+     * 
+     */
+    @Test
+    public void findSummariesTest() {
+        List<EmployeeSummary> all = employeePersistence.findSummaries(null, null);
+        Assert.assertEquals(data.size(), all.size());
+        for (EmployeeSummary summary : all) {
+            EmployeeEntity entity = em.find(EmployeeEntity.class, summary.getId());
+            Assert.assertEquals(entity.getName(), summary.getName());
+            Assert.assertEquals(entity.getSalary(), summary.getSalary());
+        }
+
+        List<EmployeeSummary> page = employeePersistence.findSummaries(all.get(0).getId(), 1);
+        Assert.assertEquals(1, page.size());
+        Assert.assertEquals(all.get(1).getId(), page.get(0).getId());
+    }
+
+    /**
+     * Prueba para validar la existencia de un conjunto de Employees.
+     *
+     * 
+     */
+    @Test
+    public void findExistingIdsTest() {
+        long[] ids = new long[]{data.get(0).getId(), data.get(1).getId(), Long.MAX_VALUE};
+        List<Long> existing = employeePersistence.findExistingIds(ids);
+        Assert.assertEquals(2, existing.size());
+        Assert.assertTrue(existing.contains(data.get(0).getId()));
+        Assert.assertTrue(existing.contains(data.get(1).getId()));
+    }
+
+    /**
+     * Prueba para crear al iniciar los índices declarados que no existen en
+     * la base de datos.
+     *
+     * 
+     */
+    @Test
+    public void ensureIndexesTest() throws Exception {
+        utx.begin();
+        em.joinTransaction();
+        em.createNativeQuery("DROP INDEX IDX_EMPLOYEE_NAME").executeUpdate();
+        utx.commit();
+
+        List<String> created = indexInitializer.ensureIndexes();
+        Assert.assertEquals(1, created.size());
+        Assert.assertEquals("IDX_EMPLOYEE_NAME", created.get(0));
+        Assert.assertTrue(indexInitializer.ensureIndexes().isEmpty());
+    }
+
+    /**
+     * Prueba para recorrer todos los Employees con un cursor, con más
+     * registros que el intervalo de limpieza del contexto de persistencia.
+     *
+     * 
+     */
+    @Test
+    public void forEachTest() throws Exception {
+        PodamFactory factory = new PodamFactoryImpl();
+        utx.begin();
+        em.joinTransaction();
+        for (int i = 0; i < EmployeePersistence.STREAM_CLEAR_INTERVAL * 2; i++) {
+            EmployeeEntity entity = factory.manufacturePojo(EmployeeEntity.class);
+            em.persist(entity);
+        }
+        utx.commit();
+
+        final List<Long> ids = new ArrayList<>();
+        int count = employeePersistence.forEach(entity -> ids.add(entity.getId()));
+
+        Assert.assertEquals(data.size() + EmployeePersistence.STREAM_CLEAR_INTERVAL * 2, count);
+        Assert.assertEquals(count, ids.size());
+        for (int i = 1; i < ids.size(); i++) {
+            Assert.assertTrue(ids.get(i - 1) < ids.get(i));
+        }
+    }
+
     /**
      * Prueba para consultar un Employee.
      *